@@ -46,11 +46,14 @@ public abstract class BaseBuilder extends Builder {
 
     @Override
     public boolean perform(AbstractBuild<?, ?> abstractBuild, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        long startTime = System.currentTimeMillis();
         try {
             return perform((SpoonBuild) abstractBuild, launcher, listener);
         } catch (IllegalStateException ex) {
             TaskListeners.logFatalError(listener, ex);
             return false;
+        } finally {
+            BuildTimelineAction.of(abstractBuild).record(BuildTimelineAction.CATEGORY_STEP, getDescriptor().getDisplayName(), startTime, System.currentTimeMillis());
         }
     }
 
@@ -103,6 +106,7 @@ public abstract class BaseBuilder extends Builder {
         this.hubUrl = configCommand.getHub().orNull();
 
         build.setHubUrl(this.hubUrl);
+        client.setHub(this.hubUrl);
     }
 
     private EnvVars getEnvironment(AbstractBuild<?, ?> build, BuildListener listener) throws IllegalStateException {
@@ -0,0 +1,128 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.Util;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.TimelineSpan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timeline of a build: build steps, launched commands, hub requests and snapshot phases, rendered as a Gantt chart.
+ */
+public class BuildTimelineAction implements RunAction2 {
+
+    public static final String CATEGORY_STEP = "Build step";
+    public static final String CATEGORY_COMMAND = "Command";
+    public static final String CATEGORY_HUB = "Hub request";
+    public static final String CATEGORY_SNAPSHOT = "Snapshot";
+    public static final String CATEGORY_PUSH_QUEUE = "Push queue";
+
+    private static final Comparator<TimelineSpan> BY_START = new Comparator<TimelineSpan>() {
+        @Override
+        public int compare(TimelineSpan left, TimelineSpan right) {
+            if (left.getStart() != right.getStart()) {
+                return left.getStart() < right.getStart() ? -1 : 1;
+            }
+            return left.getEnd() < right.getEnd() ? 1 : (left.getEnd() == right.getEnd() ? 0 : -1);
+        }
+    };
+
+    private final ArrayList<TimelineSpan> spans = new ArrayList<TimelineSpan>();
+
+    @Getter
+    private transient Run<?, ?> run;
+
+    public static BuildTimelineAction of(Run<?, ?> run) {
+        synchronized (run) {
+            BuildTimelineAction action = run.getAction(BuildTimelineAction.class);
+            if (action == null) {
+                action = new BuildTimelineAction();
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    public synchronized void record(String category, String label, long start, long end) {
+        spans.add(new TimelineSpan(category, label, start, end));
+    }
+
+    public synchronized void addAll(Collection<TimelineSpan> spansToAdd) {
+        spans.addAll(spansToAdd);
+    }
+
+    public synchronized List<TimelineSpan> getSpans() {
+        List<TimelineSpan> sortedSpans = new ArrayList<TimelineSpan>(spans);
+        Collections.sort(sortedSpans, BY_START);
+        return sortedSpans;
+    }
+
+    public String getOffset(TimelineSpan span) {
+        return formatPercent(span.getStart() - getTimelineStart());
+    }
+
+    public String getWidth(TimelineSpan span) {
+        return formatPercent(span.getDuration());
+    }
+
+    public String formatDuration(long duration) {
+        return Util.getTimeSpanString(duration);
+    }
+
+    public String formatTime(TimelineSpan span) {
+        return Util.getTimeSpanString(span.getStart() - getTimelineStart());
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Build Timeline";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "timeline";
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    private synchronized long getTimelineStart() {
+        long start = run != null ? run.getStartTimeInMillis() : Long.MAX_VALUE;
+        for (TimelineSpan span : spans) {
+            start = Math.min(start, span.getStart());
+        }
+        return start;
+    }
+
+    private synchronized long getTimelineDuration() {
+        long start = getTimelineStart();
+        long end = start;
+        for (TimelineSpan span : spans) {
+            end = Math.max(end, span.getEnd());
+        }
+        return Math.max(end - start, 1L);
+    }
+
+    private String formatPercent(long value) {
+        return String.format(Locale.ROOT, "%.2f%%", 100.0 * value / getTimelineDuration());
+    }
+}
@@ -1,12 +1,15 @@
 package org.jenkinsci.plugins.spoontrigger;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.io.Closeables;
 import com.google.common.reflect.TypeToken;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractProject;
+import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.tasks.BuildStepDescriptor;
@@ -15,11 +18,15 @@ import hudson.util.ArgumentListBuilder;
 import hudson.util.FormValidation;
 import lombok.Data;
 import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.cache.ModelCache;
 import org.jenkinsci.plugins.spoontrigger.commands.BaseCommand;
 import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.ModelCommand;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.PushModelCommand;
 import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.metrics.ModelMetrics;
+import org.jenkinsci.plugins.spoontrigger.push.HubPushThrottle;
+import org.jenkinsci.plugins.spoontrigger.scheduledtasks.CompletionMarker;
 import org.jenkinsci.plugins.spoontrigger.scheduledtasks.ScheduledTasksApi;
 import org.jenkinsci.plugins.spoontrigger.validation.*;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -31,31 +38,47 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkState;
 import static org.jenkinsci.plugins.spoontrigger.Messages.IGNORE_PARAMETER;
 import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_OUTPUT_IMAGE;
-import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.deleteDirectoryTree;
+import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.deleteDirectoryTreeInBackground;
+import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.quietDeleteDirectoryTreeIfExists;
 import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
 
 public class ModelBuilder extends BaseBuilder {
 
     private static final String TRANSCRIPT_DIR = "transcripts";
     private static final String MODEL_DIR = "model";
+    private static final String PROFILE_MARKER_FILE = "profile.done";
+    private static final long PROFILE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long TASK_STATE_CHECK_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int DEFAULT_PROFILE_SESSIONS = 1;
 
     @Nullable
     @Getter
     private final PushGuardSettings pushGuardSettings;
     @Getter
     private final String hubUrls;
+    private final int profileSessions;
 
     @DataBoundConstructor
-    public ModelBuilder(@Nullable PushGuardSettings pushGuardSettings, @Nullable String hubUrls) {
+    public ModelBuilder(@Nullable PushGuardSettings pushGuardSettings, @Nullable String hubUrls, int profileSessions) {
         this.pushGuardSettings = pushGuardSettings;
         this.hubUrls = hubUrls;
+        this.profileSessions = profileSessions > 0 ? profileSessions : DEFAULT_PROFILE_SESSIONS;
+    }
+
+    public int getProfileSessions() {
+        // configurations saved before the field was introduced are loaded with zero
+        return profileSessions > 0 ? profileSessions : DEFAULT_PROFILE_SESSIONS;
     }
 
     public String getMinBufferSize() {
@@ -77,11 +100,16 @@ public class ModelBuilder extends BaseBuilder {
             ModelWorker worker = new ModelWorker(tempDir, build, launcher, listener, hubUrlsAsList());
             worker.buildModel();
         } finally {
-            deleteDirectoryTree(tempDir);
+            deleteDirectoryTreeInBackground(tempDir, listener);
         }
         return true;
     }
 
+    @Override
+    public Collection<? extends Action> getProjectActions(AbstractProject<?, ?> project) {
+        return Collections.singletonList(new ModelMetricsProjectAction(project));
+    }
+
     private List<String> hubUrlsAsList() {
         List<String> result = new ArrayList<String>();
         if(this.hubUrls != null) {
@@ -103,6 +131,7 @@ public class ModelBuilder extends BaseBuilder {
         private final CommandDriver driver;
         private final ScheduledTasksApi tasksApi;
         private final List<String> hubUrls;
+        private final ModelMetrics metrics = new ModelMetrics();
 
         public ModelWorker(Path workingDirectory, SpoonBuild build, Launcher launcher, BuildListener listener, List<String> hubUrls) {
             this.workingDir = workingDirectory;
@@ -126,10 +155,59 @@ public class ModelBuilder extends BaseBuilder {
         }
 
         public void buildModel() throws IOException, InterruptedException {
-            profile();
-            model();
+            try {
+                buildAndPushModel();
+            } finally {
+                build.addAction(new ModelMetricsAction(metrics));
+            }
+        }
+
+        private void buildAndPushModel() throws IOException, InterruptedException {
+            ModelCache modelCache = ModelCache.forProject(build.getParent());
+            Optional<String> imageId = getImageId();
+
+            boolean isModelRestored = imageId.isPresent() && restoreModel(modelCache, imageId.get());
+            metrics.setCached(isModelRestored);
+            if (!isModelRestored) {
+                long profileStart = System.currentTimeMillis();
+                try {
+                    profile();
+                } finally {
+                    tasksApi.close();
+                    metrics.setProfileDuration(System.currentTimeMillis() - profileStart);
+                }
+
+                long modelStart = System.currentTimeMillis();
+                try {
+                    model();
+                } finally {
+                    metrics.setModelDuration(System.currentTimeMillis() - modelStart);
+                }
+
+                if (imageId.isPresent()) {
+                    storeModel(modelCache, imageId.get());
+                }
+            }
+            recordModelSize();
+
             if (shouldPush()) {
-                push();
+                Optional<String> pushKey = getPushKey(imageId);
+                if (pushKey.isPresent() && isPushed(modelCache, pushKey.get())) {
+                    log(listener, "Model did not change since the last push, skipping push");
+                    return;
+                }
+
+                long pushStart = System.currentTimeMillis();
+                try {
+                    push();
+                    metrics.setPushed(true);
+                } finally {
+                    metrics.setPushDuration(System.currentTimeMillis() - pushStart);
+                }
+
+                if (pushKey.isPresent()) {
+                    markPushed(modelCache, pushKey.get());
+                }
             } else {
                 Result currentResult = build.getResult();
                 if (currentResult == null || currentResult.isBetterThan(Result.UNSTABLE)) {
@@ -138,7 +216,82 @@ public class ModelBuilder extends BaseBuilder {
             }
         }
 
-        private void push() {
+        /**
+         * Returns the content ID of the image, which is the content key of its build inputs including the resolved
+         * versions of its base images. The same image built again has a new name and build time, but the same
+         * content key, while a new version of a base image changes the key. Absent is returned if the builder
+         * of the image did not compute the key, for example because the version of a base image was not resolved.
+         */
+        private Optional<String> getImageId() {
+            Optional<String> contentKey = build.getOutputContentKey();
+            if (!contentKey.isPresent()) {
+                log(listener, "Build inputs or base images of the image are unknown, the model will not be cached");
+            }
+            return contentKey;
+        }
+
+        private boolean restoreModel(ModelCache modelCache, String imageId) {
+            try {
+                if (modelCache.restore(imageId, transcriptDir, modelDir)) {
+                    log(listener, String.format("Image content did not change, reusing the model of image %s", imageId));
+                    return true;
+                }
+            } catch (IOException ex) {
+                log(listener, "Failed to restore the model from cache", ex);
+                quietDeleteDirectoryTreeIfExists(transcriptDir);
+                quietDeleteDirectoryTreeIfExists(modelDir);
+            }
+            return false;
+        }
+
+        private void storeModel(ModelCache modelCache, String imageId) {
+            try {
+                modelCache.store(imageId, transcriptDir, modelDir);
+            } catch (IOException ex) {
+                log(listener, "Failed to save the model in cache", ex);
+            }
+        }
+
+        /**
+         * The push key identifies the image, the model and the destination of the push.
+         */
+        private Optional<String> getPushKey(Optional<String> imageId) {
+            if (!imageId.isPresent()) {
+                return Optional.absent();
+            }
+
+            try {
+                Optional<Image> remoteImage = build.getRemoteImage();
+                return Optional.of(String.format("image=%s, model=%s, remoteImage=%s, hub=%s, hubs=%s",
+                        imageId.get(),
+                        ModelCache.hashDirectory(modelDir),
+                        remoteImage.isPresent() ? remoteImage.get().printIdentifier() : "",
+                        build.getHubUrl().or(""),
+                        Joiner.on(',').join(hubUrls)));
+            } catch (IOException ex) {
+                log(listener, "Failed to compute hash of the model", ex);
+                return Optional.absent();
+            }
+        }
+
+        private boolean isPushed(ModelCache modelCache, String pushKey) {
+            try {
+                return modelCache.isPushed(pushKey);
+            } catch (IOException ex) {
+                log(listener, "Failed to check the last pushed model", ex);
+                return false;
+            }
+        }
+
+        private void markPushed(ModelCache modelCache, String pushKey) {
+            try {
+                modelCache.markPushed(pushKey);
+            } catch (IOException ex) {
+                log(listener, "Failed to save the last pushed model", ex);
+            }
+        }
+
+        private void push() throws InterruptedException {
             PushModelCommand.CommandBuilder builder = PushModelCommand.builder()
                     .localImage(image.printIdentifier())
                     .modelDirectory(modelDir.toString());
@@ -149,18 +302,25 @@ public class ModelBuilder extends BaseBuilder {
             }
 
             if(hubUrls.isEmpty()) {
-                PushModelCommand pushModelCommand = builder.build();
-                pushModelCommand.run(driver);
+                pushModel(builder.build());
             } else {
                 for(String hubUrl : hubUrlsAsList()) {
                     switchHub(driver, hubUrl, build);
 
-                    PushModelCommand pushModelCommand = builder.build();
-                    pushModelCommand.run(driver);
+                    pushModel(builder.build());
                 }
             }
         }
 
+        private void pushModel(PushModelCommand pushModelCommand) throws InterruptedException {
+            HubPushThrottle.Permit permit = HubPushThrottle.getInstance().acquire(build.getHubUrl().orNull(), build, listener);
+            try {
+                pushModelCommand.run(driver);
+            } finally {
+                permit.release();
+            }
+        }
+
         private void model() {
             ModelCommand modelCommand = ModelCommand.builder().image(image.printIdentifier())
                     .transcriptDirectory(transcriptDir.toString())
@@ -169,6 +329,18 @@ public class ModelBuilder extends BaseBuilder {
             modelCommand.run(driver);
         }
 
+        private void recordModelSize() {
+            metrics.setBufferSize(getBufferSize());
+
+            List<File> transcriptFiles = getTranscriptFiles(transcriptDir);
+            long transcriptSize = 0L;
+            for (File transcriptFile : transcriptFiles) {
+                transcriptSize += transcriptFile.length();
+            }
+            metrics.setTranscriptCount(transcriptFiles.size());
+            metrics.setTranscriptSize(transcriptSize);
+        }
+
         private long getBufferSize() {
             File prefetchFile = Paths.get(modelDir.toString(), "p.xs").toFile();
             if (prefetchFile.exists()) {
@@ -198,59 +370,158 @@ public class ModelBuilder extends BaseBuilder {
 
         /**
          * Profiling is implemented using scheduled tasks, because Jenkins build agent is running as a service without access to user interface.
+         * Each session runs in its own scheduled task and saves transcripts in its own directory, the tasks run at the same time
+         * and their transcripts are merged before the model is built.
          */
         private void profile() throws IOException, InterruptedException {
-            String taskName = getProjectId(build);
-            if (tasksApi.isDefined(taskName)) {
-                tasksApi.delete(taskName);
+            List<ProfileSession> sessions = new ArrayList<ProfileSession>();
+            int sessionCount = getProfileSessions();
+            for (int index = 0; index < sessionCount; ++index) {
+                sessions.add(new ProfileSession(index, sessionCount));
             }
 
-            ArgumentListBuilder profileCommand = new ArgumentListBuilder(BaseCommand.SPOON_CLIENT)
-                    .add("profile")
-                    .add("--mode=quiet")
-                    .add("--isolate=full")
-                    .add(image.printIdentifier())
-                    .add(transcriptDir);
-
-            log(listener, workingDir, profileCommand);
-            tasksApi.create(taskName, profileCommand.toString());
             try {
-                final int MaxAttempts = 60;
-                final int SleepTime = 5000;
-
-                tasksApi.run(taskName);
+                for (ProfileSession session : sessions) {
+                    session.start();
+                }
 
-                boolean isProfileRunning = true;
-                for (int attempt = 1; attempt <= MaxAttempts && isProfileRunning; ++attempt) {
-                    Thread.sleep(SleepTime);
-                    isProfileRunning = tasksApi.isRunning(taskName);
+                final long deadline = System.currentTimeMillis() + PROFILE_TIMEOUT_MS;
+                for (ProfileSession session : sessions) {
+                    session.await(deadline);
                 }
 
-                checkState(!isProfileRunning, "Profiling is running too long");
+                for (ProfileSession session : sessions) {
+                    session.mergeTranscripts();
+                }
                 checkState(isTranscriptSaved(), "Transcript files not found in directory %s", transcriptDir);
             } finally {
-                try {
-                    tasksApi.delete(taskName);
-                } catch (Exception ex) {
-                    String errMsg = String.format("Failed to delete scheduled task %s: %s", taskName, ex.getMessage());
-                    log(listener, errMsg);
+                for (ProfileSession session : sessions) {
+                    session.close();
+                }
+            }
+        }
+
+        /**
+         * Waits for the completion marker written by the scheduled task. The state of the scheduled task is checked
+         * occasionally in case the task was terminated before it wrote the marker.
+         */
+        private boolean waitForProfile(String taskName, CompletionMarker completionMarker, long deadline) throws IOException, InterruptedException {
+            while (true) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return completionMarker.isPresent();
+                }
+
+                if (completionMarker.await(Math.min(TASK_STATE_CHECK_INTERVAL_MS, remaining), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+
+                if (!tasksApi.isRunning(taskName)) {
+                    return true;
                 }
             }
         }
 
         private boolean isTranscriptSaved() {
-            String files[] = transcriptDir.toFile().list();
+            return !getTranscriptFiles(transcriptDir).isEmpty();
+        }
+
+        private List<File> getTranscriptFiles(Path directory) {
+            List<File> transcriptFiles = new ArrayList<File>();
+            File files[] = directory.toFile().listFiles();
             if (files == null) {
-                return false;
+                return transcriptFiles;
             }
 
-            for (String filename : files) {
-                String extension = com.google.common.io.Files.getFileExtension(filename);
+            for (File file : files) {
+                String extension = com.google.common.io.Files.getFileExtension(file.getName());
                 if ("xt".equals(extension)) {
-                    return true;
+                    transcriptFiles.add(file);
+                }
+            }
+            return transcriptFiles;
+        }
+
+        private class ProfileSession {
+            private final String taskName;
+            private final Path sessionTranscriptDir;
+            private final String transcriptPrefix;
+            private final Path markerPath;
+
+            private CompletionMarker completionMarker;
+
+            ProfileSession(int index, int sessionCount) {
+                // a single session keeps the task name and directories used before parallel sessions were introduced
+                boolean isSingleSession = sessionCount == 1;
+                String projectId = getProjectId(build);
+                this.taskName = isSingleSession ? projectId : String.format("%s-%d", projectId, index);
+                this.sessionTranscriptDir = isSingleSession ? transcriptDir : Paths.get(workingDir.toString(), String.format("%s-%d", TRANSCRIPT_DIR, index)).toAbsolutePath();
+                this.transcriptPrefix = String.format("%d-", index);
+                this.markerPath = Paths.get(workingDir.toString(), isSingleSession ? PROFILE_MARKER_FILE : String.format("%d-%s", index, PROFILE_MARKER_FILE));
+            }
+
+            void start() throws IOException, InterruptedException {
+                if (tasksApi.isDefined(taskName)) {
+                    tasksApi.delete(taskName);
+                }
+
+                ArgumentListBuilder profileCommand = new ArgumentListBuilder(BaseCommand.SPOON_CLIENT)
+                        .add("profile")
+                        .add("--mode=quiet")
+                        .add("--isolate=full")
+                        .add(image.printIdentifier())
+                        .add(sessionTranscriptDir);
+
+                log(listener, workingDir, profileCommand);
+                completionMarker = CompletionMarker.create(markerPath);
+                tasksApi.create(taskName, completionMarker.appendTo(profileCommand.toString()));
+                tasksApi.run(taskName);
+            }
+
+            void await(long deadline) throws IOException, InterruptedException {
+                boolean isProfileCompleted = waitForProfile(taskName, completionMarker, deadline);
+                checkState(isProfileCompleted, "Profiling is running too long");
+
+                Optional<Integer> exitCode = completionMarker.getExitCode();
+                if (!exitCode.isPresent()) {
+                    log(listener, String.format("Profiling process %s did not report its exit code", taskName));
+                } else if (exitCode.get() != 0) {
+                    log(listener, String.format("Profiling process %s returned error code %d", taskName, exitCode.get()));
+                }
+            }
+
+            void mergeTranscripts() throws IOException {
+                if (sessionTranscriptDir.equals(transcriptDir)) {
+                    return;
+                }
+
+                List<File> transcriptFiles = getTranscriptFiles(sessionTranscriptDir);
+                if (transcriptFiles.isEmpty()) {
+                    log(listener, String.format("Profiling process %s did not save any transcript", taskName));
+                }
+
+                Files.createDirectories(transcriptDir);
+                for (File transcriptFile : transcriptFiles) {
+                    Path mergedPath = Paths.get(transcriptDir.toString(), transcriptPrefix + transcriptFile.getName());
+                    Files.move(transcriptFile.toPath(), mergedPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            void close() throws IOException {
+                if (completionMarker == null) {
+                    return;
+                }
+
+                final boolean swallowException = true;
+                Closeables.close(completionMarker, swallowException);
+
+                try {
+                    tasksApi.delete(taskName);
+                } catch (Exception ex) {
+                    String errMsg = String.format("Failed to delete scheduled task %s: %s", taskName, ex.getMessage());
+                    log(listener, errMsg);
                 }
             }
-            return false;
         }
     }
 
@@ -312,6 +583,14 @@ public class ModelBuilder extends BaseBuilder {
             return Validators.validate(NULL_OR_POSITIVE_FLOATING_POINT_NUMBER, minBufferSize);
         }
 
+        public FormValidation doCheckProfileSessions(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        public int defaultProfileSessions() {
+            return DEFAULT_PROFILE_SESSIONS;
+        }
+
         public FormValidation doCheckHubUrls(@QueryParameter String value) {
             String hubUrls = Util.fixEmptyAndTrim(value);
             return Validators.validate(HUB_URLS_VALIDATOR, hubUrls);
@@ -0,0 +1,69 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.ModelMetrics;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Metrics of the streaming model built by the build, also available through the JSON API of the action.
+ */
+@ExportedBean
+public class ModelMetricsAction implements RunAction2 {
+
+    private final ModelMetrics metrics;
+
+    @Getter
+    private transient Run<?, ?> run;
+
+    public ModelMetricsAction(ModelMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Exported
+    public ModelMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Model Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "model-metrics";
+    }
+
+    public String formatSize(long size) {
+        return Sizes.formatSize(size);
+    }
+
+    public String formatDuration(long duration) {
+        return Util.getTimeSpanString(duration);
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+}
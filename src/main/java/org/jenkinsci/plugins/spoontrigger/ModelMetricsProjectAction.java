@@ -0,0 +1,173 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Run;
+import hudson.util.ChartUtil;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.ModelMetrics;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.CategoryDataset;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trend of the model metrics of recent builds, shown on the project page and available through the JSON API.
+ */
+@ExportedBean
+public class ModelMetricsProjectAction implements Action {
+
+    private static final int MAX_BUILDS = 50;
+    private static final double MB = 1024.0 * 1024.0;
+    private static final double SECOND_MS = 1000.0;
+
+    @Getter
+    private final AbstractProject<?, ?> project;
+
+    public ModelMetricsProjectAction(AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    /**
+     * Returns metrics of recent builds, the oldest build first. Only the last {@link #MAX_BUILDS} builds are scanned,
+     * because older builds would be loaded from disk on every view of the project page.
+     */
+    @Exported
+    public List<BuildMetrics> getBuilds() {
+        List<BuildMetrics> builds = new ArrayList<BuildMetrics>();
+        for (Run<?, ?> run : getRecentBuilds()) {
+            ModelMetricsAction action = run.getAction(ModelMetricsAction.class);
+            if (action != null) {
+                builds.add(new BuildMetrics(run, action.getMetrics()));
+            }
+        }
+        Collections.reverse(builds);
+        return builds;
+    }
+
+    public boolean hasBuilds() {
+        for (Run<?, ?> run : getRecentBuilds()) {
+            if (run.getAction(ModelMetricsAction.class) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Iterable<? extends Run<?, ?>> getRecentBuilds() {
+        return project.getBuilds().limit(MAX_BUILDS);
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public void doSizeTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSet = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
+        for (BuildMetrics build : getBuilds()) {
+            ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(build.getRun());
+            dataSet.add(build.getMetrics().getBufferSize() / MB, "Prefetch buffer", label);
+            dataSet.add(build.getMetrics().getTranscriptSize() / MB, "Transcripts", label);
+        }
+        renderTrend(req, rsp, dataSet.build(), "MB");
+    }
+
+    public void doDurationTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSet = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
+        for (BuildMetrics build : getBuilds()) {
+            ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(build.getRun());
+            dataSet.add(build.getMetrics().getProfileDuration() / SECOND_MS, "Profile", label);
+            dataSet.add(build.getMetrics().getModelDuration() / SECOND_MS, "Model", label);
+            dataSet.add(build.getMetrics().getPushDuration() / SECOND_MS, "Push", label);
+        }
+        renderTrend(req, rsp, dataSet.build(), "seconds");
+    }
+
+    private void renderTrend(StaplerRequest req, StaplerResponse rsp, final CategoryDataset dataSet, final String rangeAxisLabel) throws IOException {
+        Run<?, ?> lastBuild = project.getLastBuild();
+        long timestamp = lastBuild != null ? lastBuild.getTimeInMillis() : 0L;
+        new Graph(timestamp, 500, 200) {
+            @Override
+            protected JFreeChart createGraph() {
+                return createChart(dataSet, rangeAxisLabel);
+            }
+        }.doPng(req, rsp);
+    }
+
+    private static JFreeChart createChart(CategoryDataset dataSet, String rangeAxisLabel) {
+        final boolean legend = true;
+        final boolean tooltips = true;
+        final boolean urls = false;
+        JFreeChart chart = ChartFactory.createLineChart(null, null, rangeAxisLabel, dataSet,
+                PlotOrientation.VERTICAL, legend, tooltips, urls);
+        chart.setBackgroundPaint(Color.white);
+
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.white);
+        plot.setRangeGridlinePaint(Color.lightGray);
+
+        CategoryAxis domainAxis = plot.getDomainAxis();
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        return chart;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Model Metrics Trend";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "model-metrics";
+    }
+
+    @ExportedBean(defaultVisibility = 2)
+    public static final class BuildMetrics {
+        @Getter
+        private final Run<?, ?> run;
+        private final ModelMetrics metrics;
+
+        BuildMetrics(Run<?, ?> run, ModelMetrics metrics) {
+            this.run = run;
+            this.metrics = metrics;
+        }
+
+        @Exported
+        public int getNumber() {
+            return run.getNumber();
+        }
+
+        @Exported
+        public long getTimestamp() {
+            return run.getTimeInMillis();
+        }
+
+        @Exported
+        public ModelMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
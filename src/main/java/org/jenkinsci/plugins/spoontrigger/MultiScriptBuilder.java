@@ -0,0 +1,328 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import com.google.common.base.Optional;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.*;
+import hudson.model.*;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.BuildCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.scripts.DependencyGraph;
+import org.jenkinsci.plugins.spoontrigger.scripts.ScriptEntry;
+import org.jenkinsci.plugins.spoontrigger.utils.Credentials;
+import org.jenkinsci.plugins.spoontrigger.utils.FileResolver;
+import org.jenkinsci.plugins.spoontrigger.utils.TaskListeners;
+import org.jenkinsci.plugins.spoontrigger.validation.*;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.jenkinsci.plugins.spoontrigger.Messages.*;
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Builds several scripts which depend on each other. Independent scripts are built in parallel.
+ */
+public class MultiScriptBuilder extends LoginBuilder {
+
+    private static final int DEFAULT_MAX_CONCURRENT_BUILDS = 2;
+
+    @Nullable
+    @Getter
+    private final String scripts;
+    @Nullable
+    @Getter
+    private final String outputScript;
+    @Getter
+    private final int maxConcurrentBuilds;
+    @Getter
+    private final boolean diagnostic;
+    @Getter
+    private final boolean noBase;
+    @Getter
+    private final boolean overwrite;
+
+    @DataBoundConstructor
+    public MultiScriptBuilder(String scripts, @Nullable String outputScript, String credentialsId, String hubUrl, int maxConcurrentBuilds,
+                              boolean noBase, boolean overwrite, boolean diagnostic) {
+        super(credentialsId, hubUrl);
+
+        this.scripts = Util.fixEmptyAndTrim(scripts);
+        this.outputScript = Util.fixEmptyAndTrim(outputScript);
+        this.maxConcurrentBuilds = maxConcurrentBuilds > 0 ? maxConcurrentBuilds : DEFAULT_MAX_CONCURRENT_BUILDS;
+        this.noBase = noBase;
+        this.overwrite = overwrite;
+        this.diagnostic = diagnostic;
+    }
+
+    @Override
+    public void prebuild(SpoonBuild build, BuildListener listener) {
+        super.prebuild(build, listener);
+
+        checkState(build.getEnv().isPresent(), "Env is not defined");
+        List<ScriptEntry> entries = getScriptEntries();
+        checkState(!entries.isEmpty(), REQUIRE_NON_EMPTY_STRING_S, "scripts");
+        if (this.outputScript != null) {
+            checkState(findEntry(entries, this.outputScript).isPresent(), "Output script %s is not built by this step", this.outputScript);
+        }
+
+        build.setAllowOverwrite(this.overwrite);
+    }
+
+    @Override
+    public boolean perform(SpoonBuild build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        if (!super.perform(build, launcher, listener)) {
+            return false;
+        }
+
+        List<ScriptEntry> entries = getScriptEntries();
+        Map<ScriptEntry, FilePath> scriptFiles = new LinkedHashMap<ScriptEntry, FilePath>();
+        for (ScriptEntry entry : entries) {
+            scriptFiles.put(entry, resolveScriptFilePath(entry, build, listener));
+        }
+
+        DependencyGraph<ScriptEntry> graph = createDependencyGraph(build, scriptFiles);
+        List<ScriptEntry> buildOrder = graph.topologicalOrder();
+        for (ScriptEntry entry : buildOrder) {
+            log(listener, String.format("Script %s depends on %s", entry.getScriptPath(), graph.getDependencies(entry)));
+        }
+        ScriptEntry outputEntry = getOutputEntry(graph);
+
+        Map<ScriptEntry, Image> outputImages = new ConcurrentHashMap<ScriptEntry, Image>();
+        Map<ScriptEntry, DependencyGraph.Status> statuses;
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(this.maxConcurrentBuilds, entries.size()),
+                new ThreadFactoryBuilder().setNameFormat("turbo-build-%d").setDaemon(true).build());
+        try {
+            statuses = graph.execute(executor, new BuildStep(build, launcher, listener, scriptFiles, outputImages));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        OutputImagesAction action = new OutputImagesAction();
+        boolean success = true;
+        for (Map.Entry<ScriptEntry, DependencyGraph.Status> status : statuses.entrySet()) {
+            Image outputImage = outputImages.get(status.getKey());
+            if (outputImage != null) {
+                build.markImageUsed(outputImage.printIdentifier());
+            }
+            action.add(status.getKey().getScriptPath(), status.getValue().name(), outputImage != null ? outputImage.printIdentifier() : "");
+            success &= (status.getValue() == DependencyGraph.Status.SUCCESS);
+        }
+        build.addAction(action);
+
+        if (!success) {
+            log(listener, "Some of the scripts failed to build");
+            return false;
+        }
+
+        // publishers work with a single image, the other images are available in the build action
+        build.setOutputImage(outputImages.get(outputEntry));
+        return true;
+    }
+
+    private ScriptEntry getOutputEntry(DependencyGraph<ScriptEntry> graph) {
+        if (this.outputScript != null) {
+            return findEntry(graph.getNodes(), this.outputScript).get();
+        }
+
+        Set<ScriptEntry> leaves = graph.getLeaves();
+        checkState(leaves.size() == 1,
+                "No other script depends on scripts %s, choose the output script of the build", leaves);
+        return leaves.iterator().next();
+    }
+
+    private static Optional<ScriptEntry> findEntry(Iterable<ScriptEntry> entries, String scriptPath) {
+        for (ScriptEntry entry : entries) {
+            if (entry.getScriptPath().equals(scriptPath)) {
+                return Optional.of(entry);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private List<ScriptEntry> getScriptEntries() {
+        try {
+            return ScriptEntry.parseAll(this.scripts);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    private DependencyGraph<ScriptEntry> createDependencyGraph(SpoonBuild build, Map<ScriptEntry, FilePath> scriptFiles) throws IOException, InterruptedException {
+        DependencyGraph<ScriptEntry> graph = new DependencyGraph<ScriptEntry>();
+        Map<String, ScriptEntry> entriesByImage = new HashMap<String, ScriptEntry>();
+        Map<String, ScriptEntry> entriesByPath = new HashMap<String, ScriptEntry>();
+        for (ScriptEntry entry : scriptFiles.keySet()) {
+            graph.addNode(entry);
+            entriesByPath.put(entry.getScriptPath(), entry);
+            if (entry.getImageName() != null) {
+                entriesByImage.put(ScriptEntry.getRepoIdentifier(Image.parse(entry.getImageName())), entry);
+            }
+        }
+
+        for (Map.Entry<ScriptEntry, FilePath> scriptFile : scriptFiles.entrySet()) {
+            ScriptEntry entry = scriptFile.getKey();
+            for (String dependencyPath : entry.getDependsOn()) {
+                ScriptEntry dependency = entriesByPath.get(dependencyPath);
+                checkState(dependency != null, "Script %s depends on %s which is not built by this step", entry.getScriptPath(), dependencyPath);
+                graph.addDependency(entry, dependency);
+            }
+
+            for (String image : ScriptEntry.findReferencedImages(scriptFile.getValue().readToString())) {
+                build.markImageUsed(image);
+                ScriptEntry dependency = entriesByImage.get(image);
+                if (dependency != null && !dependency.equals(entry)) {
+                    graph.addDependency(entry, dependency);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private BuildCommand createBuildCommand(ScriptEntry entry, FilePath scriptPath) {
+        BuildCommand.CommandBuilder cmdBuilder = BuildCommand.builder().script(scriptPath);
+        if (entry.getImageName() != null) {
+            cmdBuilder.image(entry.getImageName());
+        }
+
+        cmdBuilder.diagnostic(this.diagnostic);
+        cmdBuilder.overwrite(this.overwrite);
+        cmdBuilder.noBase(this.noBase);
+
+        return cmdBuilder.build();
+    }
+
+    private FilePath resolveScriptFilePath(ScriptEntry entry, SpoonBuild build, BuildListener listener) throws IllegalStateException {
+        Optional<FilePath> scriptFile = FileResolver.create()
+                .env(build.getEnv().get()).build(build).listener(listener)
+                .probingStrategy(FileResolver.Probe.WORKING_DIR, FileResolver.Probe.MODULE, FileResolver.Probe.WORKSPACE)
+                .resolve(entry.getScriptPath());
+
+        checkState(scriptFile.isPresent(), "Failed to find the script file (%s) in build workspace and root module", entry.getScriptPath());
+        return scriptFile.get();
+    }
+
+    private final class BuildStep implements DependencyGraph.Step<ScriptEntry> {
+        private final SpoonBuild build;
+        private final Launcher launcher;
+        private final BuildListener listener;
+        private final Map<ScriptEntry, FilePath> scriptFiles;
+        private final Map<ScriptEntry, Image> outputImages;
+
+        BuildStep(SpoonBuild build, Launcher launcher, BuildListener listener,
+                  Map<ScriptEntry, FilePath> scriptFiles, Map<ScriptEntry, Image> outputImages) {
+            this.build = build;
+            this.launcher = launcher;
+            this.listener = listener;
+            this.scriptFiles = scriptFiles;
+            this.outputImages = outputImages;
+        }
+
+        @Override
+        public boolean run(ScriptEntry entry) {
+            FilePath scriptPath = scriptFiles.get(entry);
+            // scripts are built in parallel, so each line of the build log is tagged with the script
+            BuildListener scriptListener = TaskListeners.prefixed(listener, String.format("[%s] ", entry.getScriptPath()), build.getCharset());
+            try {
+                CommandDriver client = CommandDriver.builder(build)
+                        .pwd(scriptPath.getParent())
+                        .launcher(launcher)
+                        .listener(scriptListener)
+                        .ignoreErrorCode(true)
+                        .build();
+
+                log(listener, String.format("Building script %s", entry.getScriptPath()));
+                BuildCommand command = createBuildCommand(entry, scriptPath);
+                command.run(client);
+
+                Optional<Image> outputImage = command.getOutputImage();
+                if (!outputImage.isPresent()) {
+                    log(listener, String.format("Failed to find the output image of script %s in the build process output", entry.getScriptPath()));
+                    return false;
+                }
+
+                outputImages.put(entry, outputImage.get());
+                log(listener, String.format("Script %s built image %s", entry.getScriptPath(), outputImage.get().printIdentifier()));
+                return true;
+            } finally {
+                scriptListener.getLogger().close();
+            }
+        }
+
+        @Override
+        public void onError(ScriptEntry entry, Exception ex) {
+            log(listener, String.format("Failed to build script %s", entry.getScriptPath()), ex);
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        private static final Validator<String> NULL_OR_SINGLE_WORD_VALIDATOR = Validators.chain(
+                StringValidators.isNotNull(IGNORE_PARAMETER, Level.OK),
+                StringValidators.isSingleWord(String.format(REQUIRE_SINGLE_WORD_S, "Parameter")));
+
+        public FormValidation doCheckHubUrl(@QueryParameter String value) {
+            String hubUrl = Util.fixEmptyAndTrim(value);
+            return Validators.validate(NULL_OR_SINGLE_WORD_VALIDATOR, hubUrl);
+        }
+
+        public FormValidation doCheckScripts(@QueryParameter String value) {
+            if (Util.fixEmptyAndTrim(value) == null) {
+                return FormValidation.error(REQUIRED_PARAMETER);
+            }
+
+            try {
+                ScriptEntry.parseAll(value);
+                return FormValidation.ok();
+            } catch (IllegalArgumentException ex) {
+                return FormValidation.error(ex.getMessage());
+            }
+        }
+
+        public FormValidation doCheckMaxConcurrentBuilds(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        public FormValidation doCheckCredentialsId(@AncestorInPath Item project, @QueryParameter String value) {
+            return Credentials.checkCredetntials(project, value);
+        }
+
+        public ListBoxModel doFillCredentialsIdItems(@AncestorInPath Item project) {
+            return Credentials.fillCredentialsIdItems(project);
+        }
+
+        public int defaultMaxConcurrentBuilds() {
+            return DEFAULT_MAX_CONCURRENT_BUILDS;
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return TypeToken.of(SpoonProject.class).isAssignableFrom(aClass);
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Execute multiple TurboScripts";
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Images built by the multi-script builder, one entry per script in the order the scripts were built.
+ */
+public class OutputImagesAction implements RunAction2 {
+
+    private final ArrayList<Entry> entries = new ArrayList<Entry>();
+
+    @Getter
+    private transient Run<?, ?> run;
+
+    public synchronized void add(String scriptPath, String status, String image) {
+        entries.add(new Entry(scriptPath, status, image));
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(entries));
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "package.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Output Images";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "output-images";
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    public static final class Entry {
+        @Getter
+        private final String scriptPath;
+        @Getter
+        private final String status;
+        @Getter
+        private final String image;
+
+        Entry(String scriptPath, String status, String image) {
+            this.scriptPath = scriptPath;
+            this.status = status;
+            this.image = image;
+        }
+    }
+}
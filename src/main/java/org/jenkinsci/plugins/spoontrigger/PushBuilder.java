@@ -95,12 +95,12 @@ public class PushBuilder extends BaseBuilder {
             for (String hubUrl : hubUrlsAsList()) {
                 switchHub(client, hubUrl, build);
 
-                Pusher pusher = new Pusher(client);
+                Pusher pusher = new Pusher(client, listener);
                 pusher.push(build);
             }
         } else {
             // push without changing current hub
-            Pusher pusher = new Pusher(client);
+            Pusher pusher = new Pusher(client, listener);
             pusher.push(build);
         }
 
@@ -0,0 +1,158 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.PushMetrics;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytes transferred, throughput and stalls of the pushes made by the build, summarized per hub.
+ */
+@ExportedBean
+public class PushMetricsAction implements RunAction2 {
+
+    private final ArrayList<PushMetrics> pushes = new ArrayList<PushMetrics>();
+
+    @Getter
+    private transient Run<?, ?> run;
+
+    public static PushMetricsAction of(Run<?, ?> run) {
+        synchronized (run) {
+            PushMetricsAction action = run.getAction(PushMetricsAction.class);
+            if (action == null) {
+                action = new PushMetricsAction();
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    public synchronized void add(PushMetrics metrics) {
+        pushes.add(metrics);
+    }
+
+    @Exported
+    public synchronized List<PushMetrics> getPushes() {
+        return new ArrayList<PushMetrics>(pushes);
+    }
+
+    @Exported
+    public synchronized Collection<HubSummary> getHubs() {
+        Map<String, HubSummary> hubs = new LinkedHashMap<String, HubSummary>();
+        for (PushMetrics push : pushes) {
+            HubSummary hub = hubs.get(push.getHub());
+            if (hub == null) {
+                hub = new HubSummary(push.getHub());
+                hubs.put(push.getHub(), hub);
+            }
+            hub.add(push);
+        }
+        return new ArrayList<HubSummary>(hubs.values());
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public String formatSize(long size) {
+        return Sizes.formatSize(size);
+    }
+
+    public String formatDuration(long duration) {
+        return Util.getTimeSpanString(duration);
+    }
+
+    @Override
+    public String getIconFileName() {
+        // pushes are not made by every build, the link is hidden until the first push is recorded
+        synchronized (this) {
+            return pushes.isEmpty() ? null : "graph.png";
+        }
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Push Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "push-metrics";
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @ExportedBean(defaultVisibility = 2)
+    public static final class HubSummary {
+        private final String hub;
+        private int pushCount;
+        private long transferredBytes;
+        private long transferDuration;
+        private int stallCount;
+        private long stallDuration;
+
+        HubSummary(String hub) {
+            this.hub = hub;
+        }
+
+        void add(PushMetrics push) {
+            ++pushCount;
+            transferredBytes += push.getTransferredBytes();
+            transferDuration += push.getTransferDuration() > 0 ? push.getTransferDuration() : push.getDuration();
+            stallCount += push.getStallCount();
+            stallDuration += push.getStallDuration();
+        }
+
+        @Exported
+        public String getHub() {
+            return hub;
+        }
+
+        @Exported
+        public int getPushCount() {
+            return pushCount;
+        }
+
+        @Exported
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+
+        @Exported
+        public int getStallCount() {
+            return stallCount;
+        }
+
+        @Exported
+        public long getStallDuration() {
+            return stallDuration;
+        }
+
+        /**
+         * Returns the throughput in bytes per second over all pushes to the hub.
+         */
+        @Exported
+        public long getThroughput() {
+            return transferDuration > 0 ? transferredBytes * 1000L / transferDuration : 0L;
+        }
+    }
+}
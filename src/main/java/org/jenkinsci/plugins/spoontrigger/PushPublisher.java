@@ -16,6 +16,7 @@ import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.PushCommand;
 import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
 import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.push.HubPushThrottle;
 import org.jenkinsci.plugins.spoontrigger.push.PushConfig;
 import org.jenkinsci.plugins.spoontrigger.push.RemoteImageNameStrategy;
 import org.jenkinsci.plugins.spoontrigger.push.TagGenerationStrategy;
@@ -70,11 +71,16 @@ public class PushPublisher extends SpoonBasePublisher {
     }
 
     @Override
-    public void publish(AbstractBuild<?, ?> abstractBuild, Launcher launcher, BuildListener listener) throws IllegalStateException {
+    public void publish(AbstractBuild<?, ?> abstractBuild, Launcher launcher, BuildListener listener) throws IllegalStateException, InterruptedException {
         SpoonBuild build = (SpoonBuild) abstractBuild;
         CommandDriver client = super.createClient(build, launcher, listener);
         PushCommand pushCmd = this.createPushCommand(build, listener);
-        pushCmd.run(client);
+        HubPushThrottle.Permit permit = HubPushThrottle.getInstance().acquire(build.getHubUrl().orNull(), build, listener);
+        try {
+            pushCmd.run(client);
+        } finally {
+            permit.release();
+        }
     }
 
     private PushCommand createPushCommand(SpoonBuild spoonBuild, BuildListener listener) {
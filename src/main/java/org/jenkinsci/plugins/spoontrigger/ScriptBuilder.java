@@ -2,6 +2,7 @@ package org.jenkinsci.plugins.spoontrigger;
 
 import com.google.common.base.Optional;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import hudson.*;
 import hudson.model.*;
 import hudson.tasks.BuildStepDescriptor;
@@ -10,13 +11,22 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import lombok.Data;
 import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.cache.BuildCacheIndex;
+import org.jenkinsci.plugins.spoontrigger.cache.ContentKey;
+import org.jenkinsci.plugins.spoontrigger.cache.RemoteBuildCache;
 import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.BuildCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.ImagesCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.PullCommand;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.VersionCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.HubApi;
 import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.scripts.ScriptEntry;
+import org.jenkinsci.plugins.spoontrigger.scripts.VmVersionEntry;
 import org.jenkinsci.plugins.spoontrigger.utils.AutoCompletion;
 import org.jenkinsci.plugins.spoontrigger.utils.Credentials;
 import org.jenkinsci.plugins.spoontrigger.utils.FileResolver;
+import org.jenkinsci.plugins.spoontrigger.utils.TaskListeners;
 import org.jenkinsci.plugins.spoontrigger.validation.*;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -25,6 +35,13 @@ import org.kohsuke.stapler.QueryParameter;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkState;
 import static org.jenkinsci.plugins.spoontrigger.Messages.*;
@@ -32,6 +49,9 @@ import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
 
 public class ScriptBuilder extends LoginBuilder {
 
+    // each variant runs its own turbo build, which is heavy on disk and CPU of the node
+    private static final int MAX_CONCURRENT_VARIANTS = 2;
+
     @Nullable
     @Getter
     private final String scriptFilePath;
@@ -43,6 +63,9 @@ public class ScriptBuilder extends LoginBuilder {
     private final String vmVersion;
     @Nullable
     @Getter
+    private final String vmVersions;
+    @Nullable
+    @Getter
     private final String containerWorkingDir;
 
     @Nullable
@@ -59,23 +82,32 @@ public class ScriptBuilder extends LoginBuilder {
     private final boolean noBase;
     @Getter
     private final boolean overwrite;
+    @Getter
+    private final boolean incremental;
+    @Nullable
+    @Getter
+    private final String remoteCacheNamespace;
 
     @DataBoundConstructor
     public ScriptBuilder(String scriptFilePath, String credentialsId, String hubUrl, String imageName,
                          String vmVersion, String containerWorkingDir, @Nullable MountSettings mountSettings,
                          @Nullable String routeFile,
-                         boolean noBase, boolean overwrite, boolean diagnostic) {
+                         boolean noBase, boolean overwrite, boolean diagnostic, boolean incremental,
+                         @Nullable String remoteCacheNamespace, @Nullable String vmVersions) {
         super(credentialsId, hubUrl);
 
         this.scriptFilePath = Util.fixEmptyAndTrim(scriptFilePath);
         this.imageName = Util.fixEmptyAndTrim(imageName);
         this.vmVersion = Util.fixEmptyAndTrim(vmVersion);
+        this.vmVersions = Util.fixEmptyAndTrim(vmVersions);
         this.containerWorkingDir = Util.fixEmptyAndTrim(containerWorkingDir);
         this.routeFile =  Util.fixEmptyAndTrim(routeFile);
         this.mountSettings = mountSettings;
         this.noBase = noBase;
         this.overwrite = overwrite;
         this.diagnostic = diagnostic;
+        this.incremental = incremental;
+        this.remoteCacheNamespace = Util.fixEmptyAndTrim(remoteCacheNamespace);
     }
 
     private static Optional<String> toString(FilePath filePath) {
@@ -118,33 +150,328 @@ public class ScriptBuilder extends LoginBuilder {
             return false;
         }
 
-        CommandDriver client = CommandDriver.scriptBuilder(build).launcher(launcher).listener(listener).ignoreErrorCode(true).build();
+        CommandDriver client = createClient(build, launcher, listener);
 
         checkSpoonPluginIsRunning(client);
 
-        BuildCommand command = createBuildCommand(build.getScript().get());
+        Optional<RemoteBuildCache> remoteCache = createRemoteCache(build, listener);
+
+        List<Variant> variants = getVariants();
+        if (variants.isEmpty()) {
+            VariantResult result = buildVariant(new Variant(this.vmVersion, this.imageName), build, client, createCacheClient(build, launcher, listener), remoteCache, listener);
+            if (result.outputImage.isPresent()) {
+                build.setOutputImage(result.outputImage.get(), result.contentKey);
+                return true;
+            }
+
+            if (shouldAbort(build, result.failure)) {
+                build.setResult(Result.ABORTED);
+            }
+            return false;
+        }
+
+        return buildVariants(variants, build, launcher, remoteCache, listener);
+    }
+
+    private static CommandDriver createClient(SpoonBuild build, Launcher launcher, BuildListener listener) {
+        return CommandDriver.scriptBuilder(build).launcher(launcher).listener(listener).ignoreErrorCode(true).build();
+    }
+
+    private static CommandDriver createCacheClient(SpoonBuild build, Launcher launcher, BuildListener listener) {
+        // commands which maintain the build cache must fail on errors, otherwise a missing image could be reused
+        return CommandDriver.scriptBuilder(build).launcher(launcher).listener(listener).build();
+    }
+
+    private boolean buildVariants(final List<Variant> variants, final SpoonBuild build, final Launcher launcher,
+                                  final Optional<RemoteBuildCache> remoteCache, final BuildListener listener) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_VARIANTS, variants.size()),
+                new ThreadFactoryBuilder().setNameFormat("turbo-build-variant-%d").setDaemon(true).build());
+        List<Future<VariantResult>> futures = new ArrayList<Future<VariantResult>>(variants.size());
+        try {
+            for (final Variant variant : variants) {
+                futures.add(executor.submit(new Callable<VariantResult>() {
+                    @Override
+                    public VariantResult call() throws Exception {
+                        log(listener, String.format("Building image for VM version %s", variant.getVmVersion()));
+                        // variants are built in parallel, so each line of the build log is tagged with the VM version
+                        BuildListener variantListener = TaskListeners.prefixed(listener, String.format("[VM %s] ", variant.getVmVersion()), build.getCharset());
+                        try {
+                            CommandDriver client = createClient(build, launcher, variantListener);
+                            CommandDriver cacheClient = createCacheClient(build, launcher, variantListener);
+                            return buildVariant(variant, build, client, cacheClient, remoteCache, variantListener);
+                        } finally {
+                            variantListener.getLogger().close();
+                        }
+                    }
+                }));
+            }
+
+            OutputImagesAction action = new OutputImagesAction();
+            VariantResult firstResult = null;
+            boolean success = true;
+            for (int position = 0; position < variants.size(); ++position) {
+                String label = String.format("%s (VM %s)", this.scriptFilePath, variants.get(position).getVmVersion());
+                VariantResult result = null;
+                try {
+                    result = futures.get(position).get();
+                } catch (ExecutionException ex) {
+                    log(listener, String.format("Failed to build image for VM version %s", variants.get(position).getVmVersion()), ex.getCause());
+                }
+
+                if (result != null && result.outputImage.isPresent()) {
+                    action.add(label, "SUCCESS", result.outputImage.get().printIdentifier());
+                    if (firstResult == null) {
+                        firstResult = result;
+                    }
+                } else {
+                    action.add(label, "FAILURE", "");
+                    success = false;
+                }
+            }
+            build.addAction(action);
+
+            if (!success) {
+                log(listener, "Failed to build images for some of the VM versions");
+                return false;
+            }
+
+            // publishers work with a single image, the variants are available in the build action
+            build.setOutputImage(firstResult.outputImage.get(), firstResult.contentKey);
+            return true;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private VariantResult buildVariant(Variant variant, SpoonBuild build, CommandDriver client, CommandDriver cacheClient,
+                                       Optional<RemoteBuildCache> remoteCache, BuildListener listener) throws InterruptedException {
+        Optional<String> contentKey = Optional.absent();
+        if (this.incremental || remoteCache.isPresent() || isModelBuilt(build)) {
+            contentKey = computeContentKey(build, variant, listener);
+        }
+
+        if (contentKey.isPresent()) {
+            Optional<Image> cachedImage = Optional.absent();
+            if (this.incremental) {
+                cachedImage = findCachedImage(contentKey.get(), build, client, cacheClient, listener);
+            }
+
+            if (!cachedImage.isPresent() && remoteCache.isPresent()) {
+                cachedImage = fetchCachedImage(contentKey.get(), remoteCache.get(), cacheClient, listener);
+                if (cachedImage.isPresent() && variant.getImageName() != null) {
+                    // turbo cannot tag a pulled image, so the cache name becomes the output image
+                    log(listener, String.format("Image %s from the remote build cache is the output image instead of %s",
+                            cachedImage.get().printIdentifier(), variant.getImageName()));
+                }
+                if (cachedImage.isPresent() && this.incremental) {
+                    recordImage(contentKey.get(), cachedImage.get(), build, listener);
+                }
+            }
+
+            if (cachedImage.isPresent()) {
+                build.markImageUsed(cachedImage.get().printIdentifier());
+                log(listener, String.format("Build inputs did not change, reusing image %s", cachedImage.get().printIdentifier()));
+                return new VariantResult(cachedImage, contentKey, BuildCommand.BuildFailure.None);
+            }
+        }
+
+        markReferencedImagesUsed(build, listener);
+        BuildCommand command = createBuildCommand(build.getScript().get(), variant);
         command.run(client);
 
         Optional<Image> outputImage = command.getOutputImage();
         if (outputImage.isPresent()) {
-            build.setOutputImage(outputImage.get());
-            return true;
+            build.markImageUsed(outputImage.get().printIdentifier());
+            if (contentKey.isPresent() && this.incremental) {
+                recordImage(contentKey.get(), outputImage.get(), build, listener);
+            }
+            if (contentKey.isPresent() && remoteCache.isPresent()) {
+                storeCachedImage(contentKey.get(), outputImage.get(), remoteCache.get(), cacheClient, listener);
+            }
+        } else {
+            log(listener, "Failed to find the output image in the build process output");
+        }
+        return new VariantResult(outputImage, contentKey, command.getError());
+    }
+
+    /**
+     * ModelBuilder identifies the output image by the content key, so it reuses the model of an unchanged image.
+     */
+    private static boolean isModelBuilt(SpoonBuild build) {
+        return build.getProject().getBuildersList().get(ModelBuilder.class) != null;
+    }
+
+    /**
+     * Base images and layers of the script are kept in the local image store, because the next build uses them again.
+     */
+    private void markReferencedImagesUsed(SpoonBuild build, BuildListener listener) throws InterruptedException {
+        try {
+            for (String image : ScriptEntry.findReferencedImages(build.getScript().get().readToString())) {
+                build.markImageUsed(image);
+            }
+        } catch (IOException ex) {
+            log(listener, "Failed to find images referenced by the script", ex);
+        }
+    }
+
+    private List<Variant> getVariants() {
+        List<VmVersionEntry> entries;
+        try {
+            entries = VmVersionEntry.parseAll(this.vmVersions);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
         }
 
-        log(listener, "Failed to find the output image in the build process output");
-        if (shouldAbort(build, command)) {
-            build.setResult(Result.ABORTED);
+        List<Variant> variants = new ArrayList<Variant>(entries.size());
+        for (VmVersionEntry entry : entries) {
+            variants.add(new Variant(entry.getVmVersion(), entry.getImageName(this.imageName)));
         }
-        return false;
+        return variants;
     }
 
-    private boolean shouldAbort(SpoonBuild build, BuildCommand command) {
+    private boolean shouldAbort(SpoonBuild build, BuildCommand.BuildFailure buildFailure) {
         Result currentResult = build.getResult();
-        BuildCommand.BuildFailure buildFailure = command.getError();
         return (currentResult == null || currentResult.isBetterThan(Result.ABORTED))
                 && BuildCommand.BuildFailure.ImageAlreadyExists.equals(buildFailure);
     }
 
+    private Optional<String> computeContentKey(SpoonBuild build, Variant variant, BuildListener listener) throws InterruptedException {
+        FilePath scriptPath = build.getScript().get();
+        ContentKey contentKey = ContentKey.of(scriptPath)
+                .file(this.routeFile)
+                .property("imageName", variant.getImageName())
+                .property("vmVersion", variant.getVmVersion())
+                .property("containerWorkingDir", this.containerWorkingDir)
+                .property("noBase", this.noBase)
+                .property("diagnostic", this.diagnostic);
+
+        if (this.mountSettings != null) {
+            contentKey.directory(this.mountSettings.getSourceFolder())
+                    .property("sourceContainer", this.mountSettings.getSourceContainer())
+                    .property("targetFolder", this.mountSettings.getTargetFolder());
+        }
+
+        try {
+            Optional<List<String>> referencedImages = resolveReferencedImages(scriptPath, build, listener);
+            if (!referencedImages.isPresent()) {
+                return Optional.absent();
+            }
+
+            for (String image : referencedImages.get()) {
+                contentKey.property("image", image);
+            }
+            return Optional.of(contentKey.compute());
+        } catch (IOException ex) {
+            log(listener, "Failed to hash build inputs, incremental build is skipped", ex);
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * Returns the images of the {@code from}, {@code layer} and {@code using} instructions of the script. An image
+     * without a tag is resolved to its latest version on the hub, so a new version of a base image changes the
+     * content key. Absent is returned if a version cannot be resolved.
+     */
+    private static Optional<List<String>> resolveReferencedImages(FilePath scriptPath, SpoonBuild build, BuildListener listener) throws IOException, InterruptedException {
+        List<String> images = new ArrayList<String>();
+        HubApi hubApi = null;
+        for (Image image : ScriptEntry.findReferencedImageNames(scriptPath.readToString())) {
+            if (image.getTag() != null) {
+                images.add(image.printIdentifier());
+                continue;
+            }
+
+            Image latestImage = image;
+            if (image.getNamespace() != null) {
+                if (hubApi == null) {
+                    hubApi = HubApi.create(build, listener);
+                }
+                try {
+                    latestImage = hubApi.getLatestVersion(image);
+                } catch (Exception ex) {
+                    // the failure is logged by the hub API
+                }
+            }
+
+            if (latestImage.getTag() == null) {
+                log(listener, String.format("Failed to resolve the latest version of image %s used by the script, the build cache is skipped", image.printIdentifier()));
+                return Optional.absent();
+            }
+            images.add(latestImage.printIdentifier());
+        }
+        return Optional.of(images);
+    }
+
+    private Optional<RemoteBuildCache> createRemoteCache(SpoonBuild build, BuildListener listener) {
+        if (this.remoteCacheNamespace == null) {
+            return Optional.absent();
+        }
+
+        String repo = (this.imageName != null) ? Image.parse(this.imageName).getRepo() : build.getSanitizedProjectName().toLowerCase();
+        HubApi hubApi = HubApi.create(build, listener);
+        return Optional.of(new RemoteBuildCache(hubApi, this.remoteCacheNamespace, repo));
+    }
+
+    private Optional<Image> fetchCachedImage(String contentKey, RemoteBuildCache remoteCache, CommandDriver client, BuildListener listener) {
+        try {
+            Optional<Image> cachedImage = remoteCache.fetch(contentKey, client);
+            if (!cachedImage.isPresent()) {
+                log(listener, String.format("Image %s not found in the remote build cache", remoteCache.getImage(contentKey).printIdentifier()));
+            }
+            return cachedImage;
+        } catch (Exception ex) {
+            log(listener, "Failed to fetch the image from the remote build cache", ex);
+            return Optional.absent();
+        }
+    }
+
+    private void storeCachedImage(String contentKey, Image image, RemoteBuildCache remoteCache, CommandDriver client, BuildListener listener) {
+        try {
+            Image cachedImage = remoteCache.store(contentKey, image, client);
+            log(listener, String.format("Image %s saved in the remote build cache as %s", image.printIdentifier(), cachedImage.printIdentifier()));
+        } catch (Exception ex) {
+            // the cache is an optimization, it should not fail the build which already succeeded
+            log(listener, "Failed to save the image in the remote build cache", ex);
+        }
+    }
+
+    private Optional<Image> findCachedImage(String contentKey, SpoonBuild build, CommandDriver client, CommandDriver cacheClient, BuildListener listener) {
+        BuildCacheIndex index = BuildCacheIndex.forProject(build.getProject());
+        try {
+            Optional<String> imageName = index.find(contentKey);
+            if (!imageName.isPresent()) {
+                return Optional.absent();
+            }
+
+            Image image = Image.parse(imageName.get());
+            ImagesCommand imagesCommand = ImagesCommand.builder().build();
+            imagesCommand.run(client);
+            if (imagesCommand.contains(image.printIdentifier())) {
+                return Optional.of(image);
+            }
+
+            if (isAvailableRemotely(image, build, listener)) {
+                PullCommand pullCommand = PullCommand.builder().image(image.printIdentifier()).build();
+                pullCommand.run(cacheClient);
+                return Optional.of(image);
+            }
+
+            log(listener, String.format("Image %s built from the same inputs is no longer available", image.printIdentifier()));
+            index.remove(contentKey);
+        } catch (Exception ex) {
+            log(listener, "Failed to look up the image built from the same inputs", ex);
+        }
+        return Optional.absent();
+    }
+
+    private void recordImage(String contentKey, Image image, SpoonBuild build, BuildListener listener) {
+        try {
+            BuildCacheIndex.forProject(build.getProject()).put(contentKey, image.printIdentifier());
+        } catch (IOException ex) {
+            log(listener, "Failed to save the image in the build cache index", ex);
+        }
+    }
+
     private void checkMountSettings() {
         if (this.mountSettings == null) {
             return;
@@ -158,14 +485,14 @@ public class ScriptBuilder extends LoginBuilder {
         versionCmd.run(client);
     }
 
-    private BuildCommand createBuildCommand(FilePath scriptPath) {
+    private BuildCommand createBuildCommand(FilePath scriptPath, Variant variant) {
         BuildCommand.CommandBuilder cmdBuilder = BuildCommand.builder().script(scriptPath);
-        if (this.imageName != null) {
-            cmdBuilder.image(this.imageName);
+        if (variant.getImageName() != null) {
+            cmdBuilder.image(variant.getImageName());
         }
 
-        if (this.vmVersion != null) {
-            cmdBuilder.vmVersion(this.vmVersion);
+        if (variant.getVmVersion() != null) {
+            cmdBuilder.vmVersion(variant.getVmVersion());
         }
 
         if (this.containerWorkingDir != null) {
@@ -207,6 +534,26 @@ public class ScriptBuilder extends LoginBuilder {
         throw new IllegalStateException(msg);
     }
 
+    @Data
+    private static final class Variant {
+        @Nullable
+        private final String vmVersion;
+        @Nullable
+        private final String imageName;
+    }
+
+    private static final class VariantResult {
+        private final Optional<Image> outputImage;
+        private final Optional<String> contentKey;
+        private final BuildCommand.BuildFailure failure;
+
+        VariantResult(Optional<Image> outputImage, Optional<String> contentKey, BuildCommand.BuildFailure failure) {
+            this.outputImage = outputImage;
+            this.contentKey = contentKey;
+            this.failure = failure;
+        }
+    }
+
     @Data
     public static final class MountSettings {
 
@@ -319,6 +666,15 @@ public class ScriptBuilder extends LoginBuilder {
             return Validators.validate(VERSION_NUMBER_VALIDATOR, versionNumber);
         }
 
+        public FormValidation doCheckVmVersions(@QueryParameter String value) {
+            try {
+                VmVersionEntry.parseAll(value);
+                return FormValidation.ok();
+            } catch (IllegalArgumentException ex) {
+                return FormValidation.error(ex.getMessage());
+            }
+        }
+
         public FormValidation doCheckContainerWorkingDir(@QueryParameter String value) {
             String workingDirectory = Util.fixEmptyAndTrim(value);
             return Validators.validate(IGNORE_NULL_VALIDATOR, workingDirectory);
@@ -329,6 +685,11 @@ public class ScriptBuilder extends LoginBuilder {
             return Validators.validate(NULL_OR_SINGLE_WORD_VALIDATOR, imageName);
         }
 
+        public FormValidation doCheckRemoteCacheNamespace(@QueryParameter String value) {
+            String namespace = Util.fixEmptyAndTrim(value);
+            return Validators.validate(NULL_OR_SINGLE_WORD_VALIDATOR, namespace);
+        }
+
         public FormValidation doCheckSourceContainer(@QueryParameter String value) {
             String sourceContainer = Util.fixEmptyAndTrim(value);
             return Validators.validate(NULL_OR_SINGLE_WORD_VALIDATOR, sourceContainer);
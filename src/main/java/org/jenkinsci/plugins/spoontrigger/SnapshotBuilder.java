@@ -3,12 +3,15 @@ package org.jenkinsci.plugins.spoontrigger;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.io.Closeables;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import hudson.*;
 import hudson.model.AbstractProject;
 import hudson.model.AutoCompletionCandidates;
 import hudson.model.BuildListener;
+import hudson.model.Node;
 import hudson.model.Result;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
@@ -16,18 +19,15 @@ import hudson.util.FormValidation;
 import lombok.Data;
 import lombok.Getter;
 import net.sf.json.JSONObject;
-import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
-import org.jenkinsci.plugins.spoontrigger.commands.powershell.PowerShellCommand;
-import org.jenkinsci.plugins.spoontrigger.commands.turbo.ImportCommand;
-import org.jenkinsci.plugins.spoontrigger.commands.turbo.PullCommand;
-import org.jenkinsci.plugins.spoontrigger.commands.xstudio.BuildCommand;
 import org.jenkinsci.plugins.spoontrigger.hub.HubApi;
 import org.jenkinsci.plugins.spoontrigger.hub.Image;
-import org.jenkinsci.plugins.spoontrigger.scheduledtasks.ScheduledTasksApi;
+import org.jenkinsci.plugins.spoontrigger.metrics.CommandMetricsRegistry;
+import org.jenkinsci.plugins.spoontrigger.metrics.CommandSample;
+import org.jenkinsci.plugins.spoontrigger.metrics.TimelineSpan;
 import org.jenkinsci.plugins.spoontrigger.snapshot.InstallScriptStrategy;
+import org.jenkinsci.plugins.spoontrigger.snapshot.SnapshotPipeline;
+import org.jenkinsci.plugins.spoontrigger.snapshot.SnapshotReport;
 import org.jenkinsci.plugins.spoontrigger.snapshot.StartupFileStrategy;
-import org.jenkinsci.plugins.spoontrigger.snapshot.XapplEditor;
-import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
 import org.jenkinsci.plugins.spoontrigger.utils.JsonOption;
 import org.jenkinsci.plugins.spoontrigger.vagrant.VagrantEnvironment;
 import org.jenkinsci.plugins.spoontrigger.validation.*;
@@ -40,14 +40,17 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.StringReader;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -55,13 +58,11 @@ import static com.google.common.base.Preconditions.checkState;
 import static org.jenkinsci.plugins.spoontrigger.Messages.*;
 import static org.jenkinsci.plugins.spoontrigger.utils.AutoCompletion.suggestDirectories;
 import static org.jenkinsci.plugins.spoontrigger.utils.AutoCompletion.suggestFiles;
-import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.deleteDirectoryTree;
-import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.quietDeleteChildren;
 import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
 
 public class SnapshotBuilder extends BaseBuilder {
 
-    private static final String IMAGE_NAME_FILE = "image.txt";
+    private static final String BASELINE_CACHE_DIRECTORY = "spoon-baseline-cache";
 
     @Getter
     private final InstallScriptSettings installScriptSettings;
@@ -89,6 +90,9 @@ public class SnapshotBuilder extends BaseBuilder {
     @Getter
     private final String vagrantBox;
 
+    @Getter
+    private final boolean cacheBaseline;
+
     private Optional<Image> importAsImage = Optional.absent();
 
     @DataBoundConstructor
@@ -103,7 +107,8 @@ public class SnapshotBuilder extends BaseBuilder {
             Collection<String> dependencies,
             Collection<String> snapshotFilesToDelete,
             InstallScriptSettings installScriptSettings,
-            StartupFileSettings startupFileSettings) {
+            StartupFileSettings startupFileSettings,
+            boolean cacheBaseline) {
         this.xStudioPath = Util.fixEmptyAndTrim(xStudioPath);
         this.xStudioLicensePath = Optional.fromNullable(Util.fixEmptyAndTrim(xStudioLicensePath));
         this.vagrantBox = Util.fixEmptyAndTrim(vagrantBox);
@@ -115,6 +120,7 @@ public class SnapshotBuilder extends BaseBuilder {
         this.snapshotPathsToDelete = new ArrayList<String>(snapshotFilesToDelete);
         this.installScriptSettings = installScriptSettings;
         this.startupFileSettings = startupFileSettings;
+        this.cacheBaseline = cacheBaseline;
     }
 
     public InstallScriptStrategy getInstallScriptStrategy() {
@@ -158,7 +164,7 @@ public class SnapshotBuilder extends BaseBuilder {
 
     @Override
     public boolean perform(SpoonBuild build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
-        String workspace = Paths.get(build.getWorkspace().getRemote()).toString();
+        FilePath workspace = build.getWorkspace();
         try {
             importAsImage = loadImportImageName(workspace);
 
@@ -167,10 +173,14 @@ public class SnapshotBuilder extends BaseBuilder {
                 return false;
             }
 
-            takeSnapshot(workspace, build, launcher, listener);
+            takeSnapshot(workspace, build, listener);
             return true;
         } finally {
-            quietDeleteChildren(Paths.get(workspace));
+            try {
+                workspace.deleteContents();
+            } catch (IOException ex) {
+                log(listener, String.format("Failed to clean up workspace %s", workspace.getRemote()), ex);
+            }
         }
     }
 
@@ -194,255 +204,141 @@ public class SnapshotBuilder extends BaseBuilder {
         return importAsImage.isPresent() && isAvailableRemotely(importAsImage.get(), build, listener);
     }
 
-    private void takeSnapshot(String workspace, SpoonBuild build, Launcher launcher, BuildListener listener) throws IOException {
-        VagrantEnvironment vagrantEnv = createVagrantEnvironment(build, workspace);
-        try {
-            SnapshotTaker snapshotTaker = new SnapshotTaker(build, vagrantEnv, launcher, listener);
-            snapshotTaker.takeSnapshot();
-        } finally {
-            // Vagrant working dir was moved to temp, because the Vagrant process running as a scheduled task
-            // does not have write access to the build workspace in Program Files
-            deleteDirectoryTree(vagrantEnv.getWorkingDir());
-        }
-    }
-
-    private VagrantEnvironment createVagrantEnvironment(SpoonBuild build, String buildWorkspace) throws IOException {
-        Path workingDir = Files.createTempDirectory("jenkins-" + build.getSanitizedProjectName() + "-build-");
-        VagrantEnvironment.EnvironmentBuilder environmentBuilder = VagrantEnvironment.builder(workingDir)
-                .box(vagrantBox)
-                .xStudioPath(xStudioPath);
+    private void takeSnapshot(FilePath workspace, SpoonBuild build, BuildListener listener) throws IOException, InterruptedException {
+        checkArgument(build.getEnv().isPresent(), "build");
 
-        List<Path> installerPaths = getInstallerPaths(buildWorkspace);
-        if (!installerPaths.isEmpty()) {
-            environmentBuilder.installerPaths(installerPaths);
+        List<String> resolvedDependencies = resolveDependencies(build, listener);
+        for (String dependency : resolvedDependencies) {
+            build.markImageUsed(dependency);
         }
 
-        if (preInstallScriptPath != null) {
-            environmentBuilder.preInstallScriptPath(preInstallScriptPath);
-        }
+        SnapshotPipeline.PipelineBuilder pipelineBuilder = SnapshotPipeline.builder()
+                .listener(listener)
+                .env(build.getEnv().get())
+                .charset(build.getCharset())
+                .projectName(build.getProject().getName(), build.getSanitizedProjectName())
+                .xStudioPath(xStudioPath)
+                .xStudioLicensePath(xStudioLicensePath.orNull())
+                .vagrantBox(vagrantBox)
+                .preInstallScriptPath(preInstallScriptPath)
+                .postSnapshotScriptPath(postSnapshotScriptPath)
+                .resourceDirectoryPath(resourceDirectoryPath)
+                .startupFilePath(startupFileSettings.getStartupFile().orNull())
+                .installScriptSettings(installScriptSettings)
+                .dependencies(resolvedDependencies)
+                .snapshotPathsToDelete(snapshotPathsToDelete)
+                .overwrite(overwrite);
 
-        if (postSnapshotScriptPath != null) {
-            environmentBuilder.postSnapshotScriptPath(postSnapshotScriptPath);
+        if (importAsImage.isPresent()) {
+            pipelineBuilder.importAsImage(importAsImage.get().printIdentifier());
         }
 
-        if (resourceDirectoryPath != null) {
-            environmentBuilder.resourceDirectoryPath(resourceDirectoryPath);
+        if (cacheBaseline) {
+            pipelineBuilder.baselineCacheDir(getBaselineCacheDir(build).getRemote());
         }
 
-        installScriptSettings.configure(environmentBuilder);
-
-        return environmentBuilder.build();
-    }
-
-    private List<Path> getInstallerPaths(String buildWorkspace) {
-        File workspace = new File(buildWorkspace);
-        File[] workspaceFiles = workspace.listFiles();
-        checkState(workspaceFiles != null, "Failed to list files in %s directory", buildWorkspace);
-
-        List<Path> installerPaths = new ArrayList<Path>();
-        for (File workspaceFile : workspaceFiles) {
-            final String extension = FileUtils.getExtension(workspaceFile.toPath());
-            if ("exe".equals(extension) || "msi".equals(extension)) {
-                installerPaths.add(workspaceFile.toPath());
-            }
+        // the whole pipeline runs on the node, so the snapshot never travels through the remoting channel
+        SnapshotPipeline.Result result;
+        try {
+            result = workspace.act(pipelineBuilder.build());
+        } catch (SnapshotPipeline.PipelineException ex) {
+            addPhases(build, ex.getTimeline(), ex.getCompletedAt());
+            recordCommands(build, ex.getCommandSamples());
+            throw ex;
         }
+        addPhases(build, result.getTimeline(), result.getCompletedAt());
+        recordCommands(build, result.getCommandSamples());
 
-        return installerPaths;
-    }
-
-    private Optional<Image> loadImportImageName(String workspacePath) throws IOException {
-        Path imageFilePath = Paths.get(workspacePath, IMAGE_NAME_FILE);
-        if (imageFilePath.toFile().exists()) {
-            BufferedReader reader = Files.newBufferedReader(imageFilePath, Charset.defaultCharset());
+        SnapshotReport report = result.getReport();
+        if (report != null) {
             try {
-                String imageName = reader.readLine();
-                return Optional.of(Image.parse(imageName));
-            } finally {
-                final boolean swallowException = true;
-                Closeables.close(reader, swallowException);
+                build.addAction(SnapshotReportAction.save(build, report));
+            } catch (IOException ex) {
+                log(listener, "Failed to save the snapshot report", ex);
             }
         }
-        return Optional.absent();
+
+        build.setOutputImage(Image.parse(result.getOutputImage()));
     }
 
-    private class SnapshotTaker {
-        private final SpoonBuild build;
-        private final VagrantEnvironment vagrantEnv;
-        private final BuildListener listener;
-        private final ScheduledTasksApi scheduledTasksApi;
-        private final CommandDriver commandDriver;
-
-        public SnapshotTaker(SpoonBuild build, VagrantEnvironment vagrantEnv, Launcher launcher, BuildListener listener) {
-            checkArgument(build.getEnv().isPresent(), "build");
-
-            this.build = build;
-            this.vagrantEnv = vagrantEnv;
-            this.listener = listener;
-
-            EnvVars env = this.build.getEnv().get();
-            FilePath vagrantDir = new FilePath(vagrantEnv.getWorkingDir().toFile());
-            this.commandDriver = CommandDriver.builder()
-                    .charset(this.build.getCharset())
-                    .env(env)
-                    .pwd(vagrantDir)
-                    .launcher(launcher)
-                    .listener(this.listener)
-                    .build();
-            final boolean quiet = false;
-            this.scheduledTasksApi = new ScheduledTasksApi(env, vagrantDir, build.getCharset(), launcher, this.listener, quiet);
-        }
-
-        private void takeSnapshot() {
-            try {
-                provisionVagrantVm();
-                executePostSnapshotScript();
-                removeFilesFromSnapshot();
-                buildImage();
-                importImage();
-            } catch (Throwable buildError) {
-                // do not swallow the initial build error
-                destroyVagrantVm(true);
-                throw new IllegalStateException("`vagrant up` failed with exception", buildError);
-            }
-            destroyVagrantVm(false);
+    private static void addPhases(SpoonBuild build, List<TimelineSpan> timeline, long completedAt) {
+        // phases were timed by the clock of the node, the difference to the controller clock is approximated by the time of return
+        long clockOffset = System.currentTimeMillis() - completedAt;
+        List<TimelineSpan> phases = new ArrayList<TimelineSpan>();
+        for (TimelineSpan span : timeline) {
+            phases.add(span.shift(clockOffset));
         }
+        BuildTimelineAction.of(build).addAll(phases);
+    }
 
-        private void pull(Image image) {
-            PullCommand command = PullCommand.builder().image(image.printIdentifier()).build();
-            command.run(commandDriver);
+    private static void recordCommands(SpoonBuild build, List<CommandSample> commandSamples) {
+        String hubUrl = build.getHubUrl().orNull();
+        for (CommandSample sample : commandSamples) {
+            CommandMetricsRegistry.getInstance().record(sample, hubUrl);
         }
+    }
 
-        private void executePostSnapshotScript() {
-            Path postSnapshotScriptPath = vagrantEnv.getPostSnapshotScriptPath();
-            if (!postSnapshotScriptPath.toFile().exists()) {
-                return;
-            }
-
-            PowerShellCommand command = PowerShellCommand.builder().scriptPath(postSnapshotScriptPath).build();
-            command.run(commandDriver);
+    /**
+     * Dependencies without a tag are resolved to their latest version on the controller, because the node may not
+     * have access to the hub credentials. The hub is queried for all dependencies at once.
+     */
+    private List<String> resolveDependencies(SpoonBuild build, BuildListener listener) throws InterruptedException {
+        List<String> resolvedDependencies = new ArrayList<String>();
+        if (dependencies.isEmpty()) {
+            return resolvedDependencies;
         }
 
-        private void removeFilesFromSnapshot() throws Exception {
-            if (snapshotPathsToDelete.isEmpty()) {
-                return;
-            }
-
-            log(listener, "Removing redundant files from snapshot...");
-
-            XapplEditor editor = new XapplEditor();
-            Path xapplPath = vagrantEnv.getXapplPath();
-            editor.load(xapplPath);
-
-            for (String path : snapshotPathsToDelete) {
-                if (editor.fileExists(path)) {
-                    editor.removeFile(path);
-                } else {
-                    log(listener, String.format("File %s was not found in the snapshot", path));
-                }
+        final HubApi hubApi = HubApi.create(build, listener);
+        ExecutorService executor = Executors.newFixedThreadPool(dependencies.size(),
+                new ThreadFactoryBuilder().setNameFormat("turbo-resolve-%d").setDaemon(true).build());
+        try {
+            List<Future<Image>> resolvedImages = new ArrayList<Future<Image>>(dependencies.size());
+            for (String dependency : dependencies) {
+                final Image buildDependency = Image.parse(dependency);
+                resolvedImages.add(executor.submit(new Callable<Image>() {
+                    @Override
+                    public Image call() throws Exception {
+                        return buildDependency.getTag() == null ? hubApi.getLatestVersion(buildDependency) : buildDependency;
+                    }
+                }));
             }
 
-            editor.save(xapplPath);
-
-            String snapshotDir = vagrantEnv.getSnapshotPath().toString();
-            for (String relativePath : snapshotPathsToDelete) {
-                Path pathToRemove = Paths.get(snapshotDir, relativePath);
+            for (Future<Image> resolvedImage : resolvedImages) {
                 try {
-                    File fileToRemove = pathToRemove.toFile();
-                    if (!fileToRemove.exists()) {
-                        continue;
-                    }
-
-                    if (fileToRemove.isDirectory()) {
-                        FileUtils.deleteDirectoryTree(pathToRemove);
-                    } else {
-                        Files.delete(pathToRemove);
-                    }
-                } catch (Throwable th) {
-                    String errorMsg = String.format("Failed to remove %s from snapshot", pathToRemove);
-                    throw new IllegalStateException(errorMsg, th);
+                    resolvedDependencies.add(resolvedImage.get().printIdentifier());
+                } catch (ExecutionException ex) {
+                    throw Throwables.propagate(ex.getCause());
                 }
             }
+            return resolvedDependencies;
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        private void buildImage() {
-            BuildCommand.CommandBuilder commandBuilder = BuildCommand.builder(xStudioPath)
-                    .xapplPath(vagrantEnv.getXapplPath().toString())
-                    .imagePath(vagrantEnv.getImagePath().toString());
-
-            if (xStudioLicensePath.isPresent()) {
-                commandBuilder.licensePath(xStudioLicensePath.get());
-            }
-
-            Optional<String> startupFile = startupFileSettings.getStartupFile();
-            if (startupFile.isPresent()) {
-                commandBuilder.startupFilePath(startupFile.get());
-            }
-
-            HubApi hubApi = HubApi.create(build, listener);
-            for (String dependency : dependencies) {
-                Image buildDependency = Image.parse(dependency);
-                Image dependencyToUse = buildDependency.getTag() == null ?
-                        hubApi.getLatestVersion(buildDependency) : buildDependency;
-
-                pull(dependencyToUse);
-
-                commandBuilder.dependency(dependencyToUse.printIdentifier());
-            }
-
-            BuildCommand command = commandBuilder.build();
-            command.run(commandDriver);
-        }
-
-        private void importImage() {
-            ImportCommand.CommandBuilder commandBuilder = ImportCommand.builder()
-                    .type("svm")
-                    .path(vagrantEnv.getImagePath().toString())
-                    .overwrite(overwrite);
-
-            Optional<Image> imageToUse = getOutputImage();
-            if (imageToUse.isPresent()) {
-                commandBuilder.name(imageToUse.get().printIdentifier());
-            }
-
-            ImportCommand command = commandBuilder.build();
-            command.run(commandDriver);
-
-            Optional<Image> outputImage = command.getOutputImage();
-            checkState(outputImage.isPresent(), "Failed to find imported image in command output");
-
-            build.setOutputImage(outputImage.get());
-        }
+    private FilePath getBaselineCacheDir(SpoonBuild build) {
+        Node node = build.getBuiltOn();
+        checkState(node != null, "Failed to find the node which runs the build");
 
-        private Optional<Image> getOutputImage() {
-            // load image name from Vagrant working directory, because some snapshot projects extract product version after installation completed
-            // otherwise use image name specified during build setup
-            String vagrantWorkingDirPath = vagrantEnv.getWorkingDir().toString();
-            try {
-                Optional<Image> imageNameOpt = loadImportImageName(vagrantWorkingDirPath);
-                return imageNameOpt.or(importAsImage);
-            } catch (Throwable th) {
-                String errMsg = String.format("Failed to load image name from %s", Paths.get(vagrantWorkingDirPath, IMAGE_NAME_FILE).toString());
-                log(listener, errMsg, th);
-                return importAsImage;
-            }
-        }
+        FilePath rootPath = node.getRootPath();
+        checkState(rootPath != null, "Node %s is offline", node.getDisplayName());
 
-        private void provisionVagrantVm() throws IOException, InterruptedException {
-            scheduledTasksApi.run(build.getProject().getName() + " - vagrant up", "vagrant up");
-        }
+        return rootPath.child(BASELINE_CACHE_DIRECTORY);
+    }
 
-        private void destroyVagrantVm(boolean swallowException) {
+    private Optional<Image> loadImportImageName(FilePath workspace) throws IOException, InterruptedException {
+        FilePath imageFilePath = workspace.child(SnapshotPipeline.IMAGE_NAME_FILE);
+        if (imageFilePath.exists()) {
+            BufferedReader reader = new BufferedReader(new StringReader(imageFilePath.readToString()));
             try {
-                scheduledTasksApi.run(build.getProject().getName() + " - vagrant destroy", "vagrant destroy --force");
-            } catch (Throwable th) {
-                final String errorMsg = "`vagrant destroy` failed with exception. The virtual machine may have to be removed from VirtualBox manually.";
-                if (swallowException) {
-                    log(listener, errorMsg, th);
-                } else {
-                    throw new IllegalStateException(errorMsg, th);
-                }
+                String imageName = reader.readLine();
+                return Optional.of(Image.parse(imageName));
+            } finally {
+                final boolean swallowException = true;
+                Closeables.close(reader, swallowException);
             }
         }
+        return Optional.absent();
     }
 
     @Data
@@ -615,6 +511,7 @@ public class SnapshotBuilder extends BaseBuilder {
             Collection<String> snapshotPathsToDelete = extractVirtualFilePaths(jsonWrapper.getString("snapshotPathsToDelete").orNull());
             InstallScriptSettings installSettings = InstallScriptSettings.fromJson(jsonWrapper.getObject("installScriptStrategy").orNull());
             StartupFileSettings startupFileSettings = StartupFileSettings.fromJson(jsonWrapper.getObject("startupFileStrategy").orNull());
+            boolean cacheBaseline = jsonWrapper.getBoolean("cacheBaseline").or(Boolean.FALSE);
             return new SnapshotBuilder(
                     getXStudioPath(),
                     getXStudioLicensePath(),
@@ -626,7 +523,8 @@ public class SnapshotBuilder extends BaseBuilder {
                     dependencies,
                     snapshotPathsToDelete,
                     installSettings,
-                    startupFileSettings);
+                    startupFileSettings,
+                    cacheBaseline);
         }
 
         public FormValidation doCheckRequiredFilePath(@QueryParameter String value) {
@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.spoontrigger;
+
+import hudson.XmlFile;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.snapshot.SnapshotReport;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Size accounting of the snapshot after redundant files were removed. Used to tune the list of files to delete.
+ * <p>
+ * Only the totals and the largest files are kept in build.xml. The directory tree may be large, so it is stored
+ * in a separate file of the build and read when the report page is shown.
+ */
+public class SnapshotReportAction implements RunAction2 {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotReportAction.class.getName());
+    private static final String REPORT_FILE = "snapshot-report.xml";
+
+    @Getter
+    private final long totalSize;
+    @Getter
+    private final int totalFileCount;
+    @Getter
+    private final int missingFileCount;
+    @Getter
+    private final List<SnapshotReport.FileEntry> largestFiles;
+
+    @Getter
+    private transient Run<?, ?> run;
+
+    SnapshotReportAction(SnapshotReport report) {
+        this.totalSize = report.getTotalSize();
+        this.totalFileCount = report.getTotalFileCount();
+        this.missingFileCount = report.getMissingFileCount();
+        this.largestFiles = new ArrayList<SnapshotReport.FileEntry>(report.getLargestFiles());
+    }
+
+    /**
+     * Stores the full report in the build directory and returns the action holding its summary.
+     */
+    public static SnapshotReportAction save(Run<?, ?> run, SnapshotReport report) throws IOException {
+        getReportFile(run).write(report);
+        return new SnapshotReportAction(report);
+    }
+
+    /**
+     * Returns the directory tree flattened in pre-order or an empty list if the report file cannot be read.
+     */
+    public List<SnapshotReport.DirectoryEntry> getDirectories() {
+        if (run == null) {
+            return Collections.emptyList();
+        }
+
+        XmlFile reportFile = getReportFile(run);
+        if (!reportFile.exists()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            SnapshotReport report = (SnapshotReport) reportFile.read();
+            return report.getDirectories();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, String.format("Failed to read snapshot report %s", reportFile), ex);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "clipboard.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Snapshot Report";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "snapshot-report";
+    }
+
+    public String formatSize(long size) {
+        return Sizes.formatSize(size);
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    private static XmlFile getReportFile(Run<?, ?> run) {
+        return new XmlFile(Run.XSTREAM, new File(run.getRootDir(), REPORT_FILE));
+    }
+}
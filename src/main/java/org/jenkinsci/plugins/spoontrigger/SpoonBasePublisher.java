@@ -52,10 +52,11 @@ abstract class SpoonBasePublisher extends Publisher {
         this.image = builtImage;
     }
 
-    protected abstract void publish(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IllegalStateException;
+    protected abstract void publish(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IllegalStateException, InterruptedException;
 
     @Override
     public final boolean perform(AbstractBuild<?, ?> abstractBuild, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        long startTime = System.currentTimeMillis();
         try {
             SpoonBuild build = (SpoonBuild) abstractBuild;
             this.beforePublish(build, listener);
@@ -64,6 +65,8 @@ abstract class SpoonBasePublisher extends Publisher {
         } catch (IllegalStateException ex) {
             TaskListeners.logFatalError(listener, ex);
             return false;
+        } finally {
+            BuildTimelineAction.of(abstractBuild).record(BuildTimelineAction.CATEGORY_STEP, getDescriptor().getDisplayName(), startTime, System.currentTimeMillis());
         }
     }
 
@@ -7,15 +7,22 @@ import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.Build;
 import hudson.model.BuildListener;
+import hudson.model.Node;
 import lombok.Getter;
 import lombok.Setter;
+import org.jenkinsci.plugins.spoontrigger.cache.ImageStore;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.ConfigCommand;
 import org.jenkinsci.plugins.spoontrigger.hub.Image;
 import org.jenkinsci.plugins.spoontrigger.utils.LogUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class SpoonBuild extends Build<SpoonProject, SpoonBuild> {
@@ -31,6 +38,8 @@ public class SpoonBuild extends Build<SpoonProject, SpoonBuild> {
     @Getter
     private Optional<Image> outputImage = Optional.absent();
     @Getter
+    private Optional<String> outputContentKey = Optional.absent();
+    @Getter
     private Optional<Image> remoteImage = Optional.absent();
     @Getter
     private Optional<FilePath> script = Optional.absent();
@@ -39,6 +48,8 @@ public class SpoonBuild extends Build<SpoonProject, SpoonBuild> {
     @Getter
     private Optional<String> hubUrl = Optional.absent();
 
+    private final transient Set<String> usedImages = new HashSet<String>();
+
     public SpoonBuild(SpoonProject project) throws IOException {
         super(project);
     }
@@ -70,6 +81,32 @@ public class SpoonBuild extends Build<SpoonProject, SpoonBuild> {
                     // no sense to change the build status, publishers and triggers were dispatched
                     LogUtils.log(listener, "Failed to reset default configuration", th);
                 }
+
+                try {
+                    updateImageStore(launcher, listener);
+                } finally {
+                    ImageStore.unmarkInUse(getBuiltOnStr(), getUsedImages());
+                }
+            }
+        }
+
+        private void updateImageStore(Launcher launcher, BuildListener listener) {
+            Optional<Long> budget = TurboTool.getDescriptorImpl().getImageStoreBudget();
+            Node node = getBuiltOn();
+            if (!budget.isPresent() || node == null || !getEnv().isPresent()) {
+                // without the environment no build step ran, so the build did not change the image store
+                return;
+            }
+
+            try {
+                // turbo images and rmi are recorded in the command metrics and the timeline like the commands of the build
+                CommandDriver client = CommandDriver.builder(SpoonBuild.this).launcher(launcher).listener(listener).ignoreErrorCode(true).build();
+                Optional<ImageStore> imageStore = ImageStore.forNode(node, client, listener);
+                if (imageStore.isPresent()) {
+                    imageStore.get().update(getUsedImages(), budget.get());
+                }
+            } catch (Throwable th) {
+                LogUtils.log(listener, "Failed to clean up the local image store", th);
             }
         }
     }
@@ -100,6 +137,36 @@ public class SpoonBuild extends Build<SpoonProject, SpoonBuild> {
 
     void setOutputImage(Image outputImage) {
         this.outputImage = Optional.of(outputImage);
+        this.outputContentKey = Optional.absent();
+        markImageUsed(outputImage.printIdentifier());
+    }
+
+    /**
+     * @param contentKey hash of the build inputs of the image, it identifies the content of the image
+     */
+    void setOutputImage(Image outputImage, Optional<String> contentKey) {
+        setOutputImage(outputImage);
+        this.outputContentKey = contentKey;
+    }
+
+    /**
+     * Marks an image as used by the build, so it is kept in the local image store of the node. Other builds of the node
+     * keep the image too until this build completes.
+     *
+     * @param image image name, all tags of the repository are kept if the tag is omitted
+     */
+    void markImageUsed(String image) {
+        synchronized (usedImages) {
+            if (usedImages.add(image)) {
+                ImageStore.markInUse(getBuiltOnStr(), image);
+            }
+        }
+    }
+
+    private Collection<String> getUsedImages() {
+        synchronized (usedImages) {
+            return new ArrayList<String>(usedImages);
+        }
     }
 
     void setRemoteImage(Image remoteImage) {
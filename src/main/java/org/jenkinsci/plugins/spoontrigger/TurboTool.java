@@ -1,5 +1,6 @@
 package org.jenkinsci.plugins.spoontrigger;
 
+import com.google.common.base.Optional;
 import hudson.Extension;
 import hudson.Util;
 import hudson.init.Initializer;
@@ -10,6 +11,7 @@ import hudson.util.FormValidation;
 import jenkins.model.Jenkins;
 import lombok.Getter;
 import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.spoontrigger.push.HubPushThrottle;
 import org.jenkinsci.plugins.spoontrigger.utils.JsonOption;
 import org.jenkinsci.plugins.spoontrigger.validation.Level;
 import org.jenkinsci.plugins.spoontrigger.validation.StringValidators;
@@ -20,6 +22,9 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
 
 import static hudson.init.InitMilestone.EXTENSIONS_AUGMENTED;
 import static org.jenkinsci.plugins.spoontrigger.Messages.IGNORE_PARAMETER;
@@ -47,12 +52,16 @@ public class TurboTool extends ToolInstallation {
         return (DescriptorImpl) jenkinsInstance.getDescriptorOrDie(getClass());
     }
 
-    public static TurboTool getDefaultInstallation() {
+    public static DescriptorImpl getDescriptorImpl() {
         Jenkins jenkinsInstance = Jenkins.getInstance();
         if (jenkinsInstance == null) {
             throw new IllegalStateException("Jenkins instance is null");
         }
-        DescriptorImpl descriptor = jenkinsInstance.getDescriptorByType(TurboTool.DescriptorImpl.class);
+        return jenkinsInstance.getDescriptorByType(TurboTool.DescriptorImpl.class);
+    }
+
+    public static TurboTool getDefaultInstallation() {
+        DescriptorImpl descriptor = getDescriptorImpl();
         TurboTool tool = descriptor.getInstallation(TurboTool.DEFAULT);
         if (tool != null) {
             return tool;
@@ -70,12 +79,34 @@ public class TurboTool extends ToolInstallation {
     @Extension
     public static class DescriptorImpl extends ToolDescriptor<TurboTool> {
 
+        private static final Logger LOGGER = Logger.getLogger(TurboTool.class.getName());
         private static final Validator<String> HUB_API_KEY =
                 StringValidators.isNotNull(IGNORE_PARAMETER, Level.OK);
 
         @Getter
         private String hubApiKey;
 
+        /**
+         * Maximal number of concurrent pushes per hub, one {@code <hub url> <limit>} pair per line.
+         */
+        @Getter
+        private String pushLimits;
+
+        /**
+         * Priority of pushes per project, one {@code <project full name> <priority>} pair per line.
+         */
+        @Getter
+        private String pushPriorities;
+
+        /**
+         * Disk budget of the local image store of each node in gigabytes, no images are removed if it is not set.
+         */
+        @Getter
+        private String imageStoreBudgetGigabytes;
+
+        private transient Map<String, Integer> parsedPushLimits;
+        private transient Map<String, Integer> parsedPushPriorities;
+
         public DescriptorImpl() {
             super();
             load();
@@ -119,11 +150,76 @@ public class TurboTool extends ToolInstallation {
             return Validators.validate(HUB_API_KEY, hubApiKey);
         }
 
+        public FormValidation doCheckPushLimits(@QueryParameter String value) {
+            return validateSettings(value);
+        }
+
+        public FormValidation doCheckPushPriorities(@QueryParameter String value) {
+            return validateSettings(value);
+        }
+
+        /**
+         * @return maximal number of concurrent pushes to the hub, {@link HubPushThrottle#UNLIMITED} if the hub is not limited
+         */
+        public synchronized int getPushLimit(String hubUrl) {
+            if (parsedPushLimits == null) {
+                parsedPushLimits = new HashMap<String, Integer>();
+                for (Map.Entry<String, Integer> limit : parseSettingsQuietly(pushLimits).entrySet()) {
+                    parsedPushLimits.put(HubPushThrottle.normalizeHubUrl(limit.getKey()), limit.getValue());
+                }
+            }
+
+            Integer limit = parsedPushLimits.get(HubPushThrottle.normalizeHubUrl(hubUrl));
+            return limit == null ? HubPushThrottle.UNLIMITED : limit;
+        }
+
+        public synchronized int getPushPriority(String projectFullName) {
+            if (parsedPushPriorities == null) {
+                parsedPushPriorities = parseSettingsQuietly(pushPriorities);
+            }
+
+            Integer priority = parsedPushPriorities.get(projectFullName);
+            return priority == null ? HubPushThrottle.DEFAULT_PRIORITY : priority;
+        }
+
+        public FormValidation doCheckImageStoreBudgetGigabytes(@QueryParameter String value) {
+            String budget = Util.fixEmptyAndTrim(value);
+            if (budget == null) {
+                return FormValidation.ok();
+            }
+            return FormValidation.validatePositiveInteger(budget);
+        }
+
+        /**
+         * @return disk budget of the local image store in bytes, absent if images should not be removed
+         */
+        public Optional<Long> getImageStoreBudget() {
+            String budget = imageStoreBudgetGigabytes;
+            if (budget == null) {
+                return Optional.absent();
+            }
+
+            try {
+                long gigabytes = Long.parseLong(budget);
+                return gigabytes > 0 ? Optional.of(gigabytes * 1024L * 1024L * 1024L) : Optional.<Long>absent();
+            } catch (NumberFormatException ex) {
+                LOGGER.warning(String.format("Ignoring invalid image store budget: %s", budget));
+                return Optional.absent();
+            }
+        }
+
         @Override
         public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
             JsonOption.ObjectWrapper jsonWrapper = JsonOption.wrap(json);
 
             hubApiKey = jsonWrapper.getString("hubApiKey").orNull();
+            synchronized (this) {
+                pushLimits = Util.fixEmptyAndTrim(jsonWrapper.getString("pushLimits").orNull());
+                pushPriorities = Util.fixEmptyAndTrim(jsonWrapper.getString("pushPriorities").orNull());
+                parsedPushLimits = null;
+                parsedPushPriorities = null;
+            }
+            imageStoreBudgetGigabytes = Util.fixEmptyAndTrim(jsonWrapper.getString("imageStoreBudgetGigabytes").orNull());
 
             setInstallations(new TurboTool(DEFAULT, hubApiKey));
             save();
@@ -131,6 +227,24 @@ public class TurboTool extends ToolInstallation {
             return true;
         }
 
+        private static FormValidation validateSettings(String value) {
+            try {
+                HubPushThrottle.parseSettings(Util.fixEmptyAndTrim(value));
+                return FormValidation.ok();
+            } catch (IllegalArgumentException ex) {
+                return FormValidation.error(ex.getMessage());
+            }
+        }
+
+        private static Map<String, Integer> parseSettingsQuietly(String settings) {
+            try {
+                return HubPushThrottle.parseSettings(settings);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.warning(String.format("Ignoring invalid push settings: %s", ex.getMessage()));
+                return new HashMap<String, Integer>();
+            }
+        }
+
         private static TurboTool[] getInstallations(DescriptorImpl descriptor) {
             try {
                 return descriptor.getInstallations();
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Optional;
+import hudson.XmlFile;
+import hudson.model.Job;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Maps content keys of successful builds to the images they produced. The index is stored in the project directory,
+ * so it survives restarts of Jenkins and is removed together with the project.
+ */
+public class BuildCacheIndex {
+
+    private static final String INDEX_FILE = "build-cache.xml";
+    private static final int MAX_ENTRIES = 100;
+
+    private final XmlFile file;
+
+    BuildCacheIndex(File indexFile) {
+        this.file = new XmlFile(indexFile);
+    }
+
+    public static BuildCacheIndex forProject(Job<?, ?> project) {
+        return new BuildCacheIndex(new File(project.getRootDir(), INDEX_FILE));
+    }
+
+    public Optional<String> find(String key) throws IOException {
+        synchronized (BuildCacheIndex.class) {
+            return Optional.fromNullable(load().images.get(key));
+        }
+    }
+
+    /**
+     * Records the image built for the key. The oldest entries are dropped when the index grows over its limit.
+     */
+    public void put(String key, String image) throws IOException {
+        synchronized (BuildCacheIndex.class) {
+            Entries entries = load();
+            entries.images.remove(key);
+            entries.images.put(key, image);
+
+            Iterator<String> keys = entries.images.keySet().iterator();
+            while (entries.images.size() > MAX_ENTRIES && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+
+            file.write(entries);
+        }
+    }
+
+    public void remove(String key) throws IOException {
+        synchronized (BuildCacheIndex.class) {
+            Entries entries = load();
+            if (entries.images.remove(key) != null) {
+                file.write(entries);
+            }
+        }
+    }
+
+    private Entries load() throws IOException {
+        if (!file.exists()) {
+            return new Entries();
+        }
+
+        Entries entries = (Entries) file.read();
+        if (entries.images == null) {
+            entries.images = new LinkedHashMap<String, String>();
+        }
+        return entries;
+    }
+
+    private static final class Entries {
+        private LinkedHashMap<String, String> images = new LinkedHashMap<String, String>();
+    }
+}
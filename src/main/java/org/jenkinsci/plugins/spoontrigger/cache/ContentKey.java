@@ -0,0 +1,153 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_NOT_NULL_S;
+
+/**
+ * Hash of the build inputs. Two builds with the same key produce the same image, so the image of the first build
+ * can be reused. Files are hashed on the node which owns the script, relative paths are resolved against
+ * the directory of the script.
+ */
+public final class ContentKey {
+
+    private final FilePath script;
+    private final List<Input> inputs = new ArrayList<Input>();
+
+    private ContentKey(FilePath script) {
+        this.script = script;
+    }
+
+    public static ContentKey of(FilePath script) {
+        checkArgument(script != null, REQUIRE_NOT_NULL_S, "script");
+
+        return new ContentKey(script);
+    }
+
+    public ContentKey file(@Nullable String path) {
+        if (path != null) {
+            inputs.add(new Input(InputType.FILE, "file", path));
+        }
+        return this;
+    }
+
+    public ContentKey directory(@Nullable String path) {
+        if (path != null) {
+            inputs.add(new Input(InputType.DIRECTORY, "directory", path));
+        }
+        return this;
+    }
+
+    public ContentKey property(String name, @Nullable Object value) {
+        inputs.add(new Input(InputType.PROPERTY, name, String.valueOf(value)));
+        return this;
+    }
+
+    public String compute() throws IOException, InterruptedException {
+        return script.act(new HashCallable(new ArrayList<Input>(inputs)));
+    }
+
+    private enum InputType {
+        FILE,
+        DIRECTORY,
+        PROPERTY
+    }
+
+    private static final class Input implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final InputType type;
+        private final String name;
+        private final String value;
+
+        Input(InputType type, String name, String value) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final class HashCallable extends MasterToSlaveFileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<Input> inputs;
+
+        HashCallable(ArrayList<Input> inputs) {
+            this.inputs = inputs;
+        }
+
+        @Override
+        public String invoke(File scriptFile, VirtualChannel channel) throws IOException, InterruptedException {
+            Hasher hasher = Hashing.sha256().newHasher();
+            putFile(hasher, scriptFile);
+
+            File baseDir = scriptFile.getParentFile();
+            for (Input input : inputs) {
+                hasher.putString(input.name, Charsets.UTF_8).putByte((byte) 0);
+                switch (input.type) {
+                    case FILE:
+                        putFile(hasher, resolve(baseDir, input.value));
+                        break;
+                    case DIRECTORY:
+                        putDirectory(hasher, resolve(baseDir, input.value), "");
+                        break;
+                    case PROPERTY:
+                        hasher.putString(input.value, Charsets.UTF_8);
+                        break;
+                }
+                hasher.putByte((byte) 0);
+            }
+            return hasher.hash().toString();
+        }
+
+        private static File resolve(File baseDir, String path) {
+            File file = new File(path);
+            if (file.isAbsolute() || baseDir == null) {
+                return file;
+            }
+            return new File(baseDir, path);
+        }
+
+        private static void putFile(Hasher hasher, File file) throws IOException {
+            if (!file.isFile()) {
+                throw new IOException(String.format("File %s does not exist", file));
+            }
+
+            hasher.putBytes(Files.hash(file, Hashing.sha256()).asBytes());
+        }
+
+        private static void putDirectory(Hasher hasher, File directory, String relativePath) throws IOException {
+            File[] children = directory.listFiles();
+            if (children == null) {
+                throw new IOException(String.format("Failed to list files in %s directory", directory));
+            }
+
+            // directory listing order is not specified, so entries are sorted to get a stable hash
+            Arrays.sort(children);
+            for (File child : children) {
+                String childPath = relativePath + "/" + child.getName();
+                hasher.putString(childPath, Charsets.UTF_8).putByte((byte) 0);
+                if (child.isDirectory()) {
+                    putDirectory(hasher, child, childPath);
+                } else {
+                    putFile(hasher, child);
+                }
+            }
+        }
+    }
+}
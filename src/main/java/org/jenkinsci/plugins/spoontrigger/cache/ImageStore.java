@@ -0,0 +1,366 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.io.Closeables;
+import hudson.FilePath;
+import hudson.model.BuildListener;
+import hudson.model.Node;
+import lombok.Data;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.ImagesCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.RemoveImageCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.scripts.ScriptEntry;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Keeps the local image store of a node within a disk budget. The time of the last use of each image by the builds
+ * of the node is saved in the node root directory, images never used by a build are aged from the time they were
+ * first seen. When the images take more space than the budget, the least recently used images are removed.
+ * Images used by the builds running on the node are never removed, builds mark their images while they run.
+ */
+public class ImageStore {
+
+    private static final String STORE_DIRECTORY = "turbo-image-store";
+    private static final String LAST_USE_FILE = "last-use.properties";
+    private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+(?:[.,]\\d+)?)\\s*([KMGT]?B)", Pattern.CASE_INSENSITIVE);
+    private static final Map<String, Object> NODE_LOCKS = new HashMap<String, Object>();
+    // images used by the running builds of each node, an image is counted once for every build which uses it
+    private static final Map<String, Multiset<String>> IMAGES_IN_USE = new HashMap<String, Multiset<String>>();
+
+    private final FilePath storeDir;
+    private final String nodeName;
+    private final CommandDriver client;
+    private final BuildListener listener;
+
+    ImageStore(FilePath storeDir, String nodeName, CommandDriver client, BuildListener listener) {
+        this.storeDir = storeDir;
+        this.nodeName = nodeName;
+        this.client = client;
+        this.listener = listener;
+    }
+
+    /**
+     * @param client driver which runs turbo on the node, it must not fail on a non-zero exit code
+     * @return absent if the node is offline
+     */
+    public static Optional<ImageStore> forNode(Node node, CommandDriver client, BuildListener listener) {
+        FilePath rootPath = node.getRootPath();
+        if (rootPath == null) {
+            return Optional.absent();
+        }
+        return Optional.of(new ImageStore(rootPath.child(STORE_DIRECTORY), node.getNodeName(), client, listener));
+    }
+
+    /**
+     * Marks an image as used by a running build of the node, so builds which complete in the meantime do not remove it.
+     * A build marks an image once and unmarks its images when it completes.
+     */
+    public static void markInUse(String nodeName, String image) {
+        synchronized (IMAGES_IN_USE) {
+            Multiset<String> images = IMAGES_IN_USE.get(nodeName);
+            if (images == null) {
+                images = HashMultiset.create();
+                IMAGES_IN_USE.put(nodeName, images);
+            }
+            images.add(image.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public static void unmarkInUse(String nodeName, Collection<String> images) {
+        synchronized (IMAGES_IN_USE) {
+            Multiset<String> imagesInUse = IMAGES_IN_USE.get(nodeName);
+            if (imagesInUse == null) {
+                return;
+            }
+
+            for (String image : images) {
+                imagesInUse.remove(image.toLowerCase(Locale.ROOT));
+            }
+            if (imagesInUse.isEmpty()) {
+                IMAGES_IN_USE.remove(nodeName);
+            }
+        }
+    }
+
+    /**
+     * @return images used by the running builds of the node
+     */
+    static Set<String> getImagesInUse(String nodeName) {
+        synchronized (IMAGES_IN_USE) {
+            Multiset<String> imagesInUse = IMAGES_IN_USE.get(nodeName);
+            return imagesInUse != null ? new HashSet<String>(imagesInUse.elementSet()) : new HashSet<String>();
+        }
+    }
+
+    /**
+     * Records the images used by a build and removes the least recently used images until the store fits in the budget.
+     * Images used by the other running builds of the node are kept as well.
+     *
+     * @param usedImages names of the images used by the build, a name without a tag marks all tags of the repository
+     * @param budget     maximal size of the images in bytes
+     */
+    public void update(Collection<String> usedImages, long budget) throws IOException, InterruptedException {
+        synchronized (getNodeLock()) {
+            Set<String> imagesInUse = getImagesInUse(nodeName);
+            imagesInUse.addAll(usedImages);
+
+            List<LocalImage> images = listImages();
+            Map<String, Long> lastUse = loadLastUse();
+
+            long now = System.currentTimeMillis();
+            Map<String, Long> updatedLastUse = new HashMap<String, Long>();
+            List<LocalImage> inUse = new ArrayList<LocalImage>();
+            for (LocalImage image : images) {
+                Long lastUseTime = lastUse.get(image.getName());
+                if (isUsed(image, imagesInUse)) {
+                    lastUseTime = now;
+                    inUse.add(image);
+                } else if (lastUseTime == null) {
+                    lastUseTime = now;
+                }
+                updatedLastUse.put(image.getName(), lastUseTime);
+            }
+
+            for (LocalImage image : selectImagesToEvict(images, updatedLastUse, inUse, budget)) {
+                if (removeImage(image, updatedLastUse.get(image.getName()))) {
+                    updatedLastUse.remove(image.getName());
+                }
+            }
+            saveLastUse(updatedLastUse);
+        }
+    }
+
+    /**
+     * Returns the images which have to be removed to fit in the budget, the least recently used first.
+     */
+    static List<LocalImage> selectImagesToEvict(List<LocalImage> images, final Map<String, Long> lastUse, Collection<LocalImage> inUse, long budget) {
+        long totalSize = 0L;
+        for (LocalImage image : images) {
+            totalSize += image.getSize();
+        }
+
+        List<LocalImage> candidates = new ArrayList<LocalImage>(images);
+        candidates.removeAll(inUse);
+        Collections.sort(candidates, new Comparator<LocalImage>() {
+            @Override
+            public int compare(LocalImage left, LocalImage right) {
+                long leftLastUse = lastUse.containsKey(left.getName()) ? lastUse.get(left.getName()) : 0L;
+                long rightLastUse = lastUse.containsKey(right.getName()) ? lastUse.get(right.getName()) : 0L;
+                return leftLastUse < rightLastUse ? -1 : (leftLastUse == rightLastUse ? 0 : 1);
+            }
+        });
+
+        List<LocalImage> imagesToEvict = new ArrayList<LocalImage>();
+        for (LocalImage candidate : candidates) {
+            if (totalSize <= budget) {
+                break;
+            }
+            imagesToEvict.add(candidate);
+            totalSize -= candidate.getSize();
+        }
+        return imagesToEvict;
+    }
+
+    /**
+     * Parses the table printed by {@code turbo images}. Columns are located by the positions of the header names,
+     * an image without a name is identified by its ID.
+     */
+    static List<LocalImage> parseImages(String output) {
+        List<LocalImage> images = new ArrayList<LocalImage>();
+        String[] lines = output.split("\\r?\\n");
+
+        int headerPosition = 0;
+        while (headerPosition < lines.length && !isHeader(lines[headerPosition])) {
+            ++headerPosition;
+        }
+        if (headerPosition == lines.length) {
+            return images;
+        }
+
+        String header = lines[headerPosition];
+        List<Integer> columnStarts = getColumnStarts(header);
+        int idColumn = findColumn(header, columnStarts, "ID");
+        int nameColumn = findColumn(header, columnStarts, "Name");
+        int sizeColumn = findColumn(header, columnStarts, "Size");
+
+        for (int position = headerPosition + 1; position < lines.length; ++position) {
+            String line = lines[position];
+            if (line.trim().isEmpty() || line.trim().startsWith("--")) {
+                continue;
+            }
+
+            String name = getColumn(line, columnStarts, nameColumn);
+            if (name.isEmpty()) {
+                name = getColumn(line, columnStarts, idColumn);
+            }
+
+            Matcher sizeMatcher = SIZE_PATTERN.matcher(getColumn(line, columnStarts, sizeColumn));
+            if (name.isEmpty() || !sizeMatcher.find()) {
+                continue;
+            }
+
+            images.add(new LocalImage(name, Sizes.parseSize(sizeMatcher.group(1), sizeMatcher.group(2))));
+        }
+        return images;
+    }
+
+    private static boolean isHeader(String line) {
+        String lineToUse = line.trim();
+        return lineToUse.startsWith("ID") && lineToUse.contains("Name") && lineToUse.contains("Size");
+    }
+
+    private static List<Integer> getColumnStarts(String header) {
+        List<Integer> columnStarts = new ArrayList<Integer>();
+        Matcher matcher = Pattern.compile("\\S+(?: \\S+)*").matcher(header);
+        while (matcher.find()) {
+            columnStarts.add(matcher.start());
+        }
+        return columnStarts;
+    }
+
+    private static int findColumn(String header, List<Integer> columnStarts, String name) {
+        for (int column = 0; column < columnStarts.size(); ++column) {
+            if (header.startsWith(name, columnStarts.get(column))) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private static String getColumn(String line, List<Integer> columnStarts, int column) {
+        if (column < 0 || columnStarts.get(column) >= line.length()) {
+            return "";
+        }
+
+        int end = column + 1 < columnStarts.size() ? Math.min(columnStarts.get(column + 1), line.length()) : line.length();
+        return line.substring(columnStarts.get(column), end).trim();
+    }
+
+    private static boolean isUsed(LocalImage image, Collection<String> usedImages) {
+        String name = image.getName().toLowerCase(Locale.ROOT);
+        String repo = null;
+        try {
+            repo = ScriptEntry.getRepoIdentifier(Image.parse(image.getName()));
+        } catch (IllegalArgumentException ex) {
+            // an image without a name is identified by its ID
+        }
+
+        for (String usedImage : usedImages) {
+            String usedImageToUse = usedImage.toLowerCase(Locale.ROOT);
+            if (usedImageToUse.equals(name) || usedImageToUse.equals(repo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<LocalImage> listImages() throws IOException {
+        ImagesCommand command = ImagesCommand.builder().build();
+        command.run(client);
+        if (command.getErrorCode() != 0) {
+            throw new IOException(String.format("Failed to list images. Process returned non-zero error code: %s.", command.getErrorCode()));
+        }
+        return parseImages(command.getOutput());
+    }
+
+    private boolean removeImage(LocalImage image, Long lastUseTime) {
+        RemoveImageCommand command = RemoveImageCommand.builder().image(image.getName()).build();
+        try {
+            command.run(client);
+            if (command.getErrorCode() != 0) {
+                log(listener, String.format("Failed to remove image %s. Process returned non-zero error code: %s.", image.getName(), command.getErrorCode()));
+                return false;
+            }
+        } catch (IllegalStateException ex) {
+            log(listener, String.format("Failed to remove image %s", image.getName()), ex);
+            return false;
+        }
+
+        log(listener, String.format("Removed image %s (%s) last used on %s to keep the image store within the budget",
+                image.getName(), Sizes.formatSize(image.getSize()), new Date(lastUseTime)));
+        return true;
+    }
+
+    private Map<String, Long> loadLastUse() throws IOException, InterruptedException {
+        Map<String, Long> lastUse = new HashMap<String, Long>();
+        FilePath lastUseFile = storeDir.child(LAST_USE_FILE);
+        if (!lastUseFile.exists()) {
+            return lastUse;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = lastUseFile.read();
+        try {
+            properties.load(in);
+        } finally {
+            final boolean swallowException = true;
+            Closeables.close(in, swallowException);
+        }
+
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                lastUse.put(name, Long.parseLong(properties.getProperty(name)));
+            } catch (NumberFormatException ex) {
+                // the image is aged again from now
+            }
+        }
+        return lastUse;
+    }
+
+    private void saveLastUse(Map<String, Long> lastUse) throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : lastUse.entrySet()) {
+            properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        storeDir.mkdirs();
+        OutputStream out = storeDir.child(LAST_USE_FILE).write();
+        try {
+            properties.store(out, "Last use of local images in milliseconds since the epoch");
+        } finally {
+            final boolean swallowException = true;
+            Closeables.close(out, swallowException);
+        }
+    }
+
+    private Object getNodeLock() {
+        synchronized (NODE_LOCKS) {
+            String key = storeDir.getRemote();
+            Object lock = NODE_LOCKS.get(key);
+            if (lock == null) {
+                lock = new Object();
+                NODE_LOCKS.put(key, lock);
+            }
+            return lock;
+        }
+    }
+
+    @Data
+    static final class LocalImage {
+        private final String name;
+        private final long size;
+    }
+}
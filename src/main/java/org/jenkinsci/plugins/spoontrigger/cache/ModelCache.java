@@ -0,0 +1,172 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import hudson.model.Job;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps the transcripts and the model of the last image profiled by a project. The entry is identified by the content
+ * key of the image build inputs, so a build which produced the same image again reuses the model instead of profiling
+ * the image. The key includes the resolved versions of the base images, so an image built on a new base image
+ * is profiled again.
+ * The cache also remembers the last pushed model, so the same model is not pushed twice.
+ */
+public class ModelCache {
+
+    private static final String CACHE_DIRECTORY = "model-cache";
+    private static final String TRANSCRIPT_DIRECTORY = "transcripts";
+    private static final String MODEL_DIRECTORY = "model";
+    private static final String LAST_PUSH_FILE = "last-push.txt";
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+    private static final int ENTRY_ID_LENGTH = 16;
+
+    private final Path cacheDir;
+
+    ModelCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public static ModelCache forProject(Job<?, ?> project) {
+        return new ModelCache(Paths.get(project.getRootDir().getPath(), CACHE_DIRECTORY));
+    }
+
+    /**
+     * Returns a hash of the files in the directory and their paths relative to the directory.
+     */
+    public static String hashDirectory(final Path directory) throws IOException {
+        final List<Path> files = new ArrayList<Path>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (Path file : files) {
+            hasher.putString(directory.relativize(file).toString().replace('\\', '/'), Charsets.UTF_8);
+            hasher.putBytes(com.google.common.io.Files.hash(file.toFile(), HASH_FUNCTION).asBytes());
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Copies the cached transcripts and model of the image to the given directories.
+     *
+     * @return false if the image is not in the cache
+     */
+    public boolean restore(String imageId, Path transcriptDir, Path modelDir) throws IOException {
+        synchronized (ModelCache.class) {
+            Path entryDir = getEntryDir(imageId);
+            Path cachedModelDir = Paths.get(entryDir.toString(), MODEL_DIRECTORY);
+            if (!Files.isDirectory(cachedModelDir)) {
+                return false;
+            }
+
+            copyDirectory(Paths.get(entryDir.toString(), TRANSCRIPT_DIRECTORY), transcriptDir);
+            copyDirectory(cachedModelDir, modelDir);
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the cached entry with the transcripts and model of the image.
+     */
+    public void store(String imageId, Path transcriptDir, Path modelDir) throws IOException {
+        synchronized (ModelCache.class) {
+            checkArgument(Files.isDirectory(modelDir), "modelDir (%s) must be a directory", modelDir);
+
+            Path entryDir = getEntryDir(imageId);
+            Files.createDirectories(cacheDir);
+            deleteEntries();
+
+            Path tempDir = Files.createTempDirectory(cacheDir, entryDir.getFileName() + "-");
+            try {
+                copyDirectory(transcriptDir, Paths.get(tempDir.toString(), TRANSCRIPT_DIRECTORY));
+                copyDirectory(modelDir, Paths.get(tempDir.toString(), MODEL_DIRECTORY));
+                Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                FileUtils.quietDeleteDirectoryTreeIfExists(tempDir);
+                throw ex;
+            }
+        }
+    }
+
+    public boolean isPushed(String pushKey) throws IOException {
+        synchronized (ModelCache.class) {
+            Path lastPushPath = Paths.get(cacheDir.toString(), LAST_PUSH_FILE);
+            if (!Files.exists(lastPushPath)) {
+                return false;
+            }
+
+            List<String> lines = Files.readAllLines(lastPushPath, Charset.defaultCharset());
+            return !lines.isEmpty() && pushKey.equals(lines.get(0));
+        }
+    }
+
+    public void markPushed(String pushKey) throws IOException {
+        synchronized (ModelCache.class) {
+            Files.createDirectories(cacheDir);
+            Files.write(Paths.get(cacheDir.toString(), LAST_PUSH_FILE), Collections.singletonList(pushKey), Charset.defaultCharset());
+        }
+    }
+
+    private Path getEntryDir(String imageId) {
+        return Paths.get(cacheDir.toString(), imageId.substring(0, Math.min(ENTRY_ID_LENGTH, imageId.length())));
+    }
+
+    private void deleteEntries() throws IOException {
+        File[] entryDirs = cacheDir.toFile().listFiles();
+        if (entryDirs == null) {
+            return;
+        }
+
+        for (File entryDir : entryDirs) {
+            if (entryDir.isDirectory()) {
+                FileUtils.deleteDirectoryTree(entryDir.toPath());
+            }
+        }
+    }
+
+    private static void copyDirectory(final Path source, final Path destination) throws IOException {
+        if (!Files.isDirectory(source)) {
+            Files.createDirectories(destination);
+            return;
+        }
+
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, destination.resolve(source.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Optional;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.PullCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.PushCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.HubApi;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_NOT_NULL_OR_EMPTY_S;
+
+/**
+ * Build cache shared by all nodes. Images are stored in a hub namespace and tagged with the content key of the build
+ * which produced them. The key includes the resolved versions of the base images, so an entry is not shared by builds
+ * on different versions of a base image.
+ */
+public class RemoteBuildCache {
+
+    private static final int TAG_LENGTH = 32;
+
+    private final HubApi hubApi;
+    private final String namespace;
+    private final String repo;
+
+    public RemoteBuildCache(HubApi hubApi, String namespace, String repo) {
+        checkArgument(namespace != null && !namespace.isEmpty(), REQUIRE_NOT_NULL_OR_EMPTY_S, "namespace");
+        checkArgument(repo != null && !repo.isEmpty(), REQUIRE_NOT_NULL_OR_EMPTY_S, "repo");
+
+        this.hubApi = hubApi;
+        this.namespace = namespace;
+        this.repo = repo;
+    }
+
+    public Image getImage(String contentKey) {
+        checkArgument(contentKey.length() >= TAG_LENGTH, "contentKey (%s) is too short", contentKey);
+
+        return new Image(namespace, repo, contentKey.substring(0, TAG_LENGTH));
+    }
+
+    public boolean contains(String contentKey) throws Exception {
+        return hubApi.isAvailableRemotely(getImage(contentKey));
+    }
+
+    /**
+     * Pulls the image built from the same inputs.
+     *
+     * @return the pulled image or absent if the cache does not contain it
+     */
+    public Optional<Image> fetch(String contentKey, CommandDriver client) throws Exception {
+        if (!contains(contentKey)) {
+            return Optional.absent();
+        }
+
+        Image cachedImage = getImage(contentKey);
+        PullCommand pullCommand = PullCommand.builder().image(cachedImage.printIdentifier()).build();
+        pullCommand.run(client);
+        return Optional.of(cachedImage);
+    }
+
+    public Image store(String contentKey, Image image, CommandDriver client) {
+        Image cachedImage = getImage(contentKey);
+        PushCommand pushCommand = PushCommand.builder()
+                .image(image.printIdentifier())
+                .remoteImage(cachedImage.printIdentifier())
+                .build();
+        pushCommand.run(client);
+        return cachedImage;
+    }
+}
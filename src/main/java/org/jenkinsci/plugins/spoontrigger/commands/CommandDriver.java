@@ -1,5 +1,8 @@
 package org.jenkinsci.plugins.spoontrigger.commands;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.io.CountingOutputStream;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -7,12 +10,19 @@ import hudson.model.TaskListener;
 import hudson.util.ArgumentListBuilder;
 import lombok.AccessLevel;
 import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.BuildTimelineAction;
+import org.jenkinsci.plugins.spoontrigger.PushMetricsAction;
 import org.jenkinsci.plugins.spoontrigger.SpoonBuild;
+import org.jenkinsci.plugins.spoontrigger.metrics.CommandMetricsRegistry;
+import org.jenkinsci.plugins.spoontrigger.metrics.CommandSample;
+import org.jenkinsci.plugins.spoontrigger.metrics.PushProgressParser;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -21,12 +31,19 @@ import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_PRESENT_S;
 public final class CommandDriver {
 
     private static final int NO_ERROR = 0;
+    private static final String NODE_NAME_ENV = "NODE_NAME";
+    private static final String UNKNOWN_TAG = "unknown";
+    private static final int COMMAND_LABEL_ARGUMENTS = 2;
 
     private EnvVars env;
     private FilePath pwd;
     private TaskListener listener;
     private Launcher launcher;
     private boolean ignoreErrorCode = false;
+    private String hub;
+    private BuildTimelineAction timeline;
+    private PushMetricsAction pushMetrics;
+    private List<CommandSample> samples;
 
     @Getter(AccessLevel.PACKAGE)
     private Charset charset;
@@ -39,7 +56,10 @@ public final class CommandDriver {
         return new DriverBuilder()
                 .charset(build.getCharset())
                 .env(build.getEnv().get())
-                .pwd(build.getWorkspace());
+                .pwd(build.getWorkspace())
+                .hub(build.getHubUrl().orNull())
+                .timeline(BuildTimelineAction.of(build))
+                .pushMetrics(PushMetricsAction.of(build));
     }
 
     /**
@@ -51,21 +71,39 @@ public final class CommandDriver {
         return new DriverBuilder()
                 .charset(build.getCharset())
                 .env(build.getEnv().get())
-                .pwd(build.getScript().get().getParent());
+                .pwd(build.getScript().get().getParent())
+                .hub(build.getHubUrl().orNull())
+                .timeline(BuildTimelineAction.of(build))
+                .pushMetrics(PushMetricsAction.of(build));
     }
 
-    int launch(ArgumentListBuilder argumentList) throws IllegalStateException {
-        return this.launch(argumentList, this.getLogger());
+    int launch(BaseCommand command) throws IllegalStateException {
+        return this.launch(command, this.getLogger());
     }
 
-    int launch(ArgumentListBuilder argumentList, OutputStream out) throws IllegalStateException {
+    int launch(BaseCommand command, OutputStream out) throws IllegalStateException {
+        ArgumentListBuilder argumentList = command.getArgumentList();
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+        long startTime = System.currentTimeMillis();
+        Integer exitCode = null;
         int errorCode;
         try {
-            errorCode = this.createLauncher().cmds(argumentList).stdout(out).join();
+            errorCode = this.createLauncher().cmds(argumentList).stdout(countingOut).join();
+            exitCode = errorCode;
         } catch (IOException ex) {
             throw onLaunchFailure(argumentList, ex);
         } catch (InterruptedException ex) {
             throw onLaunchFailure(argumentList, ex);
+        } finally {
+            long endTime = System.currentTimeMillis();
+            if (this.samples != null) {
+                this.samples.add(new CommandSample(getCommandType(command), getNodeName(), endTime - startTime, exitCode, countingOut.getCount()));
+            } else {
+                CommandMetricsRegistry.getInstance().record(getCommandType(command), getNodeName(), getHubName(), endTime - startTime, exitCode, countingOut.getCount());
+            }
+            if (this.timeline != null) {
+                this.timeline.record(BuildTimelineAction.CATEGORY_COMMAND, getCommandLabel(argumentList), startTime, endTime);
+            }
         }
 
         if (!ignoreErrorCode && errorCode != NO_ERROR) {
@@ -76,10 +114,45 @@ public final class CommandDriver {
         return errorCode;
     }
 
+    /**
+     * Updates the hub used to tag the metrics after the hub of the client was switched.
+     */
+    public void setHub(@Nullable String hubUrl) {
+        this.hub = hubUrl;
+    }
+
+    public void recordPush(PushProgressParser progressParser, String image, boolean succeeded) {
+        if (this.pushMetrics != null) {
+            this.pushMetrics.add(progressParser.finish(getHubName(), image, succeeded));
+        }
+    }
+
     PrintStream getLogger() {
         return this.listener.getLogger();
     }
 
+    private static String getCommandType(BaseCommand command) {
+        // keeps the subpackage, because turbo and xstudio commands share class names
+        String commandsPackage = BaseCommand.class.getPackage().getName() + ".";
+        String className = command.getClass().getName();
+        return className.startsWith(commandsPackage) ? className.substring(commandsPackage.length()) : className;
+    }
+
+    private static String getCommandLabel(ArgumentListBuilder argumentList) {
+        // only the executable and the subcommand, so credentials passed as arguments are not recorded
+        List<String> arguments = argumentList.toList();
+        return Joiner.on(' ').join(arguments.subList(0, Math.min(COMMAND_LABEL_ARGUMENTS, arguments.size())));
+    }
+
+    private String getNodeName() {
+        String nodeName = this.env.get(NODE_NAME_ENV);
+        return Strings.isNullOrEmpty(nodeName) ? UNKNOWN_TAG : nodeName;
+    }
+
+    private String getHubName() {
+        return Strings.isNullOrEmpty(this.hub) ? CommandMetricsRegistry.DEFAULT_HUB_TAG : this.hub;
+    }
+
     private IllegalStateException onLaunchFailure(ArgumentListBuilder args, Exception ex) {
         String errMsg = String.format("Execution of command (%s) failed", args);
         return new IllegalStateException(errMsg, ex);
@@ -122,6 +195,39 @@ public final class CommandDriver {
             return this;
         }
 
+        /**
+         * Hub used by the client, it is only used to tag the command metrics.
+         */
+        public DriverBuilder hub(@Nullable String hubUrl) {
+            this.client.hub = hubUrl;
+            return this;
+        }
+
+        /**
+         * Timeline of the build which records the launched commands.
+         */
+        public DriverBuilder timeline(@Nullable BuildTimelineAction timeline) {
+            this.client.timeline = timeline;
+            return this;
+        }
+
+        /**
+         * Action of the build which records the throughput of pushes.
+         */
+        public DriverBuilder pushMetrics(@Nullable PushMetricsAction pushMetrics) {
+            this.client.pushMetrics = pushMetrics;
+            return this;
+        }
+
+        /**
+         * Collects the command metrics instead of the registry. Used by code running on a node, which returns
+         * the samples to the controller.
+         */
+        public DriverBuilder samples(@Nullable List<CommandSample> samples) {
+            this.client.samples = samples;
+            return this;
+        }
+
         public DriverBuilder ignoreErrorCode(boolean ignoreErrorCode) {
             this.client.ignoreErrorCode = ignoreErrorCode;
             return this;
@@ -3,10 +3,13 @@ package org.jenkinsci.plugins.spoontrigger.commands;
 import com.google.common.io.Closeables;
 import hudson.util.ArgumentListBuilder;
 import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.PushProgressParser;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class FilterOutputCommand extends BaseCommand {
@@ -20,9 +23,13 @@ public class FilterOutputCommand extends BaseCommand {
     }
 
     public void run(CommandDriver client) throws IllegalStateException {
-        this.outputStream = new OutputStreamCollector(client.getLogger(), client.getCharset());
+        run(client, null);
+    }
+
+    protected void run(CommandDriver client, @Nullable PushProgressParser progressParser) throws IllegalStateException {
+        this.outputStream = new OutputStreamCollector(client.getLogger(), client.getCharset(), progressParser);
         try {
-            errorCode = client.launch(this.getArgumentList(), this.outputStream);
+            errorCode = client.launch(this, this.outputStream);
         } finally {
             try {
                 final boolean swallowException = true;
@@ -33,6 +40,17 @@ public class FilterOutputCommand extends BaseCommand {
         }
     }
 
+    /**
+     * Returns the trimmed lines of the output, empty lines and repeated lines are left out.
+     */
+    protected List<String> getOutputLines() {
+        if (outputStream == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(outputStream.getLines());
+    }
+
     protected Collection<String> findInOutput(Pattern pattern) {
         if (outputStream == null) {
             return Collections.emptyList();
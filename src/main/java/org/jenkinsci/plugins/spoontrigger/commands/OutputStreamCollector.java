@@ -4,14 +4,17 @@ import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import hudson.console.LineTransformationOutputStream;
 import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.metrics.PushProgressParser;
 import org.jenkinsci.plugins.spoontrigger.utils.Patterns;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,10 +32,19 @@ public class OutputStreamCollector extends LineTransformationOutputStream {
 
     private final PrintStream out;
     private final Charset charset;
+    @Nullable
+    private final PushProgressParser progressParser;
+    private final ProgressLineCompactor progressLineCompactor;
 
     public OutputStreamCollector(PrintStream out, Charset charset) {
+        this(out, charset, null);
+    }
+
+    public OutputStreamCollector(PrintStream out, Charset charset, @Nullable PushProgressParser progressParser) {
         this.out = out;
         this.charset = charset;
+        this.progressParser = progressParser;
+        this.progressLineCompactor = new ProgressLineCompactor();
 
         this.lines = new ArrayList<String>();
         this.lastLine = null;
@@ -50,6 +62,10 @@ public class OutputStreamCollector extends LineTransformationOutputStream {
             lineToUse = matcher.group("line");
         }
 
+        if (progressParser != null) {
+            progressParser.parse(lineToUse);
+        }
+
         if (lineToUse.equals(lastLine)) {
             // ignore duplicated lines
             return;
@@ -61,10 +77,25 @@ public class OutputStreamCollector extends LineTransformationOutputStream {
         }
 
         lastLine = lineToUse;
-        if (line.endsWith("\n")) {
-            this.out.println(lineToUse);
-        } else {
-            this.out.print(lineToUse);
+        // progress updates are collected above, only their summaries are written to the build log
+        List<String> linesToPrint = progressLineCompactor.accept(lineToUse, System.currentTimeMillis());
+        for (int position = 0; position < linesToPrint.size(); ++position) {
+            boolean currentLine = position == linesToPrint.size() - 1;
+            if (!currentLine || line.endsWith("\n")) {
+                this.out.println(linesToPrint.get(position));
+            } else {
+                this.out.print(linesToPrint.get(position));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+
+        Optional<String> lastProgressLine = progressLineCompactor.flush();
+        if (lastProgressLine.isPresent()) {
+            this.out.println(lastProgressLine.get());
         }
     }
 
@@ -0,0 +1,116 @@
+package org.jenkinsci.plugins.spoontrigger.commands;
+
+import com.google.common.base.Optional;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces runs of progress updates printed by turbo with periodic summaries. A run is a sequence of lines which
+ * differ only in numbers, for example {@code Pushing image 37%}. The first line of a run is printed, then a line is
+ * printed whenever the progress moved to the next step or the interval elapsed, and the last state is printed when
+ * the run ends.
+ */
+final class ProgressLineCompactor {
+
+    static final int DEFAULT_PERCENT_STEP = 10;
+    static final long DEFAULT_INTERVAL_MS = 30 * 1000L;
+
+    private static final Pattern PERCENT_PATTERN = Pattern.compile("(\\d{1,3}(?:[.,]\\d+)?)\\s*%");
+    private static final Pattern SIZE_PROGRESS_PATTERN = Pattern.compile(
+            "(\\d+(?:[.,]\\d+)?)\\s*([KMGT]?B)\\s*(?:/|of)\\s*(\\d+(?:[.,]\\d+)?)\\s*([KMGT]?B)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+(?:[.,]\\d+)?");
+
+    private final int percentStep;
+    private final long interval;
+
+    private String runKey;
+    private String pendingLine;
+    private double lastPrintedPercent;
+    private long lastPrintedTime;
+
+    ProgressLineCompactor() {
+        this(DEFAULT_PERCENT_STEP, DEFAULT_INTERVAL_MS);
+    }
+
+    ProgressLineCompactor(int percentStep, long interval) {
+        this.percentStep = percentStep;
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the lines which should be printed in place of the line.
+     */
+    List<String> accept(String line, long time) {
+        Optional<Double> percent = getPercent(line);
+        if (!percent.isPresent()) {
+            List<String> lines = new ArrayList<String>(2);
+            lines.addAll(flush().asSet());
+            lines.add(line);
+            return lines;
+        }
+
+        String key = NUMBER_PATTERN.matcher(line).replaceAll("#");
+        if (!key.equals(runKey)) {
+            List<String> lines = new ArrayList<String>(2);
+            lines.addAll(flush().asSet());
+            lines.add(line);
+            startRun(key, percent.get(), time);
+            return lines;
+        }
+
+        boolean nextStep = Math.floor(percent.get() / percentStep) > Math.floor(lastPrintedPercent / percentStep);
+        if (nextStep || time - lastPrintedTime >= interval) {
+            lastPrintedPercent = percent.get();
+            lastPrintedTime = time;
+            pendingLine = null;
+            return Collections.singletonList(line);
+        }
+
+        pendingLine = line;
+        return Collections.emptyList();
+    }
+
+    /**
+     * Ends the current run, returns its last state if it was not printed yet.
+     */
+    Optional<String> flush() {
+        Optional<String> line = Optional.fromNullable(pendingLine);
+        runKey = null;
+        pendingLine = null;
+        return line;
+    }
+
+    private void startRun(String key, double percent, long time) {
+        runKey = key;
+        pendingLine = null;
+        lastPrintedPercent = percent;
+        lastPrintedTime = time;
+    }
+
+    private static Optional<Double> getPercent(String line) {
+        Matcher percentMatcher = PERCENT_PATTERN.matcher(line);
+        if (percentMatcher.find()) {
+            return Optional.of(parseNumber(percentMatcher.group(1)));
+        }
+
+        Matcher sizeMatcher = SIZE_PROGRESS_PATTERN.matcher(line);
+        if (sizeMatcher.find()) {
+            long done = Sizes.parseSize(sizeMatcher.group(1), sizeMatcher.group(2));
+            long total = Sizes.parseSize(sizeMatcher.group(3), sizeMatcher.group(4));
+            if (total > 0) {
+                return Optional.of(100.0 * done / total);
+            }
+        }
+
+        return Optional.absent();
+    }
+
+    private static double parseNumber(String value) {
+        return Double.parseDouble(value.replace(',', '.'));
+    }
+}
@@ -0,0 +1,32 @@
+package org.jenkinsci.plugins.spoontrigger.commands.turbo;
+
+import hudson.util.ArgumentListBuilder;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.FilterOutputCommand;
+import org.jenkinsci.plugins.spoontrigger.metrics.PushProgressParser;
+
+/**
+ * Push which tracks the progress printed by turbo and records the transferred bytes and throughput in the client.
+ */
+abstract class BasePushCommand extends FilterOutputCommand {
+
+    private final String image;
+
+    BasePushCommand(ArgumentListBuilder argumentList, String image) {
+        super(argumentList);
+
+        this.image = image;
+    }
+
+    @Override
+    public void run(CommandDriver client) throws IllegalStateException {
+        PushProgressParser progressParser = new PushProgressParser();
+        boolean succeeded = false;
+        try {
+            run(client, progressParser);
+            succeeded = true;
+        } finally {
+            client.recordPush(progressParser, image, succeeded);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jenkinsci.plugins.spoontrigger.commands.turbo;
+
+import com.google.common.base.Joiner;
+import hudson.util.ArgumentListBuilder;
+import org.jenkinsci.plugins.spoontrigger.commands.FilterOutputCommand;
+
+import java.util.regex.Pattern;
+
+public class ImagesCommand extends FilterOutputCommand {
+
+    private ImagesCommand(ArgumentListBuilder argumentList) {
+        super(argumentList);
+    }
+
+    public boolean contains(String image) {
+        Pattern imagePattern = Pattern.compile("(?:^|\\s)(" + Pattern.quote(image) + ")(?:\\s|$)", Pattern.CASE_INSENSITIVE);
+        return !findInOutput(imagePattern).isEmpty();
+    }
+
+    /**
+     * Returns the table of images printed by the command.
+     */
+    public String getOutput() {
+        return Joiner.on('\n').join(getOutputLines());
+    }
+
+    public static CommandBuilder builder() {
+        return new CommandBuilder();
+    }
+
+    public static final class CommandBuilder {
+
+        public ImagesCommand build() {
+            ArgumentListBuilder imagesArgs = new ArgumentListBuilder(SPOON_CLIENT, "images");
+            return new ImagesCommand(imagesArgs);
+        }
+    }
+}
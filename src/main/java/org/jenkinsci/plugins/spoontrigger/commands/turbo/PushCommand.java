@@ -2,7 +2,6 @@ package org.jenkinsci.plugins.spoontrigger.commands.turbo;
 
 import com.google.common.base.Optional;
 import hudson.util.ArgumentListBuilder;
-import org.jenkinsci.plugins.spoontrigger.commands.FilterOutputCommand;
 import org.jenkinsci.plugins.spoontrigger.utils.Patterns;
 
 import java.util.ArrayList;
@@ -14,10 +13,10 @@ import static com.google.common.base.Preconditions.checkState;
 import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_PRESENT_S;
 import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_SINGLE_WORD_SP;
 
-public final class PushCommand extends FilterOutputCommand {
+public final class PushCommand extends BasePushCommand {
 
-    private PushCommand(ArgumentListBuilder argumentList) {
-        super(argumentList);
+    private PushCommand(ArgumentListBuilder argumentList, String image) {
+        super(argumentList, image);
     }
 
     public static CommandBuilder builder() {
@@ -51,7 +50,7 @@ public final class PushCommand extends FilterOutputCommand {
                 args.add(this.remoteImageName.get());
             }
 
-            return new PushCommand(args);
+            return new PushCommand(args, this.remoteImageName.or(this.imageName).get());
         }
     }
 }
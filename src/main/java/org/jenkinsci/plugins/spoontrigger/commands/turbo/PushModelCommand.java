@@ -2,7 +2,6 @@ package org.jenkinsci.plugins.spoontrigger.commands.turbo;
 
 import com.google.common.base.Optional;
 import hudson.util.ArgumentListBuilder;
-import org.jenkinsci.plugins.spoontrigger.commands.FilterOutputCommand;
 import org.jenkinsci.plugins.spoontrigger.utils.Patterns;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -10,10 +9,10 @@ import static com.google.common.base.Preconditions.checkState;
 import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_PRESENT_S;
 import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_SINGLE_WORD_SP;
 
-public class PushModelCommand extends FilterOutputCommand {
+public class PushModelCommand extends BasePushCommand {
 
-    PushModelCommand(ArgumentListBuilder argumentList) {
-        super(argumentList);
+    PushModelCommand(ArgumentListBuilder argumentList, String image) {
+        super(argumentList, image);
     }
 
     public static CommandBuilder builder() {
@@ -52,7 +51,7 @@ public class PushModelCommand extends FilterOutputCommand {
             }
             args.add(modelDirectory.get());
 
-            return new PushModelCommand(args);
+            return new PushModelCommand(args, remoteImage.or(localImage).get());
         }
     }
 }
@@ -14,6 +14,7 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
+import org.jenkinsci.plugins.spoontrigger.BuildTimelineAction;
 import org.jenkinsci.plugins.spoontrigger.SpoonBuild;
 import org.jenkinsci.plugins.spoontrigger.TurboTool;
 
@@ -33,6 +34,8 @@ public class HubApi {
     private final String hubUrl;
     private final String hubApiKey;
     private final BuildListener listener;
+    @Nullable
+    private BuildTimelineAction timeline;
 
     public static HubApi create(SpoonBuild build, BuildListener listener) {
         return create(build, listener, null);
@@ -43,7 +46,9 @@ public class HubApi {
 
         TurboTool turboInstallation = TurboTool.getDefaultInstallation();
         final String hubApiKey = turboInstallation.getHubApiKey();
-        return new HubApi(hubUrl, hubApiKey, listener);
+        HubApi hubApi = new HubApi(hubUrl, hubApiKey, listener);
+        hubApi.timeline = BuildTimelineAction.of(build);
+        return hubApi;
     }
 
     public HubApi(String hubUrl, String hubApiKey, BuildListener listener) {
@@ -125,7 +130,15 @@ public class HubApi {
 
     private Optional<JSONArray> getTags(Image image) throws Exception {
         URI uri = getRepoUrl(image);
-        Optional<JSONObject> jsonObject = getJsonObject(uri);
+        long startTime = System.currentTimeMillis();
+        Optional<JSONObject> jsonObject;
+        try {
+            jsonObject = getJsonObject(uri);
+        } finally {
+            if (timeline != null) {
+                timeline.record(BuildTimelineAction.CATEGORY_HUB, "tags " + image.getNamespace() + "/" + image.getRepo(), startTime, System.currentTimeMillis());
+            }
+        }
 
         if (!jsonObject.isPresent()) {
             return Optional.absent();
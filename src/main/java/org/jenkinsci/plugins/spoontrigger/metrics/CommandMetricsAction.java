@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Exposes the {@link CommandMetricsRegistry} of the controller as JSON at /turbo-metrics/ and in the Prometheus text
+ * format at /turbo-metrics/prometheus.
+ */
+@Extension
+public class CommandMetricsAction implements RootAction {
+
+    private static final String URL_NAME = "turbo-metrics";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Turbo Command Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.READ);
+
+        response.setContentType("application/json; charset=utf-8");
+        PrintWriter writer = response.getWriter();
+        writer.print(CommandMetricsRegistry.getInstance().toJson().toString());
+        writer.flush();
+    }
+
+    public void doPrometheus(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.READ);
+
+        response.setContentType(PROMETHEUS_CONTENT_TYPE);
+        PrintWriter writer = response.getWriter();
+        writer.print(CommandMetricsRegistry.getInstance().toPrometheus());
+        writer.flush();
+    }
+}
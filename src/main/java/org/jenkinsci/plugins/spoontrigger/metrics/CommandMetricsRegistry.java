@@ -0,0 +1,223 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects timing, exit codes and output size of the commands launched by {@link org.jenkinsci.plugins.spoontrigger.commands.CommandDriver}.
+ * Measurements are grouped by command type, node and hub. The registry lives in memory of the controller, so it is
+ * reset when Jenkins restarts. Commands launched by code running on a node are collected as {@link CommandSample}s
+ * and recorded when they are returned to the controller.
+ */
+public class CommandMetricsRegistry {
+
+    /**
+     * Upper bounds of the duration histogram buckets in seconds.
+     */
+    static final double[] BUCKET_BOUNDS = {0.5, 1, 5, 10, 30, 60, 120, 300, 600, 1800, 3600};
+    static final int MAX_SAMPLES = 1024;
+
+    /**
+     * Hub tag of the commands launched without a hub set.
+     */
+    public static final String DEFAULT_HUB_TAG = "default";
+
+    private static final CommandMetricsRegistry INSTANCE = new CommandMetricsRegistry();
+
+    private final Map<Key, CommandStats> stats = new LinkedHashMap<Key, CommandStats>();
+
+    public static CommandMetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param exitCode exit code of the process, null if the process could not be launched
+     */
+    public synchronized void record(String command, String node, String hub, long durationMs, Integer exitCode, long outputBytes) {
+        Key key = new Key(command, node, hub);
+        CommandStats commandStats = stats.get(key);
+        if (commandStats == null) {
+            commandStats = new CommandStats();
+            stats.put(key, commandStats);
+        }
+        commandStats.add(durationMs, exitCode, outputBytes);
+    }
+
+    /**
+     * Records a command measured on a node with the hub of the build which launched it.
+     */
+    public void record(CommandSample sample, @Nullable String hubUrl) {
+        String hub = Strings.isNullOrEmpty(hubUrl) ? DEFAULT_HUB_TAG : hubUrl;
+        record(sample.getCommand(), sample.getNode(), hub, sample.getDurationMs(), sample.getExitCode(), sample.getOutputBytes());
+    }
+
+    public synchronized void clear() {
+        stats.clear();
+    }
+
+    public synchronized JSONObject toJson() {
+        JSONArray commands = new JSONArray();
+        for (Map.Entry<Key, CommandStats> entry : stats.entrySet()) {
+            Key key = entry.getKey();
+            CommandStats commandStats = entry.getValue();
+
+            JSONObject command = new JSONObject();
+            command.put("command", key.command);
+            command.put("node", key.node);
+            command.put("hub", key.hub);
+            command.put("count", commandStats.count);
+            command.put("failures", commandStats.failures);
+            command.put("outputBytes", commandStats.outputBytes);
+            command.put("totalDurationMs", commandStats.totalDurationMs);
+            command.put("p50DurationMs", commandStats.getPercentile(50));
+            command.put("p95DurationMs", commandStats.getPercentile(95));
+            command.put("p99DurationMs", commandStats.getPercentile(99));
+            command.put("exitCodes", commandStats.getExitCodes());
+            commands.add(command);
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("commands", commands);
+        return result;
+    }
+
+    /**
+     * Returns the metrics in the Prometheus text exposition format.
+     */
+    public synchronized String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+
+        out.append("# HELP turbo_command_duration_seconds Duration of commands launched by the Turbo plugin.\n");
+        out.append("# TYPE turbo_command_duration_seconds histogram\n");
+        for (Map.Entry<Key, CommandStats> entry : stats.entrySet()) {
+            String labels = entry.getKey().toLabels();
+            CommandStats commandStats = entry.getValue();
+
+            long cumulativeCount = 0;
+            for (int position = 0; position < BUCKET_BOUNDS.length; ++position) {
+                cumulativeCount += commandStats.buckets[position];
+                appendSample(out, "turbo_command_duration_seconds_bucket", labels + ",le=\"" + formatDouble(BUCKET_BOUNDS[position]) + "\"", cumulativeCount);
+            }
+            appendSample(out, "turbo_command_duration_seconds_bucket", labels + ",le=\"+Inf\"", commandStats.count);
+            appendSample(out, "turbo_command_duration_seconds_sum", labels, formatDouble(commandStats.totalDurationMs / 1000.0));
+            appendSample(out, "turbo_command_duration_seconds_count", labels, commandStats.count);
+        }
+
+        out.append("# HELP turbo_command_failures_total Commands which failed to launch or returned a non-zero exit code.\n");
+        out.append("# TYPE turbo_command_failures_total counter\n");
+        for (Map.Entry<Key, CommandStats> entry : stats.entrySet()) {
+            appendSample(out, "turbo_command_failures_total", entry.getKey().toLabels(), entry.getValue().failures);
+        }
+
+        out.append("# HELP turbo_command_output_bytes_total Bytes written by commands to the standard output.\n");
+        out.append("# TYPE turbo_command_output_bytes_total counter\n");
+        for (Map.Entry<Key, CommandStats> entry : stats.entrySet()) {
+            appendSample(out, "turbo_command_output_bytes_total", entry.getKey().toLabels(), entry.getValue().outputBytes);
+        }
+
+        return out.toString();
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String formatDouble(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Key {
+        private final String command;
+        private final String node;
+        private final String hub;
+
+        Key(String command, String node, String hub) {
+            this.command = command;
+            this.node = node;
+            this.hub = hub;
+        }
+
+        String toLabels() {
+            return String.format("command=\"%s\",node=\"%s\",hub=\"%s\"",
+                    escapeLabelValue(command), escapeLabelValue(node), escapeLabelValue(hub));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return command.equals(other.command) && node.equals(other.node) && hub.equals(other.hub);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(command, node, hub);
+        }
+    }
+
+    private static final class CommandStats {
+        private final long[] buckets = new long[BUCKET_BOUNDS.length];
+        private final long[] samples = new long[MAX_SAMPLES];
+        private final Map<String, Long> exitCodes = new LinkedHashMap<String, Long>();
+        private long count;
+        private long failures;
+        private long totalDurationMs;
+        private long outputBytes;
+
+        void add(long durationMs, Integer exitCode, long bytes) {
+            // the latest samples are kept for percentiles, older ones are overwritten
+            samples[(int) (count % MAX_SAMPLES)] = durationMs;
+            ++count;
+            totalDurationMs += durationMs;
+            outputBytes += bytes;
+
+            if (exitCode == null || exitCode != 0) {
+                ++failures;
+            }
+
+            String exitCodeKey = exitCode == null ? "launchFailure" : String.valueOf(exitCode);
+            Long exitCodeCount = exitCodes.get(exitCodeKey);
+            exitCodes.put(exitCodeKey, exitCodeCount == null ? 1L : exitCodeCount + 1L);
+
+            double durationSeconds = durationMs / 1000.0;
+            for (int position = 0; position < BUCKET_BOUNDS.length; ++position) {
+                if (durationSeconds <= BUCKET_BOUNDS[position]) {
+                    ++buckets[position];
+                    break;
+                }
+            }
+        }
+
+        long getPercentile(int percentile) {
+            int sampleCount = (int) Math.min(count, MAX_SAMPLES);
+            if (sampleCount == 0) {
+                return 0L;
+            }
+
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sampleCount);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+
+        Map<String, Long> getExitCodes() {
+            return Collections.unmodifiableMap(exitCodes);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * Measurement of a command launched on a node, where the {@link CommandMetricsRegistry} of the controller is not
+ * reachable. Samples are returned to the controller, which records them with the hub of the build.
+ */
+public class CommandSample implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final String command;
+    @Getter
+    private final String node;
+    @Getter
+    private final long durationMs;
+    @Nullable
+    @Getter
+    private final Integer exitCode;
+    @Getter
+    private final long outputBytes;
+
+    public CommandSample(String command, String node, long durationMs, @Nullable Integer exitCode, long outputBytes) {
+        this.command = command;
+        this.node = node;
+        this.durationMs = durationMs;
+        this.exitCode = exitCode;
+        this.outputBytes = outputBytes;
+    }
+}
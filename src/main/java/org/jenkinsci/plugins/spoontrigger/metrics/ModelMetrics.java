@@ -0,0 +1,97 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.Serializable;
+
+/**
+ * Measurements of a streaming model build. Sizes are in bytes and durations in milliseconds, a duration is zero
+ * if the step did not run.
+ */
+@ExportedBean
+public class ModelMetrics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long bufferSize;
+    private int transcriptCount;
+    private long transcriptSize;
+    private long profileDuration;
+    private long modelDuration;
+    private long pushDuration;
+    private boolean cached;
+    private boolean pushed;
+
+    @Exported
+    public long getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(long bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Exported
+    public int getTranscriptCount() {
+        return transcriptCount;
+    }
+
+    public void setTranscriptCount(int transcriptCount) {
+        this.transcriptCount = transcriptCount;
+    }
+
+    @Exported
+    public long getTranscriptSize() {
+        return transcriptSize;
+    }
+
+    public void setTranscriptSize(long transcriptSize) {
+        this.transcriptSize = transcriptSize;
+    }
+
+    @Exported
+    public long getProfileDuration() {
+        return profileDuration;
+    }
+
+    public void setProfileDuration(long profileDuration) {
+        this.profileDuration = profileDuration;
+    }
+
+    @Exported
+    public long getModelDuration() {
+        return modelDuration;
+    }
+
+    public void setModelDuration(long modelDuration) {
+        this.modelDuration = modelDuration;
+    }
+
+    @Exported
+    public long getPushDuration() {
+        return pushDuration;
+    }
+
+    public void setPushDuration(long pushDuration) {
+        this.pushDuration = pushDuration;
+    }
+
+    @Exported
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    @Exported
+    public boolean isPushed() {
+        return pushed;
+    }
+
+    public void setPushed(boolean pushed) {
+        this.pushed = pushed;
+    }
+}
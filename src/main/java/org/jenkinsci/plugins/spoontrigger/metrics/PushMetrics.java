@@ -0,0 +1,106 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.Serializable;
+
+/**
+ * Measurements of a single push to a hub. Sizes are in bytes and durations in milliseconds. The transfer duration
+ * ends with the last progress update, so the time the hub spends on committing the image does not lower the throughput.
+ */
+@ExportedBean
+public class PushMetrics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String hub;
+    private final String image;
+    private boolean succeeded;
+    private long transferredBytes;
+    private long duration;
+    private long transferDuration;
+    private int stallCount;
+    private long stallDuration;
+
+    public PushMetrics(String hub, String image) {
+        this.hub = hub;
+        this.image = image;
+    }
+
+    @Exported
+    public String getHub() {
+        return hub;
+    }
+
+    @Exported
+    public String getImage() {
+        return image;
+    }
+
+    @Exported
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(boolean succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    @Exported
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public void setTransferredBytes(long transferredBytes) {
+        this.transferredBytes = transferredBytes;
+    }
+
+    @Exported
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    @Exported
+    public long getTransferDuration() {
+        return transferDuration;
+    }
+
+    public void setTransferDuration(long transferDuration) {
+        this.transferDuration = transferDuration;
+    }
+
+    @Exported
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    public void setStallCount(int stallCount) {
+        this.stallCount = stallCount;
+    }
+
+    @Exported
+    public long getStallDuration() {
+        return stallDuration;
+    }
+
+    public void setStallDuration(long stallDuration) {
+        this.stallDuration = stallDuration;
+    }
+
+    /**
+     * Returns the achieved throughput in bytes per second, zero if turbo did not report any progress.
+     */
+    @Exported
+    public long getThroughput() {
+        long window = transferDuration > 0 ? transferDuration : duration;
+        if (window <= 0) {
+            return 0L;
+        }
+        return transferredBytes * 1000L / window;
+    }
+}
@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the progress lines printed by turbo while an image or a model is pushed, for example
+ * {@code Pushing layer 12.5 MB / 40.2 MB}. Lines are parsed one by one as they are written by the process,
+ * so the time of each progress update is known. A drop of the transferred size is treated as the start of
+ * the next file, its bytes are added to the bytes of the previous files.
+ */
+public class PushProgressParser {
+
+    /**
+     * Minimal period without progress which is counted as a stall.
+     */
+    static final long STALL_THRESHOLD_MS = 10 * 1000L;
+
+    private static final Pattern PROGRESS_PATTERN = Pattern.compile(
+            "(?<done>\\d+(?:[.,]\\d+)?)\\s*(?<doneUnit>[KMGT]?B)\\s*(?:/|of)\\s*(?<total>\\d+(?:[.,]\\d+)?)\\s*(?<totalUnit>[KMGT]?B)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final long startTime;
+
+    private long completedBytes;
+    private long currentBytes;
+    private long firstProgressTime = -1L;
+    private long lastProgressTime = -1L;
+    private int stallCount;
+    private long stallDuration;
+
+    public PushProgressParser() {
+        this(System.currentTimeMillis());
+    }
+
+    PushProgressParser(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public void parse(String line) {
+        parse(line, System.currentTimeMillis());
+    }
+
+    void parse(String line, long time) {
+        Matcher matcher = PROGRESS_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+
+        long doneBytes = Sizes.parseSize(matcher.group("done"), matcher.group("doneUnit"));
+        if (doneBytes < currentBytes) {
+            completedBytes += currentBytes;
+        } else if (doneBytes == currentBytes) {
+            return;
+        }
+        currentBytes = doneBytes;
+
+        // the time before the first update is spent on preparing the push, it is not counted as a stall
+        if (firstProgressTime < 0) {
+            firstProgressTime = time;
+        } else if (time - lastProgressTime >= STALL_THRESHOLD_MS) {
+            ++stallCount;
+            stallDuration += time - lastProgressTime;
+        }
+        lastProgressTime = time;
+    }
+
+    public PushMetrics finish(String hub, String image, boolean succeeded) {
+        return finish(hub, image, succeeded, System.currentTimeMillis());
+    }
+
+    PushMetrics finish(String hub, String image, boolean succeeded, long endTime) {
+        PushMetrics metrics = new PushMetrics(hub, image);
+        metrics.setSucceeded(succeeded);
+        metrics.setTransferredBytes(completedBytes + currentBytes);
+        metrics.setDuration(Math.max(endTime - startTime, 0L));
+        metrics.setTransferDuration(firstProgressTime < 0 ? 0L : lastProgressTime - startTime);
+        metrics.setStallCount(stallCount);
+        metrics.setStallDuration(stallDuration);
+        return metrics;
+    }
+}
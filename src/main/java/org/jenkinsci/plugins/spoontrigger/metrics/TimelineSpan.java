@@ -0,0 +1,40 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Interval of a build spent in one step, command or remote call. Times are in milliseconds since the epoch.
+ */
+public class TimelineSpan implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final String category;
+    @Getter
+    private final String label;
+    @Getter
+    private final long start;
+    @Getter
+    private final long end;
+
+    public TimelineSpan(String category, String label, long start, long end) {
+        this.category = category;
+        this.label = label;
+        this.start = start;
+        this.end = Math.max(start, end);
+    }
+
+    public long getDuration() {
+        return end - start;
+    }
+
+    /**
+     * Returns the span moved by the offset, used to align spans measured by the clock of another node.
+     */
+    public TimelineSpan shift(long offset) {
+        return new TimelineSpan(category, label, start + offset, end + offset);
+    }
+}
@@ -0,0 +1,162 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import com.google.common.base.Optional;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.BuildCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.utils.Credentials;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRED_PARAMETER;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_NON_EMPTY_STRING_S;
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Pipeline equivalent of the TurboScript builder. The script path is resolved against the workspace.
+ */
+public class TurboBuildStep extends TurboStep {
+
+    @Getter
+    private final String scriptFilePath;
+    @Nullable
+    @Getter
+    private String imageName;
+    @Nullable
+    @Getter
+    private String vmVersion;
+    @Nullable
+    @Getter
+    private String credentialsId;
+    @Nullable
+    @Getter
+    private String hubUrl;
+    @Getter
+    private boolean noBase = true;
+    @Getter
+    private boolean overwrite;
+    @Getter
+    private boolean diagnostic;
+
+    @DataBoundConstructor
+    public TurboBuildStep(String scriptFilePath) {
+        this.scriptFilePath = Util.fixEmptyAndTrim(scriptFilePath);
+    }
+
+    @DataBoundSetter
+    public void setImageName(@Nullable String imageName) {
+        this.imageName = Util.fixEmptyAndTrim(imageName);
+    }
+
+    @DataBoundSetter
+    public void setVmVersion(@Nullable String vmVersion) {
+        this.vmVersion = Util.fixEmptyAndTrim(vmVersion);
+    }
+
+    @DataBoundSetter
+    public void setCredentialsId(@Nullable String credentialsId) {
+        this.credentialsId = Util.fixEmptyAndTrim(credentialsId);
+    }
+
+    @DataBoundSetter
+    public void setHubUrl(@Nullable String hubUrl) {
+        this.hubUrl = Util.fixEmptyAndTrim(hubUrl);
+    }
+
+    @DataBoundSetter
+    public void setNoBase(boolean noBase) {
+        this.noBase = noBase;
+    }
+
+    @DataBoundSetter
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    @DataBoundSetter
+    public void setDiagnostic(boolean diagnostic) {
+        this.diagnostic = diagnostic;
+    }
+
+    @Override
+    protected void perform(TurboContext turboContext, Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
+        checkState(scriptFilePath != null, REQUIRE_NON_EMPTY_STRING_S, "script file path");
+
+        FilePath script = workspace.child(run.getEnvironment(listener).expand(scriptFilePath));
+        checkState(script.exists(), "Failed to find the script file (%s) in the workspace (%s)", scriptFilePath, workspace.getRemote());
+
+        CommandDriver loginClient = driverBuilder(run, workspace, launcher, listener).build();
+        login(turboContext, loginClient, getNodeName(workspace), hubUrl, credentialsId);
+
+        CommandDriver client = driverBuilder(run, script.getParent(), launcher, listener).ignoreErrorCode(true).build();
+        BuildCommand command = createBuildCommand(script);
+        command.run(client);
+
+        Optional<Image> outputImage = command.getOutputImage();
+        checkState(outputImage.isPresent(), "Failed to find the output image in the build process output");
+
+        turboContext.setOutputImage(outputImage.get());
+        log(listener, String.format("Image %s saved in context %s", outputImage.get().printIdentifier(), getContext()));
+    }
+
+    private BuildCommand createBuildCommand(FilePath script) {
+        BuildCommand.CommandBuilder cmdBuilder = BuildCommand.builder().script(script);
+        if (imageName != null) {
+            cmdBuilder.image(imageName);
+        }
+
+        if (vmVersion != null) {
+            cmdBuilder.vmVersion(vmVersion);
+        }
+
+        cmdBuilder.diagnostic(diagnostic);
+        cmdBuilder.overwrite(overwrite);
+        cmdBuilder.noBase(noBase);
+
+        return cmdBuilder.build();
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        public FormValidation doCheckScriptFilePath(@QueryParameter String value) {
+            if (Util.fixEmptyAndTrim(value) == null) {
+                return FormValidation.error(REQUIRED_PARAMETER);
+            }
+            return FormValidation.ok();
+        }
+
+        public ListBoxModel doFillCredentialsIdItems(@AncestorInPath Item project) {
+            return Credentials.fillCredentialsIdItems(project);
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Build Turbo image";
+        }
+    }
+}
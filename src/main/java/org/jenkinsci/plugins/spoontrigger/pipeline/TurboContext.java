@@ -0,0 +1,74 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * State shared by the steps of one Pipeline context, the equivalent of the image related fields of a SpoonBuild.
+ * Parallel branches use separate contexts, so their images do not overwrite each other.
+ */
+public final class TurboContext implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String outputImage;
+    private String remoteImage;
+    private String hubUrl;
+    private String credentialsId;
+    // node and requested hub of the last configuration of the Turbo client, the configuration is global to a node
+    private String configuredNode;
+    private String configuredHubUrl;
+
+    public synchronized Optional<Image> getOutputImage() {
+        return outputImage == null ? Optional.<Image>absent() : Optional.of(Image.parse(outputImage));
+    }
+
+    public synchronized void setOutputImage(Image image) {
+        this.outputImage = image.printIdentifier();
+        this.remoteImage = null;
+    }
+
+    public synchronized Optional<Image> getRemoteImage() {
+        return remoteImage == null ? Optional.<Image>absent() : Optional.of(Image.parse(remoteImage));
+    }
+
+    public synchronized void setRemoteImage(Image image) {
+        this.remoteImage = image.printIdentifier();
+    }
+
+    public synchronized Optional<String> getHubUrl() {
+        return Optional.fromNullable(hubUrl);
+    }
+
+    /**
+     * @return true if this context has configured the Turbo client of the node for the hub, either requested
+     * explicitly or as the hub the client reported
+     */
+    public synchronized boolean isHubConfigured(String nodeName, @Nullable String hubUrl) {
+        if (!nodeName.equals(configuredNode)) {
+            return false;
+        }
+        return Objects.equal(hubUrl, configuredHubUrl) || (hubUrl != null && hubUrl.equals(this.hubUrl));
+    }
+
+    /**
+     * Remembers the hub requested on the node and the hub the Turbo client reported after the configuration.
+     */
+    public synchronized void setConfiguredHub(@Nullable String nodeName, @Nullable String requestedHubUrl, @Nullable String hubUrl) {
+        this.configuredNode = nodeName;
+        this.configuredHubUrl = requestedHubUrl;
+        this.hubUrl = hubUrl;
+    }
+
+    public synchronized Optional<String> getCredentialsId() {
+        return Optional.fromNullable(credentialsId);
+    }
+
+    public synchronized void setCredentialsId(@Nullable String credentialsId) {
+        this.credentialsId = credentialsId;
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the Turbo contexts of a run. The run is saved after every step, so images built before a restart of Jenkins
+ * are still known to the steps which run after it.
+ */
+public class TurboContextAction extends InvisibleAction {
+
+    public static final String DEFAULT_CONTEXT = "default";
+
+    private final HashMap<String, TurboContext> contexts = new HashMap<String, TurboContext>();
+
+    public static TurboContext getContext(Run<?, ?> run, String name) {
+        TurboContextAction action;
+        synchronized (run) {
+            action = run.getAction(TurboContextAction.class);
+            if (action == null) {
+                action = new TurboContextAction();
+                run.addAction(action);
+            }
+        }
+        return action.getOrCreate(name);
+    }
+
+    public synchronized Map<String, TurboContext> getContexts() {
+        return Collections.unmodifiableMap(new HashMap<String, TurboContext>(contexts));
+    }
+
+    private synchronized TurboContext getOrCreate(String name) {
+        TurboContext context = contexts.get(name);
+        if (context == null) {
+            context = new TurboContext();
+            contexts.put(name, context);
+        }
+        return context;
+    }
+}
@@ -0,0 +1,93 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import com.google.common.base.Optional;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.PushCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.push.HubPushThrottle;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_OUTPUT_IMAGE;
+
+/**
+ * Pipeline equivalent of the push builder. Pushes the image built in the same context.
+ */
+public class TurboPushStep extends TurboStep {
+
+    @Nullable
+    @Getter
+    private String remoteImageName;
+    @Nullable
+    @Getter
+    private String hubUrl;
+
+    @DataBoundConstructor
+    public TurboPushStep() {
+    }
+
+    @DataBoundSetter
+    public void setRemoteImageName(@Nullable String remoteImageName) {
+        this.remoteImageName = Util.fixEmptyAndTrim(remoteImageName);
+    }
+
+    /**
+     * Hub to push to, by default the image is pushed to the hub it was built with.
+     */
+    @DataBoundSetter
+    public void setHubUrl(@Nullable String hubUrl) {
+        this.hubUrl = Util.fixEmptyAndTrim(hubUrl);
+    }
+
+    @Override
+    protected void perform(TurboContext turboContext, Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
+        Optional<Image> localImage = turboContext.getOutputImage();
+        checkState(localImage.isPresent(), REQUIRE_OUTPUT_IMAGE);
+
+        CommandDriver client = driverBuilder(run, workspace, launcher, listener).build();
+        login(turboContext, client, getNodeName(workspace), hubUrl != null ? hubUrl : turboContext.getHubUrl().orNull(), turboContext.getCredentialsId().orNull());
+
+        PushCommand.CommandBuilder cmdBuilder = PushCommand.builder().image(localImage.get().printIdentifier());
+        if (remoteImageName != null) {
+            Image remoteImage = Image.parse(run.getEnvironment(listener).expand(remoteImageName));
+            cmdBuilder.remoteImage(remoteImage.printIdentifier());
+            turboContext.setRemoteImage(remoteImage);
+        }
+
+        PushCommand command = cmdBuilder.build();
+        HubPushThrottle.Permit permit = HubPushThrottle.getInstance().acquire(turboContext.getHubUrl().orNull(), run, listener);
+        try {
+            command.run(client);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Push Turbo image";
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import com.google.common.base.Optional;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.RemoveImageCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.IOException;
+
+/**
+ * Pipeline equivalent of the remove image publisher. Removes the image built in the context from the node.
+ */
+public class TurboRemoveImageStep extends TurboStep {
+
+    @DataBoundConstructor
+    public TurboRemoveImageStep() {
+    }
+
+    @Override
+    protected void perform(TurboContext turboContext, Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
+        Optional<Image> outputImage = turboContext.getOutputImage();
+        if (!outputImage.isPresent()) {
+            listener.getLogger().println(String.format("No image was built in context %s", getContext()));
+            return;
+        }
+
+        CommandDriver client = driverBuilder(run, workspace, launcher, listener).ignoreErrorCode(true).build();
+        RemoveImageCommand command = RemoveImageCommand.builder().image(outputImage.get().printIdentifier()).build();
+        command.run(client);
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Remove Turbo image";
+        }
+    }
+}
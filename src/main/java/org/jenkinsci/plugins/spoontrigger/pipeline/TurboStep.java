@@ -0,0 +1,122 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.google.common.base.Optional;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.Builder;
+import jenkins.tasks.SimpleBuildStep;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.PushMetricsAction;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.ConfigCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.LoginCommand;
+import org.jenkinsci.plugins.spoontrigger.utils.Credentials;
+import org.jenkinsci.plugins.spoontrigger.utils.TaskListeners;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Base of the steps which can run in Pipeline parallel branches. Unlike the builders of a Spoon project, the steps
+ * do not keep state in the build, they read and update the {@link TurboContext} selected by {@link #getContext()}.
+ */
+public abstract class TurboStep extends Builder implements SimpleBuildStep {
+
+    @Getter
+    private String context = TurboContextAction.DEFAULT_CONTEXT;
+
+    @DataBoundSetter
+    public void setContext(@Nullable String context) {
+        String contextToUse = Util.fixEmptyAndTrim(context);
+        this.context = (contextToUse == null) ? TurboContextAction.DEFAULT_CONTEXT : contextToUse;
+    }
+
+    @Override
+    public final void perform(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
+        try {
+            TurboContext turboContext = TurboContextAction.getContext(run, context);
+            perform(turboContext, run, workspace, launcher, listener);
+        } catch (IllegalStateException ex) {
+            TaskListeners.logFatalError(listener, ex);
+            throw new AbortException(ex.getMessage());
+        } finally {
+            saveContext(run, listener);
+        }
+    }
+
+    private static void saveContext(Run<?, ?> run, TaskListener listener) {
+        // the context is kept in an action of the run, which is not saved until the run completes
+        try {
+            run.save();
+        } catch (IOException ex) {
+            listener.getLogger().println(String.format("Failed to save the Turbo context of %s: %s", run, ex.getMessage()));
+        }
+    }
+
+    protected abstract void perform(TurboContext turboContext, Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws InterruptedException, IOException;
+
+    protected static CommandDriver.DriverBuilder driverBuilder(Run<?, ?> run, FilePath pwd, Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
+        EnvVars env = run.getEnvironment(listener);
+        return CommandDriver.builder()
+                .charset(run.getCharset())
+                .env(env)
+                .pwd(pwd)
+                .launcher(launcher)
+                .listener(listener)
+                .pushMetrics(PushMetricsAction.of(run));
+    }
+
+    @Nullable
+    protected static String getNodeName(FilePath workspace) {
+        Computer computer = workspace.toComputer();
+        return (computer == null) ? null : computer.getName();
+    }
+
+    /**
+     * Switches the hub used by the Turbo client on the node and logs in, the hub and credentials are remembered
+     * in the context for the steps which run later.
+     * <p>
+     * The hub is a setting of the Turbo client, so it is global to the node. The hub is switched only if it differs
+     * from the hub this context has configured on the node, without a hub it is reset to the default one. Parallel
+     * branches which run on the same node must use the same hub, otherwise they switch the hub of each other.
+     */
+    protected static void login(TurboContext turboContext, CommandDriver client, @Nullable String nodeName, @Nullable String hubUrl, @Nullable String credentialsId) {
+        if (nodeName == null || !turboContext.isHubConfigured(nodeName, hubUrl)) {
+            ConfigCommand.CommandBuilder configBuilder = ConfigCommand.builder();
+            if (hubUrl == null) {
+                configBuilder.reset(true);
+            } else {
+                configBuilder.hub(hubUrl);
+            }
+
+            ConfigCommand configCommand = configBuilder.build();
+            configCommand.run(client);
+            turboContext.setConfiguredHub(nodeName, hubUrl, configCommand.getHub().orNull());
+        }
+        client.setHub(turboContext.getHubUrl().orNull());
+
+        if (credentialsId == null) {
+            return;
+        }
+
+        Optional<StandardUsernamePasswordCredentials> credentials = Credentials.lookupById(StandardUsernamePasswordCredentials.class, credentialsId);
+        checkState(credentials.isPresent(), "Cannot find any credentials with id (%s)", credentialsId);
+
+        LoginCommand loginCommand = LoginCommand.builder()
+                .login(credentials.get().getUsername())
+                .password(credentials.get().getPassword())
+                .build();
+        loginCommand.run(client);
+        turboContext.setCredentialsId(credentialsId);
+    }
+}
@@ -0,0 +1,227 @@
+package org.jenkinsci.plugins.spoontrigger.push;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.spoontrigger.BuildTimelineAction;
+import org.jenkinsci.plugins.spoontrigger.TurboTool;
+import org.jenkinsci.plugins.spoontrigger.hub.HubApi;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Limits the number of concurrent pushes to a hub from all builds of the controller. Limits and project priorities
+ * are configured in the global configuration of {@link TurboTool}, hubs without a limit are not throttled.
+ * A waiting push of a project with a higher priority acquires the next free slot, pushes of the same priority
+ * are served in order of arrival.
+ */
+public final class HubPushThrottle {
+
+    public static final int UNLIMITED = 0;
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static final Pattern SETTING_PATTERN = Pattern.compile("^(?<name>.+?)\\s+(?<number>\\S+)$");
+    private static final HubPushThrottle INSTANCE = new HubPushThrottle();
+
+    private static final Comparator<Waiter> BY_PRIORITY = new Comparator<Waiter>() {
+        @Override
+        public int compare(Waiter left, Waiter right) {
+            if (left.priority != right.priority) {
+                return left.priority > right.priority ? -1 : 1;
+            }
+            return left.sequenceNumber < right.sequenceNumber ? -1 : (left.sequenceNumber == right.sequenceNumber ? 0 : 1);
+        }
+    };
+
+    private final Map<String, HubQueue> queues = new HashMap<String, HubQueue>();
+    private long nextSequenceNumber;
+
+    HubPushThrottle() {
+    }
+
+    public static HubPushThrottle getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until a push to the hub is allowed. The wait is logged and recorded in the build timeline.
+     *
+     * @param hubUrl hub used by the push, null for the default hub
+     */
+    public Permit acquire(@Nullable String hubUrl, Run<?, ?> run, TaskListener listener) throws InterruptedException {
+        String hub = normalizeHubUrl(hubUrl);
+        TurboTool.DescriptorImpl settings = TurboTool.getDescriptorImpl();
+        int limit = settings.getPushLimit(hub);
+        if (limit == UNLIMITED) {
+            return new Permit(hub, false);
+        }
+
+        int priority = settings.getPushPriority(run.getParent().getFullName());
+        long startTime = System.currentTimeMillis();
+        Optional<String> queueState = getQueueStateIfFull(hub, limit);
+        if (queueState.isPresent()) {
+            log(listener, String.format("Waiting for a free push slot to %s (%s)", hub, queueState.get()));
+        }
+
+        Permit permit = acquire(hub, limit, priority);
+
+        long endTime = System.currentTimeMillis();
+        if (queueState.isPresent()) {
+            log(listener, String.format("Push slot to %s acquired after %s", hub, Util.getTimeSpanString(endTime - startTime)));
+            BuildTimelineAction.of(run).record(BuildTimelineAction.CATEGORY_PUSH_QUEUE, hub, startTime, endTime);
+        }
+        return permit;
+    }
+
+    Permit acquire(String hub, int limit, int priority) throws InterruptedException {
+        checkArgument(limit > 0, "limit (%s) must be positive", limit);
+
+        synchronized (this) {
+            HubQueue queue = getQueue(hub);
+            Waiter waiter = new Waiter(priority, nextSequenceNumber++);
+            queue.waiters.add(waiter);
+            try {
+                while (queue.running >= limit || queue.waiters.peek() != waiter) {
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                queue.waiters.remove(waiter);
+                notifyAll();
+                throw ex;
+            }
+
+            queue.waiters.remove(waiter);
+            ++queue.running;
+            // the next waiter may fit in the limit as well
+            notifyAll();
+            return new Permit(hub, true);
+        }
+    }
+
+    synchronized int getRunning(String hub) {
+        return getQueue(hub).running;
+    }
+
+    synchronized int getWaiting(String hub) {
+        return getQueue(hub).waiters.size();
+    }
+
+    private synchronized Optional<String> getQueueStateIfFull(String hub, int limit) {
+        HubQueue queue = getQueue(hub);
+        if (queue.running < limit && queue.waiters.isEmpty()) {
+            return Optional.absent();
+        }
+        return Optional.of(String.format("%d of %d pushes running, %d waiting", queue.running, limit, queue.waiters.size()));
+    }
+
+    private synchronized void release(String hub) {
+        HubQueue queue = getQueue(hub);
+        --queue.running;
+        if (queue.running == 0 && queue.waiters.isEmpty()) {
+            queues.remove(hub);
+        }
+        notifyAll();
+    }
+
+    private HubQueue getQueue(String hub) {
+        HubQueue queue = queues.get(hub);
+        if (queue == null) {
+            queue = new HubQueue();
+            queues.put(hub, queue);
+        }
+        return queue;
+    }
+
+    public static String normalizeHubUrl(@Nullable String hubUrl) {
+        String hub = Strings.isNullOrEmpty(hubUrl) ? HubApi.DEFAULT_HUB_URL : hubUrl.trim();
+        while (hub.endsWith("/")) {
+            hub = hub.substring(0, hub.length() - 1);
+        }
+        return hub.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses settings with one {@code <name> <number>} pair per line, empty lines are ignored.
+     *
+     * @throws IllegalArgumentException if a line is not a pair or the number is negative
+     */
+    public static Map<String, Integer> parseSettings(@Nullable String settings) throws IllegalArgumentException {
+        Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+        if (settings == null) {
+            return values;
+        }
+
+        for (String line : settings.split("\\r?\\n")) {
+            String lineToUse = line.trim();
+            if (lineToUse.isEmpty()) {
+                continue;
+            }
+
+            Matcher matcher = SETTING_PATTERN.matcher(lineToUse);
+            checkArgument(matcher.matches(), "Line (%s) must contain a name and a number separated by a space", lineToUse);
+
+            String name = matcher.group("name");
+            String number = matcher.group("number");
+            try {
+                int value = Integer.parseInt(number);
+                checkArgument(value >= 0, "Number (%s) in line (%s) must not be negative", number, lineToUse);
+                values.put(name, value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(String.format("Number (%s) in line (%s) is not valid", number, lineToUse), ex);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Slot of a push to a hub, it must be released when the push completes.
+     */
+    public final class Permit {
+        private final String hub;
+        private boolean acquired;
+
+        private Permit(String hub, boolean acquired) {
+            this.hub = hub;
+            this.acquired = acquired;
+        }
+
+        public void release() {
+            synchronized (HubPushThrottle.this) {
+                if (!acquired) {
+                    return;
+                }
+
+                acquired = false;
+                HubPushThrottle.this.release(hub);
+            }
+        }
+    }
+
+    private static final class HubQueue {
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<Waiter>(11, BY_PRIORITY);
+        private int running;
+    }
+
+    private static final class Waiter {
+        private final int priority;
+        private final long sequenceNumber;
+
+        Waiter(int priority, long sequenceNumber) {
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.jenkinsci.plugins.spoontrigger.push;
 
 import com.google.common.base.Optional;
 import hudson.model.Result;
+import hudson.model.TaskListener;
 import org.jenkinsci.plugins.spoontrigger.Messages;
 import org.jenkinsci.plugins.spoontrigger.SpoonBuild;
 import org.jenkinsci.plugins.spoontrigger.commands.turbo.PushCommand;
@@ -16,16 +17,23 @@ import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_PRESENT_S;
 public class Pusher {
 
     private final CommandDriver client;
+    private final TaskListener listener;
 
-    public Pusher(CommandDriver client) {
+    public Pusher(CommandDriver client, TaskListener listener) {
         this.client = client;
+        this.listener = listener;
     }
 
     public void push(SpoonBuild build) throws InterruptedException, IOException {
         validate(build);
 
         PushCommand pushCmd = createPushCommand(build);
-        pushCmd.run(client);
+        HubPushThrottle.Permit permit = HubPushThrottle.getInstance().acquire(build.getHubUrl().orNull(), build, listener);
+        try {
+            pushCmd.run(client);
+        } finally {
+            permit.release();
+        }
     }
 
     private void validate(SpoonBuild build) throws IllegalStateException {
@@ -0,0 +1,193 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * File written by a scheduled task when its command completes. The file contains the exit code of the command.
+ * The exit code is written to a temporary file which is then renamed, so the marker does not appear before its
+ * content is written. Reading is retried in case the file system does not rename atomically.
+ * <p>
+ * Completion is detected using a {@link WatchService} on the directory of the marker. If the file system does not
+ * support watching, the marker is polled with an increasing interval.
+ */
+public class CompletionMarker implements Closeable {
+
+    private static final long MIN_POLL_INTERVAL_MS = 250L;
+    private static final long MAX_POLL_INTERVAL_MS = 5000L;
+    private static final int READ_ATTEMPTS = 5;
+    private static final long READ_RETRY_INTERVAL_MS = 200L;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path path;
+    private final Optional<WatchService> watchService;
+
+    private CompletionMarker(Path path, Optional<WatchService> watchService) {
+        this.path = path;
+        this.watchService = watchService;
+    }
+
+    /**
+     * Removes the marker left by a previous run and starts watching its directory.
+     */
+    public static CompletionMarker create(Path path) throws IOException {
+        Path markerPath = path.toAbsolutePath();
+        Path directory = markerPath.getParent();
+        checkArgument(directory != null, "path (%s) must have a parent directory", path);
+
+        Files.deleteIfExists(markerPath);
+        Files.deleteIfExists(getTempPath(markerPath));
+        return new CompletionMarker(markerPath, tryWatch(directory));
+    }
+
+    /**
+     * Returns the PowerShell command extended with a statement which writes the marker after the command exits.
+     */
+    public String appendTo(String command) {
+        String escapedPath = escape(path);
+        String escapedTempPath = escape(getTempPath(path));
+        return String.format("%s; $spoonExitCode = $LASTEXITCODE; Set-Content -Path '%s' -Value $spoonExitCode; Move-Item -Force -Path '%s' -Destination '%s'",
+                command, escapedTempPath, escapedTempPath, escapedPath);
+    }
+
+    public boolean isWatching() {
+        return watchService.isPresent();
+    }
+
+    public boolean isPresent() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Reads the exit code from the marker. If the marker is empty or cannot be read, reading is retried a few times.
+     */
+    public Optional<Integer> getExitCode() throws InterruptedException {
+        for (int attempt = 1; attempt <= READ_ATTEMPTS; ++attempt) {
+            Optional<Integer> exitCode = tryReadExitCode();
+            if (exitCode.isPresent() || attempt == READ_ATTEMPTS) {
+                return exitCode;
+            }
+            Thread.sleep(READ_RETRY_INTERVAL_MS);
+        }
+        return Optional.absent();
+    }
+
+    private Optional<Integer> tryReadExitCode() {
+        try {
+            List<String> lines = Files.readAllLines(path, Charsets.UTF_8);
+            for (String line : lines) {
+                String value = line.replace("\uFEFF", "").trim();
+                if (!value.isEmpty()) {
+                    return Optional.of(Integer.valueOf(value));
+                }
+            }
+        } catch (IOException ex) {
+            // no-op
+        } catch (NumberFormatException ex) {
+            // no-op
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Waits until the marker is written or the timeout elapses.
+     *
+     * @return true if the marker is present
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        if (watchService.isPresent()) {
+            return awaitEvent(watchService.get(), deadline);
+        }
+        return awaitPoll(deadline);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService.isPresent()) {
+            watchService.get().close();
+        }
+    }
+
+    private boolean awaitEvent(WatchService service, long deadline) throws InterruptedException {
+        try {
+            while (!isPresent()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                WatchKey key = service.poll(remaining, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+            return true;
+        } catch (ClosedWatchServiceException ex) {
+            return awaitPoll(deadline);
+        }
+    }
+
+    private boolean awaitPoll(long deadline) throws InterruptedException {
+        long pollInterval = MIN_POLL_INTERVAL_MS;
+        while (!isPresent()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+
+            Thread.sleep(Math.min(pollInterval, remaining));
+            pollInterval = Math.min(pollInterval * 2, MAX_POLL_INTERVAL_MS);
+        }
+        return true;
+    }
+
+    private static Path getTempPath(Path markerPath) {
+        return markerPath.resolveSibling(markerPath.getFileName().toString() + TEMP_SUFFIX);
+    }
+
+    private static String escape(Path path) {
+        return path.toString().replace("'", "''");
+    }
+
+    private static Optional<WatchService> tryWatch(Path directory) {
+        WatchService service = null;
+        try {
+            service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            return Optional.of(service);
+        } catch (IOException ex) {
+            closeQuietly(service);
+            return Optional.absent();
+        } catch (UnsupportedOperationException ex) {
+            closeQuietly(service);
+            return Optional.absent();
+        }
+    }
+
+    private static void closeQuietly(WatchService service) {
+        if (service == null) {
+            return;
+        }
+
+        try {
+            service.close();
+        } catch (IOException ex) {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Long-lived PowerShell session which executes scripts sent over stdin.
+ * <p>
+ * Each request is a single line invoking a base64 encoded script block. Lines written by the script are prefixed with
+ * {@link #OUTPUT_PREFIX}, the response ends with a line containing the end marker of the session and the status
+ * of the script: 0 on success, 1 if the script raised an error. Other lines printed by the host are ignored.
+ * <p>
+ * The response is read on a separate thread, because reading the output of the process cannot be interrupted. If the
+ * response does not end within the timeout or the build is interrupted, the session is terminated.
+ */
+public class PowerShellHost implements Closeable {
+
+    static final String OUTPUT_PREFIX = ">";
+    static final long DEFAULT_RESPONSE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private static final String REQUEST_FORMAT = "$spoonStatus = 0; "
+            + "try { $ErrorActionPreference = 'Stop'; "
+            + "& ([ScriptBlock]::Create([Text.Encoding]::Unicode.GetString([Convert]::FromBase64String('%s')))) 2>&1 "
+            + "| Out-String -Stream -Width 4096 | ForEach-Object { '%s' + $_ } } "
+            + "catch { '%s' + $_.Exception.Message; $spoonStatus = 1 } "
+            + "finally { $ErrorActionPreference = 'Continue' }; "
+            + "'%s ' + $spoonStatus";
+
+    private final Charset charset;
+    private final BufferedReader reader;
+    private final Writer writer;
+    private final Closeable process;
+    private final String endMarker;
+    private final long responseTimeoutMs;
+    private final ExecutorService responseReader = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("powershell-host-reader-%d").build());
+
+    public PowerShellHost(OutputStream stdin, InputStream stdout, Charset charset, Closeable process) {
+        this(stdin, stdout, charset, process, DEFAULT_RESPONSE_TIMEOUT_MS);
+    }
+
+    PowerShellHost(OutputStream stdin, InputStream stdout, Charset charset, Closeable process, long responseTimeoutMs) {
+        this.charset = charset;
+        this.reader = new BufferedReader(new InputStreamReader(stdout, charset));
+        this.writer = new OutputStreamWriter(stdin, Charsets.US_ASCII);
+        this.process = process;
+        this.endMarker = "#END-" + UUID.randomUUID().toString();
+        this.responseTimeoutMs = responseTimeoutMs;
+    }
+
+    /**
+     * @param quiet if true the command line of the session is not printed to the build log
+     */
+    public static PowerShellHost start(Launcher launcher, FilePath pwd, EnvVars env, Charset charset, boolean quiet) throws IOException {
+        ArgumentListBuilder args = new ArgumentListBuilder("powershell.exe")
+                .add("-NoLogo")
+                .add("-NoProfile")
+                .add("-NonInteractive")
+                .add("-Command")
+                .add("-");
+
+        final Proc proc = launcher.launch().pwd(pwd).envs(env).cmds(args).writeStdin().readStdout().quiet(quiet).start();
+        Closeable process = new Closeable() {
+            @Override
+            public void close() throws IOException {
+                try {
+                    proc.kill();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        return new PowerShellHost(proc.getStdin(), proc.getStdout(), charset, process);
+    }
+
+    /**
+     * Executes the script and copies its output to the stream.
+     *
+     * @return 0 if the script completed without errors
+     * @throws EOFException if the host exited before the script completed
+     * @throws IOException if the host did not respond within the timeout, the session is terminated
+     */
+    public synchronized int execute(String script, final OutputStream out) throws IOException, InterruptedException {
+        writer.write(formatRequest(script));
+        writer.write("\r\n");
+        writer.flush();
+
+        Future<Integer> response = responseReader.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                return readResponse(out);
+            }
+        });
+
+        try {
+            return response.get(responseTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (TimeoutException ex) {
+            close();
+            throw new IOException(String.format("PowerShell host did not respond within %d ms", responseTimeoutMs));
+        } catch (InterruptedException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private int readResponse(OutputStream out) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(endMarker)) {
+                return parseStatus(line.substring(endMarker.length()).trim());
+            }
+
+            if (line.startsWith(OUTPUT_PREFIX)) {
+                out.write(line.substring(OUTPUT_PREFIX.length()).getBytes(charset));
+                out.write('\n');
+            }
+        }
+
+        throw new EOFException("PowerShell host exited before the script completed");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writer.write("exit\r\n");
+            writer.flush();
+        } catch (IOException ex) {
+            // host has already exited
+        } finally {
+            final boolean swallowException = true;
+            Closeables.close(writer, swallowException);
+            process.close();
+
+            if (!responseReader.isShutdown()) {
+                // the reader is closed on the reader thread, after a response still being read ends with the process
+                responseReader.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Closeables.close(reader, swallowException);
+                        } catch (IOException ex) {
+                            // no-op
+                        }
+                    }
+                });
+                responseReader.shutdown();
+            }
+        }
+    }
+
+    String formatRequest(String script) {
+        String encodedScript = BaseEncoding.base64().encode(script.getBytes(Charsets.UTF_16LE));
+        return String.format(REQUEST_FORMAT, encodedScript, OUTPUT_PREFIX, OUTPUT_PREFIX, endMarker);
+    }
+
+    private static int parseStatus(String status) throws IOException {
+        try {
+            return Integer.parseInt(status);
+        } catch (NumberFormatException ex) {
+            throw new IOException(String.format("Invalid status '%s' returned by PowerShell host", status), ex);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.Closeables;
-import com.google.common.io.Resources;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -12,27 +11,20 @@ import hudson.model.TaskListener;
 import hudson.util.ArgumentListBuilder;
 import org.apache.commons.io.output.NullOutputStream;
 import org.jenkinsci.plugins.spoontrigger.commands.OutputStreamCollector;
-import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
 
-import java.io.FileOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.net.URL;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-public class ScheduledTasksApi {
+
+/**
+ * Manages scheduled tasks using a single PowerShell session, which is started on first use and terminated by
+ * {@link #close()}. If the session cannot be started, each command is executed by a new PowerShell process.
+ */
+public class ScheduledTasksApi implements Closeable {
     private static final String SCHEDULED_TASKS_RUN_RESOURCE_ID = "run-task.ps1";
-    private static final Pattern QUOTES_PATTERN = Pattern.compile("^\"(?<value>.*)\"$");
 
     private final Charset charset;
     private final EnvVars env;
@@ -41,6 +33,9 @@ public class ScheduledTasksApi {
     private final TaskListener listener;
     private final boolean quiet;
 
+    private Optional<PowerShellHost> host = Optional.absent();
+    private boolean isHostUnavailable = false;
+
     public ScheduledTasksApi(EnvVars env, FilePath pwd, Charset charset, Launcher launcher, TaskListener listener, boolean quiet) {
         this.env = env;
         this.pwd = pwd;
@@ -50,116 +45,126 @@ public class ScheduledTasksApi {
         this.quiet = quiet;
     }
 
+    ScheduledTasksApi(PowerShellHost host, Charset charset, TaskListener listener) {
+        this(null, null, charset, null, listener, true);
+
+        this.host = Optional.of(host);
+    }
+
     public void create(String taskName, String command) throws IOException, InterruptedException {
-        ArgumentListBuilder args = getCreateCommand(taskName, command);
-        executeCommandAssertExitCode(args, new NullOutputStream());
+        String script = getCreateScript(taskName, command);
+        executeScriptAssertExitCode(script, new NullOutputStream());
     }
 
     /**
      * Executes PowerShellCommand command using a scheduled task. If a scheduled task with the specified name already exists it will be deleted.
      */
     public void run(String taskName, String command) throws IOException, InterruptedException {
-        Path tempDir = Files.createTempDirectory("scheduledtask-");
-        try {
-            Path launchScriptPath = Paths.get(tempDir.toString(), SCHEDULED_TASKS_RUN_RESOURCE_ID);
-            URL resourceId = Resources.getResource(getClass(), SCHEDULED_TASKS_RUN_RESOURCE_ID);
-            FileOutputStream outputStream = new FileOutputStream(launchScriptPath.toFile());
-            try {
-                Resources.copy(resourceId, outputStream);
-            } finally {
-                final boolean swallowIoException = true;
-                Closeables.close(outputStream, swallowIoException);
-            }
-
-            ArgumentListBuilder runCommand = getRunCommand(launchScriptPath, taskName, command);
-            executeCommandAssertExitCode(runCommand, listener.getLogger());
-        } finally {
-            FileUtils.deleteDirectoryTree(tempDir);
-        }
+        Path launchScriptPath = ScriptCache.getInstance().getScript(SCHEDULED_TASKS_RUN_RESOURCE_ID);
+        ArgumentListBuilder runCommand = getRunCommand(launchScriptPath, taskName, command);
+        executeCommandAssertExitCode(runCommand, listener.getLogger());
     }
 
     public void run(String taskName) throws IOException, InterruptedException {
-        ArgumentListBuilder runCommand = getRunCommand(taskName);
-        executeCommandAssertExitCode(runCommand, new NullOutputStream());
+        String script = getRunScript(taskName);
+        executeScriptAssertExitCode(script, new NullOutputStream());
     }
 
     public boolean isRunning(String taskName) throws IOException, InterruptedException {
-        Optional<String> status = getStatus(taskName);
-        return status.isPresent() && "Running".equals(status.get());
+        Optional<TaskState> state = getState(taskName);
+        return state.isPresent() && state.get() == TaskState.Running;
     }
 
     public boolean isDefined(String taskName) throws IOException, InterruptedException {
-        return getStatus(taskName).isPresent();
+        return getState(taskName).isPresent();
     }
 
     public void delete(String taskName) throws IOException, InterruptedException {
-        ArgumentListBuilder command = getDeleteCommand(taskName);
-        executeCommandAssertExitCode(command, new NullOutputStream());
+        String script = getDeleteScript(taskName);
+        executeScriptAssertExitCode(script, new NullOutputStream());
     }
 
-    public Optional<String> getStatus(String taskName) throws IOException, InterruptedException {
-        Map<String, String> taskInfo = getTask(taskName);
-        return Optional.fromNullable(taskInfo.get("State"));
-    }
-
-    private Map<String, String> getTask(String taskName) throws IOException, InterruptedException {
+    /**
+     * Returns the state of the task or absent if the task is not defined.
+     */
+    public Optional<TaskState> getState(String taskName) throws IOException, InterruptedException {
         OutputStreamCollector outputStream = new OutputStreamCollector(new PrintStream(new NullOutputStream()), charset);
         try {
-            ArgumentListBuilder command = getTaskCommand(taskName);
+            String script = getStateScript(taskName);
 
-            int exitCode = executeCommand(command, outputStream);
+            int exitCode = executeScript(script, outputStream);
             if (exitCode == 0) {
-                ArrayList<String> headers = null;
                 for (String line : outputStream.getLines()) {
-                    if (line.startsWith("#")) {
-                        continue;
-                    }
-
-                    if (headers == null) {
-                        headers = extractValues(line);
+                    if (line.trim().isEmpty() || line.startsWith("#")) {
                         continue;
                     }
-
-                    ArrayList<String> values = extractValues(line);
-                    Map<String, String> bag = new HashMap<String, String>();
-                    int maxPos = Math.min(values.size(), headers.size());
-                    for (int pos = 0; pos < maxPos; ++pos) {
-                        String property = headers.get(pos);
-                        String value = values.get(pos);
-                        bag.put(property, value);
-                    }
-                    return bag;
+                    return Optional.of(TaskState.parse(line));
                 }
             }
-            return Collections.emptyMap();
+            return Optional.absent();
         } finally {
             final boolean swallowException = true;
             Closeables.close(outputStream, swallowException);
         }
     }
 
-    private ArrayList<String> extractValues(String line) {
-        String[] rawValues = line.split(",");
-        ArrayList<String> values = new ArrayList<String>(rawValues.length);
-        for (String rawValue : rawValues) {
-            Matcher match = QUOTES_PATTERN.matcher(rawValue);
-            if (match.matches()) {
-                values.add(match.group("value"));
-            } else {
-                values.add(rawValue);
+    @Override
+    public void close() {
+        if (host.isPresent()) {
+            try {
+                host.get().close();
+            } catch (IOException ex) {
+                // no-op
             }
+            host = Optional.absent();
         }
-        return values;
     }
 
     private void executeCommandAssertExitCode(ArgumentListBuilder argumentList, OutputStream out) throws IOException, InterruptedException {
         int errorCode = executeCommand(argumentList, out);
+        assertExitCode(errorCode);
+    }
+
+    private void executeScriptAssertExitCode(String script, OutputStream out) throws IOException, InterruptedException {
+        int errorCode = executeScript(script, out);
+        assertExitCode(errorCode);
+    }
+
+    private void assertExitCode(int errorCode) {
         if (errorCode != 0) {
             String errMsg = String.format("Process returned error code %d", errorCode);
             throw new IllegalStateException(errMsg);
         }
     }
 
+    private int executeScript(String script, OutputStream out) throws IOException, InterruptedException {
+        Optional<PowerShellHost> hostToUse = getHost();
+        if (hostToUse.isPresent()) {
+            try {
+                return hostToUse.get().execute(script, out);
+            } catch (IOException ex) {
+                String msg = String.format("PowerShell session failed, falling back to separate processes: %s", ex.getMessage());
+                listener.getLogger().println(msg);
+                close();
+                isHostUnavailable = true;
+            }
+        }
+        return executeCommand(getPowerShellCommand(script), out);
+    }
+
+    private Optional<PowerShellHost> getHost() {
+        if (!host.isPresent() && !isHostUnavailable) {
+            try {
+                host = Optional.of(PowerShellHost.start(launcher, pwd, env, charset, quiet));
+            } catch (IOException ex) {
+                String msg = String.format("Failed to start PowerShell session: %s", ex.getMessage());
+                listener.getLogger().println(msg);
+                isHostUnavailable = true;
+            }
+        }
+        return host;
+    }
+
     private int executeCommand(ArgumentListBuilder argumentList, OutputStream out) throws IOException, InterruptedException {
         return this.launcher.launch().pwd(this.pwd).envs(this.env).cmds(argumentList).stdout(out).quiet(quiet).join();
     }
@@ -178,27 +183,24 @@ public class ScheduledTasksApi {
                 .add(pwd.getRemote());
     }
 
-    private ArgumentListBuilder getRunCommand(String taskName) {
-        String command = String.format("Start-ScheduledTask -TaskName \"%s\"", taskName);
-        return getPowerShellCommand(command);
+    private String getRunScript(String taskName) {
+        return String.format("Start-ScheduledTask -TaskName \"%s\"", taskName);
     }
 
-    private ArgumentListBuilder getDeleteCommand(String taskName) {
-        String command = String.format("Unregister-ScheduledTask -TaskName \"%s\" -Confirm:$False", taskName);
-        return getPowerShellCommand(command);
+    private String getDeleteScript(String taskName) {
+        return String.format("Unregister-ScheduledTask -TaskName \"%s\" -Confirm:$False", taskName);
     }
 
-    private ArgumentListBuilder getTaskCommand(String taskName) {
-        String command = String.format("Get-ScheduledTask | Where-Object {$_.TaskName -like \"%s\"} | ConvertTo-CSV", taskName);
-        return getPowerShellCommand(command);
+    private String getStateScript(String taskName) {
+        // looks up the task by name instead of enumerating all tasks and prints only its state
+        return String.format("Get-ScheduledTask -TaskName \"%s\" -ErrorAction SilentlyContinue | Select-Object -First 1 -ExpandProperty State", taskName);
     }
 
-    private ArgumentListBuilder getCreateCommand(String taskName, String command) {
-        String commandToUse = String.format(
+    private String getCreateScript(String taskName, String command) {
+        return String.format(
                 "Register-ScheduledTask -Action (New-ScheduledTaskAction -Execute powershell.exe -Argument \"-WindowStyle Hidden -EncodedCommand %s\") -TaskName \"%s\"",
                 encodeBase64(command),
                 taskName);
-        return getPowerShellCommand(commandToUse);
     }
 
     private ArgumentListBuilder getPowerShellCommand(String command) {
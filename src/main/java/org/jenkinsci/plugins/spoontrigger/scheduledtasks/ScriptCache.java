@@ -0,0 +1,126 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Extracts the PowerShell helper scripts of the plugin once per JVM, to the temporary directory of the JVM which
+ * runs {@link ScheduledTasksApi}. This is the node where PowerShell is launched only if the caller runs on that node,
+ * as the snapshot pipeline does, which matches the behavior of the temporary scripts used before. Scripts are kept in
+ * a directory named after the checksum of their content, so an upgraded plugin extracts its scripts to a new
+ * directory and removes the directories of previous versions. A script is verified against its checksum before it
+ * is used.
+ */
+public class ScriptCache {
+
+    static final String[] SCRIPT_RESOURCE_IDS = {"run-task.ps1"};
+
+    private static final String CACHE_DIRECTORY = "jenkins-spoontrigger-scripts";
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+    private static final int VERSION_LENGTH = 16;
+
+    private static ScriptCache instance;
+
+    private final Path versionDir;
+    private final Map<String, byte[]> scripts;
+    private final Map<String, HashCode> checksums;
+
+    ScriptCache(Path cacheDir) throws IOException {
+        this.scripts = new HashMap<String, byte[]>();
+        this.checksums = new HashMap<String, HashCode>();
+
+        Hasher versionHasher = HASH_FUNCTION.newHasher();
+        for (String resourceId : SCRIPT_RESOURCE_IDS) {
+            byte[] content = Resources.toByteArray(Resources.getResource(ScriptCache.class, resourceId));
+            HashCode checksum = HASH_FUNCTION.hashBytes(content);
+            scripts.put(resourceId, content);
+            checksums.put(resourceId, checksum);
+            versionHasher.putBytes(checksum.asBytes());
+        }
+
+        String version = versionHasher.hash().toString().substring(0, VERSION_LENGTH);
+        this.versionDir = cacheDir.resolve(version);
+
+        Files.createDirectories(versionDir);
+        deleteStaleVersions(cacheDir);
+    }
+
+    /**
+     * Returns the cache of this JVM, which is kept in the directory {@code java.io.tmpdir} points to.
+     */
+    public static synchronized ScriptCache getInstance() throws IOException {
+        if (instance == null) {
+            instance = new ScriptCache(Paths.get(System.getProperty("java.io.tmpdir"), CACHE_DIRECTORY));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the path of the script, the script is extracted again if it is missing or was modified.
+     */
+    public synchronized Path getScript(String resourceId) throws IOException {
+        checkArgument(scripts.containsKey(resourceId), "Unknown script %s", resourceId);
+
+        Path scriptPath = versionDir.resolve(resourceId);
+        if (!isValid(scriptPath, checksums.get(resourceId))) {
+            extract(resourceId, scriptPath);
+        }
+        return scriptPath;
+    }
+
+    Path getVersionDir() {
+        return versionDir;
+    }
+
+    private boolean isValid(Path scriptPath, HashCode expectedChecksum) throws IOException {
+        if (!Files.isRegularFile(scriptPath)) {
+            return false;
+        }
+
+        HashCode checksum = HASH_FUNCTION.hashBytes(Files.readAllBytes(scriptPath));
+        return checksum.equals(expectedChecksum);
+    }
+
+    private void extract(String resourceId, Path scriptPath) throws IOException {
+        // the script is written next to its target and moved, so a concurrent reader never sees a partial file
+        Path tempPath = Files.createTempFile(versionDir, resourceId, ".tmp");
+        try {
+            Files.write(tempPath, scripts.get(resourceId));
+            Files.move(tempPath, scriptPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    private void deleteStaleVersions(Path cacheDir) {
+        File[] versionDirs = cacheDir.toFile().listFiles();
+        if (versionDirs == null) {
+            return;
+        }
+
+        for (File dir : versionDirs) {
+            if (dir.isDirectory() && !dir.toPath().equals(versionDir)) {
+                try {
+                    FileUtils.deleteDirectoryTree(dir.toPath());
+                } catch (IOException ex) {
+                    // scripts of a previous version may be still in use, they are removed by the next upgrade
+                }
+            }
+        }
+    }
+}
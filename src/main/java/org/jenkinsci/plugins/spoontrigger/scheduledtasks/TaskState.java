@@ -0,0 +1,22 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+/**
+ * State of a scheduled task as reported by the State property of Get-ScheduledTask.
+ */
+public enum TaskState {
+    Unknown,
+    Disabled,
+    Queued,
+    Ready,
+    Running;
+
+    public static TaskState parse(String value) {
+        String valueToUse = value.trim();
+        for (TaskState state : values()) {
+            if (state.name().equalsIgnoreCase(valueToUse)) {
+                return state;
+            }
+        }
+        return Unknown;
+    }
+}
@@ -0,0 +1,216 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import com.google.common.base.Joiner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Directed acyclic graph of build steps. An edge from a node to its dependency means the node can't be built
+ * before the dependency was built successfully. Nodes are kept in insertion order, so the order of builds is stable.
+ */
+public class DependencyGraph<T> {
+
+    private final Map<T, Set<T>> dependencies = new LinkedHashMap<T, Set<T>>();
+    private final Map<T, Set<T>> dependents = new LinkedHashMap<T, Set<T>>();
+
+    public void addNode(T node) {
+        if (dependencies.containsKey(node)) {
+            return;
+        }
+
+        dependencies.put(node, new LinkedHashSet<T>());
+        dependents.put(node, new LinkedHashSet<T>());
+    }
+
+    public void addDependency(T node, T dependency) {
+        checkArgument(dependencies.containsKey(node), "node (%s) is not part of the graph", node);
+        checkArgument(dependencies.containsKey(dependency), "dependency (%s) is not part of the graph", dependency);
+        checkArgument(!node.equals(dependency), "node (%s) can't depend on itself", node);
+
+        dependencies.get(node).add(dependency);
+        dependents.get(dependency).add(node);
+    }
+
+    public Set<T> getNodes() {
+        return Collections.unmodifiableSet(dependencies.keySet());
+    }
+
+    public Set<T> getDependencies(T node) {
+        return Collections.unmodifiableSet(dependencies.get(node));
+    }
+
+    /**
+     * @return nodes which no other node depends on, in insertion order
+     */
+    public Set<T> getLeaves() {
+        Set<T> leaves = new LinkedHashSet<T>();
+        for (Map.Entry<T, Set<T>> entry : dependents.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                leaves.add(entry.getKey());
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * @throws IllegalStateException if the graph contains a cycle
+     */
+    public List<T> topologicalOrder() {
+        Map<T, Integer> pendingDependencies = countDependencies();
+        Deque<T> ready = new ArrayDeque<T>();
+        for (Map.Entry<T, Integer> entry : pendingDependencies.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+
+        List<T> order = new ArrayList<T>(dependencies.size());
+        while (!ready.isEmpty()) {
+            T node = ready.poll();
+            order.add(node);
+            for (T dependent : dependents.get(node)) {
+                if (decrement(pendingDependencies, dependent) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (order.size() != dependencies.size()) {
+            List<T> cycle = new ArrayList<T>();
+            for (Map.Entry<T, Integer> entry : pendingDependencies.entrySet()) {
+                if (entry.getValue() > 0) {
+                    cycle.add(entry.getKey());
+                }
+            }
+            String errMsg = String.format("Dependencies between %s form a cycle", Joiner.on(", ").join(cycle));
+            throw new IllegalStateException(errMsg);
+        }
+
+        return order;
+    }
+
+    /**
+     * Runs the step for every node on the executor. A node is submitted as soon as all its dependencies completed
+     * successfully, so independent nodes run in parallel up to the size of the executor. Nodes which depend
+     * on a failed node are skipped.
+     *
+     * @return status of every node in topological order
+     */
+    public Map<T, Status> execute(ExecutorService executor, final Step<T> step) throws InterruptedException {
+        List<T> order = topologicalOrder();
+        Map<T, Integer> pendingDependencies = countDependencies();
+        Map<T, Status> statuses = new LinkedHashMap<T, Status>();
+        for (T node : order) {
+            statuses.put(node, Status.SKIPPED);
+        }
+
+        CompletionService<NodeResult<T>> completionService = new ExecutorCompletionService<NodeResult<T>>(executor);
+        int running = 0;
+        for (T node : order) {
+            if (pendingDependencies.get(node) == 0) {
+                submit(completionService, node, step);
+                ++running;
+            }
+        }
+
+        while (running > 0) {
+            NodeResult<T> result = take(completionService);
+            --running;
+
+            statuses.put(result.node, result.success ? Status.SUCCESS : Status.FAILURE);
+            if (!result.success) {
+                continue;
+            }
+
+            for (T dependent : dependents.get(result.node)) {
+                if (decrement(pendingDependencies, dependent) == 0) {
+                    submit(completionService, dependent, step);
+                    ++running;
+                }
+            }
+        }
+
+        return statuses;
+    }
+
+    private Map<T, Integer> countDependencies() {
+        Map<T, Integer> counts = new LinkedHashMap<T, Integer>();
+        for (Map.Entry<T, Set<T>> entry : dependencies.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
+    }
+
+    private static <T> int decrement(Map<T, Integer> counts, T node) {
+        int count = counts.get(node) - 1;
+        counts.put(node, count);
+        return count;
+    }
+
+    private static <T> void submit(CompletionService<NodeResult<T>> completionService, final T node, final Step<T> step) {
+        completionService.submit(new Callable<NodeResult<T>>() {
+            @Override
+            public NodeResult<T> call() throws Exception {
+                boolean success;
+                try {
+                    success = step.run(node);
+                } catch (Exception ex) {
+                    step.onError(node, ex);
+                    success = false;
+                }
+                return new NodeResult<T>(node, success);
+            }
+        });
+    }
+
+    private static <T> NodeResult<T> take(CompletionService<NodeResult<T>> completionService) throws InterruptedException {
+        Future<NodeResult<T>> future = completionService.take();
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            // step errors are handled in the task
+            throw new IllegalStateException("Build step failed unexpectedly", ex.getCause());
+        }
+    }
+
+    public enum Status {
+        SUCCESS,
+        FAILURE,
+        SKIPPED
+    }
+
+    public interface Step<T> {
+        /**
+         * @return true if the node was built successfully
+         */
+        boolean run(T node) throws Exception;
+
+        void onError(T node, Exception ex);
+    }
+
+    private static final class NodeResult<T> {
+        private final T node;
+        private final boolean success;
+
+        NodeResult(T node, boolean success) {
+            this.node = node;
+            this.success = success;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import hudson.Util;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Script built by the multi-script builder. An entry is written on a single line:
+ * <pre>
+ * &lt;script path&gt; [&lt;image name&gt;] [&lt;- &lt;script path&gt;, ...]
+ * </pre>
+ * The image name is passed to the build and lets other scripts refer to the image in their {@code from},
+ * {@code layer} and {@code using} instructions. Scripts listed after the arrow are explicit dependencies.
+ */
+@EqualsAndHashCode(of = "scriptPath")
+public final class ScriptEntry {
+
+    private static final String DEPENDENCIES_SEPARATOR = "<-";
+    private static final Pattern ENTRY_PATTERN = Pattern.compile("^(?<script>\\S+)(?:\\s+(?<image>\\S+))?$");
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("^\\s*(?:from|layer|using)\\s+(?<images>.+)$", Pattern.CASE_INSENSITIVE);
+    private static final Splitter IMAGE_SPLITTER = Splitter.on(Pattern.compile("[\\s,]+")).omitEmptyStrings().trimResults();
+    private static final Splitter SCRIPT_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+
+    @Getter
+    private final String scriptPath;
+    @Nullable
+    @Getter
+    private final String imageName;
+    @Getter
+    private final List<String> dependsOn;
+
+    public ScriptEntry(String scriptPath, @Nullable String imageName, List<String> dependsOn) {
+        checkArgument(!Strings.isNullOrEmpty(scriptPath), "scriptPath must be a non empty string");
+
+        this.scriptPath = scriptPath;
+        this.imageName = imageName;
+        this.dependsOn = Collections.unmodifiableList(new ArrayList<String>(dependsOn));
+    }
+
+    public static ScriptEntry parse(String line) {
+        String entry = line.trim();
+        List<String> dependsOn = Collections.emptyList();
+
+        int separatorIndex = entry.indexOf(DEPENDENCIES_SEPARATOR);
+        if (separatorIndex >= 0) {
+            dependsOn = SCRIPT_SPLITTER.splitToList(entry.substring(separatorIndex + DEPENDENCIES_SEPARATOR.length()));
+            entry = entry.substring(0, separatorIndex).trim();
+        }
+
+        Matcher matcher = ENTRY_PATTERN.matcher(entry);
+        checkArgument(matcher.matches(), "Script entry (%s) must contain the script path and an optional image name", line);
+
+        String imageName = matcher.group("image");
+        if (imageName != null) {
+            // validates the image name
+            Image.parse(imageName);
+        }
+        return new ScriptEntry(matcher.group("script"), imageName, dependsOn);
+    }
+
+    public static List<ScriptEntry> parseAll(@Nullable String entries) {
+        List<ScriptEntry> scripts = new ArrayList<ScriptEntry>();
+        if (Util.fixEmptyAndTrim(entries) == null) {
+            return scripts;
+        }
+
+        for (String line : entries.split("\\r?\\n")) {
+            if (!line.trim().isEmpty()) {
+                scripts.add(parse(line));
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Returns identifiers of the images referenced by the script, tags are omitted, because a script
+     * may refer to an older version of the image built by another script.
+     */
+    public static Collection<String> findReferencedImages(String script) {
+        List<String> images = new ArrayList<String>();
+        for (Image image : findReferencedImageNames(script)) {
+            images.add(getRepoIdentifier(image));
+        }
+        return images;
+    }
+
+    /**
+     * Returns the images referenced by the script as they are written, an image without a tag refers to its latest
+     * version.
+     */
+    public static List<Image> findReferencedImageNames(String script) {
+        List<Image> images = new ArrayList<Image>();
+        for (String line : script.split("\\r?\\n")) {
+            Matcher matcher = REFERENCE_PATTERN.matcher(line);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            for (String imageName : IMAGE_SPLITTER.split(matcher.group("images"))) {
+                try {
+                    images.add(Image.parse(imageName));
+                } catch (IllegalArgumentException ex) {
+                    // not an image name
+                }
+            }
+        }
+        return images;
+    }
+
+    public static String getRepoIdentifier(Image image) {
+        Image repo = new Image(image.getNamespace(), image.getRepo(), null);
+        return repo.printIdentifier().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(scriptPath);
+        if (imageName != null) {
+            builder.append(' ').append(imageName);
+        }
+        if (!dependsOn.isEmpty()) {
+            builder.append(' ').append(DEPENDENCIES_SEPARATOR).append(' ').append(Joiner.on(", ").join(dependsOn));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import hudson.Util;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.utils.Patterns;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * VM version the script is built for by the TurboScript builder. An entry is written on a single line:
+ * <pre>
+ * &lt;VM version&gt; [&lt;image suffix&gt;]
+ * </pre>
+ * The suffix is appended to the repository of the image name, so images built for several versions do not overwrite
+ * each other.
+ */
+@EqualsAndHashCode
+public final class VmVersionEntry {
+
+    private static final Pattern ENTRY_PATTERN = Pattern.compile("^(?<version>\\S+)(?:\\s+(?<suffix>\\S+))?$");
+
+    @Getter
+    private final String vmVersion;
+    @Nullable
+    @Getter
+    private final String imageSuffix;
+
+    public VmVersionEntry(String vmVersion, @Nullable String imageSuffix) {
+        checkArgument(Patterns.isVersionNumber(vmVersion), "VM version (%s) should consist of 4 numbers separated by dot", vmVersion);
+
+        this.vmVersion = vmVersion;
+        this.imageSuffix = imageSuffix;
+    }
+
+    public static VmVersionEntry parse(String line) {
+        Matcher matcher = ENTRY_PATTERN.matcher(line.trim());
+        checkArgument(matcher.matches(), "VM version entry (%s) must contain the VM version and an optional image suffix", line);
+
+        return new VmVersionEntry(matcher.group("version"), matcher.group("suffix"));
+    }
+
+    public static List<VmVersionEntry> parseAll(@Nullable String entries) {
+        List<VmVersionEntry> versions = new ArrayList<VmVersionEntry>();
+        if (Util.fixEmptyAndTrim(entries) == null) {
+            return versions;
+        }
+
+        for (String line : entries.split("\\r?\\n")) {
+            if (!line.trim().isEmpty()) {
+                versions.add(parse(line));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * @return the image name with the suffix appended to its repository, or the image name if there is no suffix
+     */
+    @Nullable
+    public String getImageName(@Nullable String imageName) {
+        if (imageName == null || imageSuffix == null) {
+            return imageName;
+        }
+
+        Image image = Image.parse(imageName);
+        return new Image(image.getNamespace(), image.getRepo() + imageSuffix, image.getTag()).printIdentifier();
+    }
+
+    @Override
+    public String toString() {
+        return (imageSuffix != null) ? vmVersion + ' ' + imageSuffix : vmVersion;
+    }
+}
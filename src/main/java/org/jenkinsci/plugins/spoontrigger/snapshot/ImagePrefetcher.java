@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.spoontrigger.snapshot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.model.BuildListener;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.PullCommand;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Pulls images in the background, so the download overlaps the provisioning of the virtual machine and the images
+ * are already on the node when xStudio needs them.
+ */
+class ImagePrefetcher {
+
+    private static final int MAX_CONCURRENT_PULLS = 4;
+
+    private final CommandDriver client;
+    private final BuildListener listener;
+    private final Map<String, Future<?>> pulls = new LinkedHashMap<String, Future<?>>();
+
+    private ExecutorService executor;
+
+    ImagePrefetcher(CommandDriver client, BuildListener listener) {
+        this.client = client;
+        this.listener = listener;
+    }
+
+    void start(Collection<String> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+
+        int threadCount = Math.min(images.size(), MAX_CONCURRENT_PULLS);
+        executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setNameFormat("turbo-pull-%d").setDaemon(true).build());
+        for (final String image : images) {
+            if (pulls.containsKey(image)) {
+                continue;
+            }
+
+            pulls.put(image, executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    pull(image);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waits until the image is pulled. If the background pull failed, the image is pulled again in the calling thread,
+     * so a transient network error reports the same failure as a pull without prefetching.
+     */
+    void await(String image) throws InterruptedException {
+        Future<?> pullInProgress = pulls.get(image);
+        if (pullInProgress != null) {
+            try {
+                pullInProgress.get();
+                return;
+            } catch (ExecutionException ex) {
+                log(listener, String.format("Background pull of %s failed, retrying", image), ex.getCause());
+            }
+        }
+
+        pull(image);
+    }
+
+    void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void pull(String image) {
+        PullCommand command = PullCommand.builder().image(image).build();
+        command.run(client);
+    }
+}
@@ -0,0 +1,219 @@
+package org.jenkinsci.plugins.spoontrigger.snapshot;
+
+import com.google.common.io.Closeables;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Computes size and file count of every directory captured in a snapshot. The xappl file is read using a streaming
+ * parser, so memory usage depends on the depth of the report rather than the number of files in the snapshot.
+ * Directories with the same path in several layers are reported as one entry.
+ */
+public class SnapshotAnalyzer {
+
+    public static final int DEFAULT_LARGEST_FILE_COUNT = 20;
+    public static final int DEFAULT_MAX_DEPTH = 4;
+
+    private static final String FILESYSTEM_ELEMENT = "Filesystem";
+    private static final String DIRECTORY_ELEMENT = "Directory";
+    private static final String FILE_ELEMENT = "File";
+    private static final String NAME_ATTRIBUTE = "name";
+    private static final String SOURCE_ATTRIBUTE = "source";
+    private static final String PATH_SEPARATOR = "\\";
+
+    private final int largestFileCount;
+    private final int maxDepth;
+
+    public SnapshotAnalyzer() {
+        this(DEFAULT_LARGEST_FILE_COUNT, DEFAULT_MAX_DEPTH);
+    }
+
+    public SnapshotAnalyzer(int largestFileCount, int maxDepth) {
+        checkArgument(largestFileCount > 0, "largestFileCount (%s) must be positive", largestFileCount);
+        checkArgument(maxDepth > 0, "maxDepth (%s) must be positive", maxDepth);
+
+        this.largestFileCount = largestFileCount;
+        this.maxDepth = maxDepth;
+    }
+
+    public SnapshotReport analyze(Path xapplPath) throws IOException, XMLStreamException {
+        InputStream inputStream = Files.newInputStream(xapplPath);
+        try {
+            return analyze(inputStream, xapplPath.toAbsolutePath().getParent());
+        } finally {
+            final boolean swallowException = true;
+            Closeables.close(inputStream, swallowException);
+        }
+    }
+
+    /**
+     * @param outputDir directory which the file sources in the xappl are relative to
+     */
+    public SnapshotReport analyze(InputStream xappl, Path outputDir) throws XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(xappl);
+        try {
+            return new Analysis(outputDir).run(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private class Analysis {
+        private final Path outputDir;
+        private final SnapshotReport.DirectoryEntry root = new SnapshotReport.DirectoryEntry(PATH_SEPARATOR, 0);
+        private final PriorityQueue<SnapshotReport.FileEntry> largestFiles =
+                new PriorityQueue<SnapshotReport.FileEntry>(largestFileCount, SnapshotReport.FileEntry.BY_SIZE_ASCENDING);
+
+        // directories deeper than maxDepth are pushed as null, their content is accounted in the closest ancestor
+        private final Deque<SnapshotReport.DirectoryEntry> directories = new LinkedList<SnapshotReport.DirectoryEntry>();
+        private final Deque<String> names = new ArrayDeque<String>();
+        // paths are compared ignoring case like on the Windows file system
+        private final Map<String, SnapshotReport.DirectoryEntry> directoriesByPath = new HashMap<String, SnapshotReport.DirectoryEntry>();
+        private int filesystemDepth = 0;
+        private int missingFileCount = 0;
+
+        Analysis(Path outputDir) {
+            this.outputDir = outputDir;
+        }
+
+        SnapshotReport run(XMLStreamReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    onStartElement(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    onEndElement(reader.getLocalName());
+                }
+            }
+
+            root.sortChildren();
+
+            List<SnapshotReport.FileEntry> files = new ArrayList<SnapshotReport.FileEntry>(largestFiles);
+            Collections.sort(files, Collections.reverseOrder(SnapshotReport.FileEntry.BY_SIZE_ASCENDING));
+            return new SnapshotReport(root, files, missingFileCount);
+        }
+
+        private void onStartElement(XMLStreamReader reader) {
+            String elementName = reader.getLocalName();
+            if (FILESYSTEM_ELEMENT.equals(elementName)) {
+                ++filesystemDepth;
+                return;
+            }
+
+            if (filesystemDepth == 0) {
+                return;
+            }
+
+            if (DIRECTORY_ELEMENT.equals(elementName)) {
+                enterDirectory(reader.getAttributeValue(null, NAME_ATTRIBUTE));
+            } else if (FILE_ELEMENT.equals(elementName)) {
+                addFile(reader.getAttributeValue(null, NAME_ATTRIBUTE), reader.getAttributeValue(null, SOURCE_ATTRIBUTE));
+            }
+        }
+
+        private void onEndElement(String elementName) {
+            if (FILESYSTEM_ELEMENT.equals(elementName)) {
+                --filesystemDepth;
+            } else if (filesystemDepth > 0 && DIRECTORY_ELEMENT.equals(elementName)) {
+                directories.pop();
+                names.pop();
+            }
+        }
+
+        private void enterDirectory(String name) {
+            names.push(name);
+            int depth = names.size();
+            if (depth > maxDepth) {
+                directories.push(null);
+                return;
+            }
+
+            String path = currentPath();
+            String pathKey = path.toLowerCase(Locale.ROOT);
+            SnapshotReport.DirectoryEntry directory = directoriesByPath.get(pathKey);
+            if (directory == null) {
+                SnapshotReport.DirectoryEntry parent = directories.isEmpty() ? root : directories.peek();
+                directory = new SnapshotReport.DirectoryEntry(path, depth);
+                parent.addChild(directory);
+                directoriesByPath.put(pathKey, directory);
+            }
+            directories.push(directory);
+        }
+
+        private void addFile(String name, String source) {
+            long size = getFileSize(source);
+
+            root.addFile(size);
+            for (SnapshotReport.DirectoryEntry directory : directories) {
+                if (directory != null) {
+                    directory.addFile(size);
+                }
+            }
+
+            String path = currentPath() + PATH_SEPARATOR + name;
+            if (largestFiles.size() < largestFileCount) {
+                largestFiles.add(new SnapshotReport.FileEntry(path, size));
+            } else if (largestFiles.peek().getSize() < size) {
+                largestFiles.poll();
+                largestFiles.add(new SnapshotReport.FileEntry(path, size));
+            }
+        }
+
+        private long getFileSize(String source) {
+            if (source == null) {
+                ++missingFileCount;
+                return 0L;
+            }
+
+            Path sourcePath = outputDir;
+            for (String segment : source.split("\\\\|/")) {
+                if (segment.isEmpty() || ".".equals(segment)) {
+                    continue;
+                }
+                sourcePath = Paths.get(sourcePath.toString(), segment);
+            }
+
+            try {
+                return Files.size(sourcePath);
+            } catch (IOException ex) {
+                ++missingFileCount;
+                return 0L;
+            }
+        }
+
+        private String currentPath() {
+            StringBuilder pathBuilder = new StringBuilder();
+            Iterator<String> iterator = names.descendingIterator();
+            while (iterator.hasNext()) {
+                if (pathBuilder.length() > 0) {
+                    pathBuilder.append(PATH_SEPARATOR);
+                }
+                pathBuilder.append(iterator.next());
+            }
+            return pathBuilder.toString();
+        }
+    }
+}
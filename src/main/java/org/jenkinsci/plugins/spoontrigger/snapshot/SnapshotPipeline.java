@@ -0,0 +1,687 @@
+package org.jenkinsci.plugins.spoontrigger.snapshot;
+
+import com.google.common.base.Optional;
+import com.google.common.io.Closeables;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.BuildTimelineAction;
+import org.jenkinsci.plugins.spoontrigger.SnapshotBuilder;
+import org.jenkinsci.plugins.spoontrigger.commands.CommandDriver;
+import org.jenkinsci.plugins.spoontrigger.commands.powershell.PowerShellCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.turbo.ImportCommand;
+import org.jenkinsci.plugins.spoontrigger.commands.xstudio.BuildCommand;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.jenkinsci.plugins.spoontrigger.metrics.CommandSample;
+import org.jenkinsci.plugins.spoontrigger.metrics.TimelineSpan;
+import org.jenkinsci.plugins.spoontrigger.scheduledtasks.ScheduledTasksApi;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+import org.jenkinsci.plugins.spoontrigger.vagrant.BaselineCache;
+import org.jenkinsci.plugins.spoontrigger.vagrant.VagrantEnvironment;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.jenkinsci.plugins.spoontrigger.Messages.REQUIRE_PRESENT_S;
+import static org.jenkinsci.plugins.spoontrigger.utils.FileUtils.deleteDirectoryTreeInBackground;
+import static org.jenkinsci.plugins.spoontrigger.utils.LogUtils.log;
+
+/**
+ * Takes a snapshot of the installer and imports it as an image. The pipeline runs on the node which owns
+ * the workspace, so all files are accessed locally and only the result is sent back to the controller.
+ */
+public class SnapshotPipeline extends MasterToSlaveFileCallable<SnapshotPipeline.Result> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String IMAGE_NAME_FILE = "image.txt";
+
+    private final BuildListener listener;
+    private final EnvVars env;
+    private final String charsetName;
+    private final String projectName;
+    private final String sanitizedProjectName;
+    private final String xStudioPath;
+    private final String xStudioLicensePath;
+    private final String vagrantBox;
+    private final String preInstallScriptPath;
+    private final String postSnapshotScriptPath;
+    private final String resourceDirectoryPath;
+    private final String startupFilePath;
+    private final SnapshotBuilder.InstallScriptSettings installScriptSettings;
+    private final ArrayList<String> dependencies;
+    private final ArrayList<String> snapshotPathsToDelete;
+    private final boolean overwrite;
+    private final String importAsImage;
+    private final String baselineCacheDir;
+
+    private transient ArrayList<TimelineSpan> timeline;
+    // commands run on the node, so their metrics are returned to the controller instead of the registry of the node
+    private transient List<CommandSample> commandSamples;
+
+    private SnapshotPipeline(PipelineBuilder builder) {
+        this.listener = builder.listener;
+        this.env = builder.env;
+        this.charsetName = builder.charset.name();
+        this.projectName = builder.projectName;
+        this.sanitizedProjectName = builder.sanitizedProjectName;
+        this.xStudioPath = builder.xStudioPath;
+        this.xStudioLicensePath = builder.xStudioLicensePath;
+        this.vagrantBox = builder.vagrantBox;
+        this.preInstallScriptPath = builder.preInstallScriptPath;
+        this.postSnapshotScriptPath = builder.postSnapshotScriptPath;
+        this.resourceDirectoryPath = builder.resourceDirectoryPath;
+        this.startupFilePath = builder.startupFilePath;
+        this.installScriptSettings = builder.installScriptSettings;
+        this.dependencies = new ArrayList<String>(builder.dependencies);
+        this.snapshotPathsToDelete = new ArrayList<String>(builder.snapshotPathsToDelete);
+        this.overwrite = builder.overwrite;
+        this.importAsImage = builder.importAsImage;
+        this.baselineCacheDir = builder.baselineCacheDir;
+    }
+
+    public static PipelineBuilder builder() {
+        return new PipelineBuilder();
+    }
+
+    @Override
+    public Result invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        timeline = new ArrayList<TimelineSpan>();
+        commandSamples = Collections.synchronizedList(new ArrayList<CommandSample>());
+
+        // dependencies are downloaded while the virtual machine boots and the installer runs
+        ImagePrefetcher prefetcher = new ImagePrefetcher(createCommandDriver(new FilePath(workspace), launcher), listener);
+        prefetcher.start(dependencies);
+        try {
+            Optional<Path> cachedBaseline = Optional.absent();
+            if (baselineCacheDir != null) {
+                cachedBaseline = findCachedBaseline();
+            }
+
+            long stageStartTime = System.currentTimeMillis();
+            VagrantEnvironment vagrantEnv = createVagrantEnvironment(workspace, cachedBaseline);
+            recordPhase("Stage Vagrant environment", stageStartTime);
+            log(listener, vagrantEnv.getStagingStats().toString());
+            try {
+                SnapshotTaker snapshotTaker = new SnapshotTaker(vagrantEnv, launcher, prefetcher);
+                Result result = snapshotTaker.takeSnapshot();
+
+                if (baselineCacheDir != null && !cachedBaseline.isPresent()) {
+                    storeBaseline(vagrantEnv);
+                }
+
+                return result;
+            } finally {
+                // Vagrant working dir was moved to temp, because the Vagrant process running as a scheduled task
+                // does not have write access to the build workspace in Program Files
+                deleteDirectoryTreeInBackground(vagrantEnv.getWorkingDir(), listener);
+            }
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    private void recordPhase(String label, long startTime) {
+        timeline.add(new TimelineSpan(BuildTimelineAction.CATEGORY_SNAPSHOT, label, startTime, System.currentTimeMillis()));
+    }
+
+    private CommandDriver createCommandDriver(FilePath pwd, Launcher launcher) {
+        return CommandDriver.builder()
+                .charset(Charset.forName(charsetName))
+                .env(env)
+                .pwd(pwd)
+                .launcher(launcher)
+                .listener(listener)
+                .samples(commandSamples)
+                .build();
+    }
+
+    private Optional<Path> findCachedBaseline() {
+        try {
+            Optional<BaselineCache.Key> key = createBaselineKey();
+            if (!key.isPresent()) {
+                log(listener, String.format("Vagrant box %s is not installed yet, before snapshot will be taken in the guest machine", vagrantBox));
+                return Optional.absent();
+            }
+
+            Optional<Path> baselinePath = getBaselineCache().find(key.get());
+            if (baselinePath.isPresent()) {
+                log(listener, String.format("Using cached before snapshot (%s)", key.get()));
+            } else {
+                log(listener, String.format("Before snapshot not found in cache (%s)", key.get()));
+            }
+            return baselinePath;
+        } catch (IOException ex) {
+            log(listener, "Failed to look up cached before snapshot", ex);
+            return Optional.absent();
+        }
+    }
+
+    private void storeBaseline(VagrantEnvironment vagrantEnv) {
+        try {
+            // box is downloaded by `vagrant up` if it was not installed before, so the key is created again
+            Optional<BaselineCache.Key> key = createBaselineKey();
+            Path baselinePath = vagrantEnv.getBaselinePath();
+            if (key.isPresent() && Files.isDirectory(baselinePath)) {
+                getBaselineCache().store(key.get(), baselinePath);
+                log(listener, String.format("Before snapshot saved in cache (%s)", key.get()));
+            }
+        } catch (IOException ex) {
+            log(listener, "Failed to save before snapshot in cache", ex);
+        }
+    }
+
+    private Optional<BaselineCache.Key> createBaselineKey() throws IOException {
+        Optional<Path> preInstallScript = Optional.absent();
+        if (preInstallScriptPath != null) {
+            preInstallScript = Optional.of(Paths.get(preInstallScriptPath));
+        }
+
+        return BaselineCache.createKey(vagrantBox, Paths.get(xStudioPath), preInstallScript, env);
+    }
+
+    private BaselineCache getBaselineCache() {
+        return new BaselineCache(Paths.get(baselineCacheDir));
+    }
+
+    private VagrantEnvironment createVagrantEnvironment(File workspace, Optional<Path> cachedBaseline) throws IOException {
+        Path workingDir = Files.createTempDirectory("jenkins-" + sanitizedProjectName + "-build-");
+        VagrantEnvironment.EnvironmentBuilder environmentBuilder = VagrantEnvironment.builder(workingDir)
+                .box(vagrantBox)
+                .xStudioPath(xStudioPath);
+
+        List<Path> installerPaths = getInstallerPaths(workspace);
+        if (!installerPaths.isEmpty()) {
+            environmentBuilder.installerPaths(installerPaths);
+        }
+
+        if (preInstallScriptPath != null) {
+            environmentBuilder.preInstallScriptPath(preInstallScriptPath);
+        }
+
+        if (postSnapshotScriptPath != null) {
+            environmentBuilder.postSnapshotScriptPath(postSnapshotScriptPath);
+        }
+
+        if (resourceDirectoryPath != null) {
+            environmentBuilder.resourceDirectoryPath(resourceDirectoryPath);
+        }
+
+        if (cachedBaseline.isPresent()) {
+            environmentBuilder.baselinePath(cachedBaseline.get());
+        }
+
+        installScriptSettings.configure(environmentBuilder);
+
+        return environmentBuilder.build();
+    }
+
+    private List<Path> getInstallerPaths(File workspace) {
+        File[] workspaceFiles = workspace.listFiles();
+        checkState(workspaceFiles != null, "Failed to list files in %s directory", workspace);
+
+        List<Path> installerPaths = new ArrayList<Path>();
+        for (File workspaceFile : workspaceFiles) {
+            final String extension = FileUtils.getExtension(workspaceFile.toPath());
+            if ("exe".equals(extension) || "msi".equals(extension)) {
+                installerPaths.add(workspaceFile.toPath());
+            }
+        }
+
+        return installerPaths;
+    }
+
+    private static Optional<String> loadImageName(Path imageFilePath) throws IOException {
+        if (imageFilePath.toFile().exists()) {
+            BufferedReader reader = Files.newBufferedReader(imageFilePath, Charset.defaultCharset());
+            try {
+                return Optional.fromNullable(reader.readLine());
+            } finally {
+                final boolean swallowException = true;
+                Closeables.close(reader, swallowException);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private static ArrayList<CommandSample> copy(List<CommandSample> commandSamples) {
+        // prefetched images may be still pulled in the background
+        synchronized (commandSamples) {
+            return new ArrayList<CommandSample>(commandSamples);
+        }
+    }
+
+    public static final class Result implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Getter
+        private final String outputImage;
+
+        @Nullable
+        @Getter
+        private final SnapshotReport report;
+
+        /**
+         * Phases of the pipeline timed by the clock of the node.
+         */
+        @Getter
+        private final ArrayList<TimelineSpan> timeline;
+
+        /**
+         * Time of the node when the pipeline completed, used to align the timeline with the clock of the controller.
+         */
+        @Getter
+        private final long completedAt;
+
+        /**
+         * Commands launched by the pipeline, recorded by the controller.
+         */
+        @Getter
+        private final ArrayList<CommandSample> commandSamples;
+
+        Result(String outputImage, @Nullable SnapshotReport report, List<TimelineSpan> timeline, List<CommandSample> commandSamples) {
+            this.outputImage = outputImage;
+            this.report = report;
+            this.timeline = new ArrayList<TimelineSpan>(timeline);
+            this.commandSamples = copy(commandSamples);
+            this.completedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Failure of the pipeline. It carries the phases timed before the failure, so they are shown on the timeline
+     * of the failed build.
+     */
+    public static final class PipelineException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Phases of the pipeline timed by the clock of the node, the last phase is the one which failed.
+         */
+        @Getter
+        private final ArrayList<TimelineSpan> timeline;
+
+        /**
+         * Time of the node when the pipeline failed, used to align the timeline with the clock of the controller.
+         */
+        @Getter
+        private final long completedAt;
+
+        /**
+         * Commands launched by the pipeline before the failure, recorded by the controller.
+         */
+        @Getter
+        private final ArrayList<CommandSample> commandSamples;
+
+        PipelineException(String message, Throwable cause, List<TimelineSpan> timeline, List<CommandSample> commandSamples) {
+            super(message, cause);
+            this.timeline = new ArrayList<TimelineSpan>(timeline);
+            this.commandSamples = copy(commandSamples);
+            this.completedAt = System.currentTimeMillis();
+        }
+    }
+
+    private class SnapshotTaker {
+        private final VagrantEnvironment vagrantEnv;
+        private final ScheduledTasksApi scheduledTasksApi;
+        private final CommandDriver commandDriver;
+        private final ImagePrefetcher prefetcher;
+
+        private SnapshotReport report;
+
+        public SnapshotTaker(VagrantEnvironment vagrantEnv, Launcher launcher, ImagePrefetcher prefetcher) {
+            this.vagrantEnv = vagrantEnv;
+            this.prefetcher = prefetcher;
+
+            FilePath vagrantDir = new FilePath(vagrantEnv.getWorkingDir().toFile());
+            this.commandDriver = createCommandDriver(vagrantDir, launcher);
+            final boolean quiet = false;
+            this.scheduledTasksApi = new ScheduledTasksApi(env, vagrantDir, Charset.forName(charsetName), launcher, listener, quiet);
+        }
+
+        private Result takeSnapshot() {
+            try {
+                Image outputImage;
+                // boot, install and the after snapshot are provisioners of a single `vagrant up`, so they are timed together
+                String phase = "Vagrant up";
+                long startTime = System.currentTimeMillis();
+                try {
+                    provisionVagrantVm();
+                    recordPhase(phase, startTime);
+
+                    phase = "Post snapshot script";
+                    startTime = System.currentTimeMillis();
+                    executePostSnapshotScript();
+                    recordPhase(phase, startTime);
+
+                    phase = "Process snapshot";
+                    startTime = System.currentTimeMillis();
+                    removeFilesFromSnapshot();
+                    reportSnapshot();
+                    recordPhase(phase, startTime);
+
+                    phase = "Build image";
+                    startTime = System.currentTimeMillis();
+                    buildImage();
+                    recordPhase(phase, startTime);
+
+                    phase = "Import image";
+                    startTime = System.currentTimeMillis();
+                    outputImage = importImage();
+                    recordPhase(phase, startTime);
+                } catch (Throwable buildError) {
+                    recordPhase(phase + " (failed)", startTime);
+
+                    // do not swallow the initial build error
+                    startTime = System.currentTimeMillis();
+                    destroyVagrantVm(true);
+                    recordPhase("Vagrant destroy", startTime);
+                    throw new PipelineException("`vagrant up` failed with exception", buildError, timeline, commandSamples);
+                }
+
+                startTime = System.currentTimeMillis();
+                try {
+                    destroyVagrantVm(false);
+                } catch (IllegalStateException ex) {
+                    recordPhase("Vagrant destroy (failed)", startTime);
+                    throw new PipelineException(ex.getMessage(), ex.getCause(), timeline, commandSamples);
+                }
+                recordPhase("Vagrant destroy", startTime);
+                return new Result(outputImage.printIdentifier(), report, timeline, commandSamples);
+            } finally {
+                scheduledTasksApi.close();
+            }
+        }
+
+        private void executePostSnapshotScript() {
+            Path postSnapshotScriptPath = vagrantEnv.getPostSnapshotScriptPath();
+            if (!postSnapshotScriptPath.toFile().exists()) {
+                return;
+            }
+
+            PowerShellCommand command = PowerShellCommand.builder().scriptPath(postSnapshotScriptPath).build();
+            command.run(commandDriver);
+        }
+
+        private void removeFilesFromSnapshot() throws Exception {
+            if (snapshotPathsToDelete.isEmpty()) {
+                return;
+            }
+
+            log(listener, "Removing redundant files from snapshot...");
+
+            XapplEditor editor = new XapplEditor();
+            Path xapplPath = vagrantEnv.getXapplPath();
+            editor.load(xapplPath);
+
+            for (String path : snapshotPathsToDelete) {
+                if (editor.fileExists(path)) {
+                    editor.removeFile(path);
+                } else {
+                    log(listener, String.format("File %s was not found in the snapshot", path));
+                }
+            }
+
+            editor.save(xapplPath);
+
+            String snapshotDir = vagrantEnv.getSnapshotPath().toString();
+            for (String relativePath : snapshotPathsToDelete) {
+                Path pathToRemove = Paths.get(snapshotDir, relativePath);
+                try {
+                    File fileToRemove = pathToRemove.toFile();
+                    if (!fileToRemove.exists()) {
+                        continue;
+                    }
+
+                    if (fileToRemove.isDirectory()) {
+                        FileUtils.parallelDeleteDirectoryTree(pathToRemove);
+                    } else {
+                        Files.delete(pathToRemove);
+                    }
+                } catch (Throwable th) {
+                    String errorMsg = String.format("Failed to remove %s from snapshot", pathToRemove);
+                    throw new IllegalStateException(errorMsg, th);
+                }
+            }
+        }
+
+        private void reportSnapshot() {
+            try {
+                SnapshotAnalyzer analyzer = new SnapshotAnalyzer();
+                report = analyzer.analyze(vagrantEnv.getXapplPath());
+
+                log(listener, String.format("Snapshot contains %d files of total size %s",
+                        report.getTotalFileCount(), Sizes.formatSize(report.getTotalSize())));
+                final int maxFilesToLog = 5;
+                List<SnapshotReport.FileEntry> largestFiles = report.getLargestFiles();
+                for (int position = 0; position < largestFiles.size() && position < maxFilesToLog; ++position) {
+                    SnapshotReport.FileEntry file = largestFiles.get(position);
+                    log(listener, String.format("  %s %s", file.getDisplaySize(), file.getPath()));
+                }
+            } catch (Throwable th) {
+                // the report is informational, it should not fail the build
+                log(listener, "Failed to analyze the snapshot", th);
+            }
+        }
+
+        private void buildImage() throws InterruptedException {
+            BuildCommand.CommandBuilder commandBuilder = BuildCommand.builder(xStudioPath)
+                    .xapplPath(vagrantEnv.getXapplPath().toString())
+                    .imagePath(vagrantEnv.getImagePath().toString());
+
+            if (xStudioLicensePath != null) {
+                commandBuilder.licensePath(xStudioLicensePath);
+            }
+
+            if (startupFilePath != null) {
+                commandBuilder.startupFilePath(startupFilePath);
+            }
+
+            for (String dependency : dependencies) {
+                prefetcher.await(dependency);
+
+                commandBuilder.dependency(dependency);
+            }
+
+            BuildCommand command = commandBuilder.build();
+            command.run(commandDriver);
+        }
+
+        private Image importImage() {
+            ImportCommand.CommandBuilder commandBuilder = ImportCommand.builder()
+                    .type("svm")
+                    .path(vagrantEnv.getImagePath().toString())
+                    .overwrite(overwrite);
+
+            Optional<String> imageToUse = getOutputImage();
+            if (imageToUse.isPresent()) {
+                commandBuilder.name(Image.parse(imageToUse.get()).printIdentifier());
+            }
+
+            ImportCommand command = commandBuilder.build();
+            command.run(commandDriver);
+
+            Optional<Image> outputImage = command.getOutputImage();
+            checkState(outputImage.isPresent(), "Failed to find imported image in command output");
+
+            return outputImage.get();
+        }
+
+        private Optional<String> getOutputImage() {
+            // load image name from Vagrant working directory, because some snapshot projects extract product version after installation completed
+            // otherwise use image name specified during build setup
+            Path imageFilePath = Paths.get(vagrantEnv.getWorkingDir().toString(), IMAGE_NAME_FILE);
+            try {
+                return loadImageName(imageFilePath).or(Optional.fromNullable(importAsImage));
+            } catch (Throwable th) {
+                String errMsg = String.format("Failed to load image name from %s", imageFilePath);
+                log(listener, errMsg, th);
+                return Optional.fromNullable(importAsImage);
+            }
+        }
+
+        private void provisionVagrantVm() throws IOException, InterruptedException {
+            scheduledTasksApi.run(projectName + " - vagrant up", "vagrant up");
+        }
+
+        private void destroyVagrantVm(boolean swallowException) {
+            try {
+                scheduledTasksApi.run(projectName + " - vagrant destroy", "vagrant destroy --force");
+            } catch (Throwable th) {
+                final String errorMsg = "`vagrant destroy` failed with exception. The virtual machine may have to be removed from VirtualBox manually.";
+                if (swallowException) {
+                    log(listener, errorMsg, th);
+                } else {
+                    throw new IllegalStateException(errorMsg, th);
+                }
+            }
+        }
+    }
+
+    public static final class PipelineBuilder {
+        private BuildListener listener;
+        private EnvVars env;
+        private Charset charset = Charset.defaultCharset();
+        private String projectName;
+        private String sanitizedProjectName;
+        private String xStudioPath;
+        private String xStudioLicensePath;
+        private String vagrantBox;
+        private String preInstallScriptPath;
+        private String postSnapshotScriptPath;
+        private String resourceDirectoryPath;
+        private String startupFilePath;
+        private SnapshotBuilder.InstallScriptSettings installScriptSettings;
+        private Collection<String> dependencies = new ArrayList<String>();
+        private Collection<String> snapshotPathsToDelete = new ArrayList<String>();
+        private boolean overwrite;
+        private String importAsImage;
+        private String baselineCacheDir;
+
+        PipelineBuilder() {
+        }
+
+        public PipelineBuilder listener(BuildListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public PipelineBuilder env(EnvVars env) {
+            this.env = env;
+            return this;
+        }
+
+        public PipelineBuilder charset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        public PipelineBuilder projectName(String projectName, String sanitizedProjectName) {
+            this.projectName = projectName;
+            this.sanitizedProjectName = sanitizedProjectName;
+            return this;
+        }
+
+        public PipelineBuilder xStudioPath(String path) {
+            this.xStudioPath = path;
+            return this;
+        }
+
+        public PipelineBuilder xStudioLicensePath(@Nullable String path) {
+            this.xStudioLicensePath = path;
+            return this;
+        }
+
+        public PipelineBuilder vagrantBox(String vagrantBox) {
+            this.vagrantBox = vagrantBox;
+            return this;
+        }
+
+        public PipelineBuilder preInstallScriptPath(@Nullable String path) {
+            this.preInstallScriptPath = path;
+            return this;
+        }
+
+        public PipelineBuilder postSnapshotScriptPath(@Nullable String path) {
+            this.postSnapshotScriptPath = path;
+            return this;
+        }
+
+        public PipelineBuilder resourceDirectoryPath(@Nullable String path) {
+            this.resourceDirectoryPath = path;
+            return this;
+        }
+
+        public PipelineBuilder startupFilePath(@Nullable String path) {
+            this.startupFilePath = path;
+            return this;
+        }
+
+        public PipelineBuilder installScriptSettings(SnapshotBuilder.InstallScriptSettings settings) {
+            this.installScriptSettings = settings;
+            return this;
+        }
+
+        /**
+         * @param dependencies images with resolved tags, they are pulled on the node in parallel with the provisioning of the virtual machine
+         */
+        public PipelineBuilder dependencies(Collection<String> dependencies) {
+            this.dependencies = dependencies;
+            return this;
+        }
+
+        public PipelineBuilder snapshotPathsToDelete(Collection<String> paths) {
+            this.snapshotPathsToDelete = paths;
+            return this;
+        }
+
+        public PipelineBuilder overwrite(boolean overwrite) {
+            this.overwrite = overwrite;
+            return this;
+        }
+
+        public PipelineBuilder importAsImage(@Nullable String image) {
+            this.importAsImage = image;
+            return this;
+        }
+
+        /**
+         * @param path directory on the node where before snapshots are cached, null disables the cache
+         */
+        public PipelineBuilder baselineCacheDir(@Nullable String path) {
+            this.baselineCacheDir = path;
+            return this;
+        }
+
+        public SnapshotPipeline build() {
+            checkState(listener != null, REQUIRE_PRESENT_S, "listener");
+            checkState(env != null, REQUIRE_PRESENT_S, "env");
+            checkState(projectName != null, REQUIRE_PRESENT_S, "projectName");
+            checkState(xStudioPath != null, REQUIRE_PRESENT_S, "xStudioPath");
+            checkState(vagrantBox != null, REQUIRE_PRESENT_S, "vagrantBox");
+            checkState(installScriptSettings != null, REQUIRE_PRESENT_S, "installScriptSettings");
+
+            return new SnapshotPipeline(this);
+        }
+    }
+}
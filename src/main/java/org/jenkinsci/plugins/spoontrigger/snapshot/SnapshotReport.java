@@ -0,0 +1,132 @@
+package org.jenkinsci.plugins.spoontrigger.snapshot;
+
+import lombok.Getter;
+import org.jenkinsci.plugins.spoontrigger.utils.Sizes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class SnapshotReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final DirectoryEntry root;
+    @Getter
+    private final List<FileEntry> largestFiles;
+    @Getter
+    private final int missingFileCount;
+
+    SnapshotReport(DirectoryEntry root, List<FileEntry> largestFiles, int missingFileCount) {
+        this.root = root;
+        this.largestFiles = largestFiles;
+        this.missingFileCount = missingFileCount;
+    }
+
+    public long getTotalSize() {
+        return root.getSize();
+    }
+
+    public int getTotalFileCount() {
+        return root.getFileCount();
+    }
+
+    /**
+     * Returns the directory tree flattened in pre-order, so it can be rendered as a table.
+     */
+    public List<DirectoryEntry> getDirectories() {
+        List<DirectoryEntry> result = new ArrayList<DirectoryEntry>();
+        for (DirectoryEntry child : root.getChildren()) {
+            collect(child, result);
+        }
+        return result;
+    }
+
+    private static void collect(DirectoryEntry entry, List<DirectoryEntry> result) {
+        result.add(entry);
+        for (DirectoryEntry child : entry.getChildren()) {
+            collect(child, result);
+        }
+    }
+
+    public static class DirectoryEntry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Comparator<DirectoryEntry> BY_SIZE_DESCENDING = new Comparator<DirectoryEntry>() {
+            @Override
+            public int compare(DirectoryEntry left, DirectoryEntry right) {
+                return Long.compare(right.size, left.size);
+            }
+        };
+
+        @Getter
+        private final String path;
+        @Getter
+        private final int depth;
+        @Getter
+        private long size;
+        @Getter
+        private int fileCount;
+
+        private final ArrayList<DirectoryEntry> children = new ArrayList<DirectoryEntry>();
+
+        DirectoryEntry(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+
+        public List<DirectoryEntry> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        public String getDisplaySize() {
+            return Sizes.formatSize(size);
+        }
+
+        void addFile(long fileSize) {
+            size += fileSize;
+            ++fileCount;
+        }
+
+        void addChild(DirectoryEntry child) {
+            children.add(child);
+        }
+
+        void sortChildren() {
+            Collections.sort(children, BY_SIZE_DESCENDING);
+            for (DirectoryEntry child : children) {
+                child.sortChildren();
+            }
+        }
+    }
+
+    public static class FileEntry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        static final Comparator<FileEntry> BY_SIZE_ASCENDING = new Comparator<FileEntry>() {
+            @Override
+            public int compare(FileEntry left, FileEntry right) {
+                return Long.compare(left.size, right.size);
+            }
+        };
+
+        @Getter
+        private final String path;
+        @Getter
+        private final long size;
+
+        FileEntry(String path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public String getDisplaySize() {
+            return Sizes.formatSize(size);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.jenkinsci.plugins.spoontrigger.utils;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
@@ -9,10 +10,18 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -64,52 +73,97 @@ public final class FileResolver {
         checkState(this.taskListener.isPresent(), REQUIRE_PRESENT_S, "listener");
 
         String expandedPath = this.env.isPresent() ? this.env.get().expand(filePath) : filePath;
+        List<FilePath> candidates = new ArrayList<FilePath>(this.probingStrategy.size());
         for (Probe strategy : this.probingStrategy) {
-            Optional<FilePath> resolvedPath = strategy.resolve(expandedPath, this.build.get(), this.taskListener.get());
-            if (resolvedPath.isPresent()) {
-                return resolvedPath;
+            candidates.add(strategy.locate(expandedPath, this.build.get()));
+        }
+
+        // candidates on the same node are checked in a single call to avoid a round trip per probe
+        Map<VirtualChannel, List<FilePath>> candidatesByChannel = new LinkedHashMap<VirtualChannel, List<FilePath>>();
+        for (FilePath candidate : candidates) {
+            List<FilePath> channelCandidates = candidatesByChannel.get(candidate.getChannel());
+            if (channelCandidates == null) {
+                channelCandidates = new ArrayList<FilePath>();
+                candidatesByChannel.put(candidate.getChannel(), channelCandidates);
+            }
+            channelCandidates.add(candidate);
+        }
+
+        Set<FilePath> existingFiles = new HashSet<FilePath>();
+        for (List<FilePath> channelCandidates : candidatesByChannel.values()) {
+            existingFiles.addAll(findExistingFiles(channelCandidates));
+        }
+
+        for (FilePath candidate : candidates) {
+            if (existingFiles.contains(candidate)) {
+                return Optional.of(candidate);
             }
         }
 
         return Optional.absent();
     }
 
+    private List<FilePath> findExistingFiles(List<FilePath> candidates) {
+        ArrayList<String> remotePaths = new ArrayList<String>(candidates.size());
+        for (FilePath candidate : candidates) {
+            remotePaths.add(candidate.getRemote());
+        }
+
+        List<FilePath> existingFiles = new ArrayList<FilePath>();
+        try {
+            boolean[] exists = candidates.get(0).act(new ExistsCallable(remotePaths));
+            for (int position = 0; position < exists.length; ++position) {
+                if (exists[position]) {
+                    existingFiles.add(candidates.get(position));
+                }
+            }
+        } catch (Exception ex) {
+            String msg = String.format("Failed to find the file at (%s)%n%s", Joiner.on(", ").join(remotePaths), Throwables.getStackTraceAsString(ex));
+            this.taskListener.get().error(msg);
+        }
+        return existingFiles;
+    }
+
+    private static final class ExistsCallable extends MasterToSlaveCallable<boolean[], IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<String> remotePaths;
+
+        ExistsCallable(ArrayList<String> remotePaths) {
+            this.remotePaths = remotePaths;
+        }
+
+        @Override
+        public boolean[] call() throws IOException {
+            boolean[] exists = new boolean[remotePaths.size()];
+            for (int position = 0; position < exists.length; ++position) {
+                exists[position] = new File(remotePaths.get(position)).exists();
+            }
+            return exists;
+        }
+    }
+
     public static enum Probe {
         WORKING_DIR {
             @Override
-            public Optional<FilePath> resolve(String filePath, AbstractBuild build, TaskListener listener) {
+            public FilePath locate(String filePath, AbstractBuild build) {
                 File file = new File(filePath);
-                FilePath jenkinsFilePath = new FilePath(file);
-                return resolve(jenkinsFilePath, listener);
+                return new FilePath(file);
             }
         },
         MODULE {
             @Override
-            public Optional<FilePath> resolve(String filePath, AbstractBuild build, TaskListener listener) {
-                FilePath jenkinsFilePath = new FilePath(build.getModuleRoot(), filePath);
-                return resolve(jenkinsFilePath, listener);
+            public FilePath locate(String filePath, AbstractBuild build) {
+                return new FilePath(build.getModuleRoot(), filePath);
             }
         },
         WORKSPACE {
             @Override
-            public Optional<FilePath> resolve(String filePath, AbstractBuild build, TaskListener listener) {
-                FilePath jenkinsFilePath = new FilePath(build.getWorkspace(), filePath);
-                return resolve(jenkinsFilePath, listener);
+            public FilePath locate(String filePath, AbstractBuild build) {
+                return new FilePath(build.getWorkspace(), filePath);
             }
         };
 
-        public abstract Optional<FilePath> resolve(String filePath, AbstractBuild build, TaskListener listener);
-
-        Optional<FilePath> resolve(FilePath filePath, TaskListener listener) {
-            try {
-                if (filePath.exists()) {
-                    return Optional.of(filePath);
-                }
-            } catch (Exception ex) {
-                String msg = String.format("Failed to find the file at (%s)%n%s", filePath.getRemote(), Throwables.getStackTraceAsString(ex));
-                listener.error(msg);
-            }
-            return Optional.absent();
-        }
+        public abstract FilePath locate(String filePath, AbstractBuild build);
     }
 }
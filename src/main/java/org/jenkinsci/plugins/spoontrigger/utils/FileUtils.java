@@ -1,22 +1,159 @@
 package org.jenkinsci.plugins.spoontrigger.utils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.model.TaskListener;
 import org.apache.http.util.TextUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 public final class FileUtils {
 
+    private static final Logger LOGGER = Logger.getLogger(FileUtils.class.getName());
+
+    // trash directories are named spoon-trash-<name>-<nanoTime>, only directories with such names are swept
+    private static final String TRASH_PREFIX = "spoon-trash-";
+    private static final Pattern TRASH_NAME_PATTERN = Pattern.compile("^" + Pattern.quote(TRASH_PREFIX) + ".+-\\d+$");
+
+    private static final ForkJoinPool DELETE_POOL = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService BACKGROUND_DELETE_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spoon-background-delete-%d").build());
+
+    // trash directories already queued for deletion, so the sweep does not queue them twice
+    private static final Set<Path> QUEUED_TRASH = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+
     public static void deleteDirectoryTree(Path path) throws IOException {
         Files.walkFileTree(path, new DeleteDirectoryTreeVisitor());
     }
 
+    /**
+     * Deletes the directory tree using a fork-join pool, subdirectories are deleted in parallel.
+     */
+    public static void parallelDeleteDirectoryTree(Path path) throws IOException {
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            Files.delete(path);
+            return;
+        }
+
+        Queue<IOException> errors = new ConcurrentLinkedQueue<IOException>();
+        DELETE_POOL.invoke(new DeleteDirectoryTreeTask(path, errors));
+
+        IOException firstError = errors.poll();
+        if (firstError != null) {
+            IOException ex = new IOException(String.format("Failed to delete %s", path), firstError);
+            for (IOException error : errors) {
+                ex.addSuppressed(error);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Renames the directory to a {@code spoon-trash-<name>-<nanoTime>} sibling and deletes it in the background, so the caller does not wait for
+     * the deletion to complete. If the directory cannot be renamed it is deleted before the method returns.
+     * <p>
+     * Trash siblings left by a failed deletion or a JVM exit are deleted in the background as well. A failure to delete
+     * before the method returns is written to the listener. Background failures are written only to the Jenkins log,
+     * because the build log may already be closed when they happen.
+     */
+    public static void deleteDirectoryTreeInBackground(Path path, TaskListener listener) {
+        if (Files.notExists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        Path fileName = path.getFileName();
+        Path parent = path.toAbsolutePath().getParent();
+        if (fileName == null || parent == null) {
+            deleteOrLog(path, listener);
+            return;
+        }
+
+        sweepTrash(parent);
+
+        Path trashPath = path.resolveSibling(TRASH_PREFIX + fileName.toString() + '-' + System.nanoTime());
+        try {
+            Files.move(path, trashPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            deleteOrLog(path, listener);
+            return;
+        }
+
+        deleteInBackground(trashPath);
+    }
+
+    private static void sweepTrash(Path directory) {
+        try {
+            DirectoryStream<Path> trashPaths = Files.newDirectoryStream(directory, TRASH_PREFIX + "*");
+            try {
+                for (Path trashPath : trashPaths) {
+                    if (TRASH_NAME_PATTERN.matcher(trashPath.getFileName().toString()).matches()
+                            && Files.isDirectory(trashPath, LinkOption.NOFOLLOW_LINKS)) {
+                        deleteInBackground(trashPath);
+                    }
+                }
+            } finally {
+                trashPaths.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, String.format("Failed to list trash directories in %s", directory), ex);
+        }
+    }
+
+    private static void deleteInBackground(final Path trashPath) {
+        if (!QUEUED_TRASH.add(trashPath.toAbsolutePath())) {
+            return;
+        }
+
+        BACKGROUND_DELETE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    parallelDeleteDirectoryTree(trashPath);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, String.format(
+                            "Failed to delete %s, it will be deleted again on the next cleanup", trashPath), ex);
+                } finally {
+                    QUEUED_TRASH.remove(trashPath.toAbsolutePath());
+                }
+            }
+        });
+    }
+
+    private static void deleteOrLog(Path path, TaskListener listener) {
+        try {
+            parallelDeleteDirectoryTree(path);
+        } catch (IOException ex) {
+            String msg = String.format("Failed to delete %s", path);
+            LOGGER.log(Level.WARNING, msg, ex);
+            listener.getLogger().println(String.format("%s: %s", msg, ex.getMessage()));
+        }
+    }
+
     public static void quietDeleteChildren(Path path) throws IOException {
         File[] children = path.toFile().listFiles();
         if (children == null) {
@@ -58,7 +195,7 @@ public final class FileUtils {
 
     public static void quietDeleteDirectoryTree(Path directory) {
         try {
-            FileUtils.deleteDirectoryTree(directory);
+            FileUtils.parallelDeleteDirectoryTree(directory);
         } catch (IOException ex) {
             // no-op
         }
@@ -70,6 +207,62 @@ public final class FileUtils {
         }
     }
 
+    private static class DeleteDirectoryTreeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Queue<IOException> errors;
+
+        DeleteDirectoryTreeTask(Path directory, Queue<IOException> errors) {
+            this.directory = directory;
+            this.errors = errors;
+        }
+
+        @Override
+        protected void compute() {
+            List<DeleteDirectoryTreeTask> subtasks = new ArrayList<DeleteDirectoryTreeTask>();
+            try {
+                DirectoryStream<Path> children = Files.newDirectoryStream(directory);
+                try {
+                    for (Path child : children) {
+                        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                            subtasks.add(new DeleteDirectoryTreeTask(child, errors));
+                        } else {
+                            delete(child);
+                        }
+                    }
+                } finally {
+                    children.close();
+                }
+            } catch (IOException ex) {
+                errors.add(ex);
+            }
+
+            invokeAll(subtasks);
+            delete(directory);
+        }
+
+        private void delete(Path path) {
+            try {
+                Files.delete(path);
+            } catch (AccessDeniedException ex) {
+                // read-only files cannot be deleted on Windows
+                if (path.toFile().setWritable(true)) {
+                    try {
+                        Files.delete(path);
+                        return;
+                    } catch (IOException retryEx) {
+                        ex.addSuppressed(retryEx);
+                    }
+                }
+                errors.add(ex);
+            } catch (IOException ex) {
+                errors.add(ex);
+            }
+        }
+    }
+
     private static class DeleteDirectoryTreeVisitor extends SimpleFileVisitor<Path> {
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
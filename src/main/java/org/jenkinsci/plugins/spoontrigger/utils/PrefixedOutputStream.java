@@ -0,0 +1,35 @@
+package org.jenkinsci.plugins.spoontrigger.utils;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Prefixes every line written to the stream. A line is written to the underlying stream in a single call, so lines
+ * of several streams which share the build log are not interleaved. Closing the stream does not close the build log.
+ */
+public class PrefixedOutputStream extends LineTransformationOutputStream {
+
+    private final OutputStream out;
+    private final byte[] prefix;
+
+    public PrefixedOutputStream(OutputStream out, String prefix, Charset charset) {
+        this.out = out;
+        this.prefix = prefix.getBytes(charset);
+    }
+
+    @Override
+    protected void eol(byte[] bytes, int length) throws IOException {
+        byte[] line = new byte[prefix.length + length];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(bytes, 0, line, prefix.length, length);
+        out.write(line, 0, line.length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.spoontrigger.utils;
+
+import java.util.Locale;
+
+public final class Sizes {
+
+    private static final String[] SIZE_UNITS = new String[]{"B", "KB", "MB", "GB", "TB"};
+
+    public static String formatSize(long size) {
+        double value = size;
+        int unit = 0;
+        while (value >= 1024.0 && unit < SIZE_UNITS.length - 1) {
+            value /= 1024.0;
+            ++unit;
+        }
+        if (unit == 0) {
+            return String.format(Locale.ROOT, "%d %s", size, SIZE_UNITS[unit]);
+        }
+        return String.format(Locale.ROOT, "%.2f %s", value, SIZE_UNITS[unit]);
+    }
+
+    /**
+     * Converts a size printed by turbo, for example {@code 12.5 MB}, to bytes. The decimal separator may be a comma.
+     *
+     * @throws IllegalArgumentException if the value is not a number or the unit is not known
+     */
+    public static long parseSize(String value, String unit) throws IllegalArgumentException {
+        int exponent = -1;
+        for (int position = 0; position < SIZE_UNITS.length; ++position) {
+            if (SIZE_UNITS[position].equalsIgnoreCase(unit)) {
+                exponent = position;
+                break;
+            }
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException(String.format("Size unit (%s) is not known", unit));
+        }
+
+        double size = Double.parseDouble(value.replace(',', '.'));
+        return (long) (size * Math.pow(1024.0, exponent));
+    }
+}
@@ -1,8 +1,14 @@
 package org.jenkinsci.plugins.spoontrigger.utils;
 
 import com.google.common.base.Throwables;
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
 import hudson.model.TaskListener;
 
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
 public final class TaskListeners {
 
     public static void logFatalError(TaskListener listener, IllegalStateException ex) {
@@ -10,6 +16,20 @@ public final class TaskListeners {
         listener.fatalError(msg);
     }
 
+    /**
+     * Creates a listener which writes to the build log with every line prefixed, so output of builds running
+     * in parallel can be told apart. The listener must be closed to write the last incomplete line.
+     */
+    public static BuildListener prefixed(BuildListener listener, String prefix, Charset charset) {
+        PrefixedOutputStream out = new PrefixedOutputStream(listener.getLogger(), prefix, charset);
+        try {
+            final boolean autoFlush = true;
+            return new StreamBuildListener(new PrintStream(out, autoFlush, charset.name()), charset);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     private static String getFailureMessage(IllegalStateException ex) {
         if (ex.getCause() == null) {
             return ex.getMessage();
@@ -0,0 +1,260 @@
+package org.jenkinsci.plugins.spoontrigger.vagrant;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.jenkinsci.plugins.spoontrigger.hub.Version;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Stores xStudio "before" snapshots of a clean guest machine. The baseline does not depend on the application being
+ * installed, so it can be reused by every build which runs on the same box version with the same xStudio and
+ * pre-install script.
+ * <p>
+ * Only the most recently used entries of each box are kept, older entries are deleted when a new entry is stored.
+ */
+public class BaselineCache {
+
+    private static final String VAGRANT_HOME_ENV = "VAGRANT_HOME";
+    private static final String VAGRANT_SLASH = "-VAGRANTSLASH-";
+    private static final String KEY_FILE = "key.txt";
+    private static final String BASELINE_DIRECTORY = "baseline";
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+    private static final int ENTRY_ID_LENGTH = 16;
+    private static final Pattern ENTRY_ID_PATTERN = Pattern.compile("^[0-9a-f]{" + ENTRY_ID_LENGTH + "}$");
+    private static final String BOX_PREFIX = "box=";
+    private static final String PART_SEPARATOR = ", ";
+
+    public static final int DEFAULT_ENTRIES_PER_BOX = 2;
+
+    private final Path cacheDir;
+    private final int entriesPerBox;
+
+    public BaselineCache(Path cacheDir) {
+        this(cacheDir, DEFAULT_ENTRIES_PER_BOX);
+    }
+
+    public BaselineCache(Path cacheDir, int entriesPerBox) {
+        checkArgument(entriesPerBox > 0, "entriesPerBox (%s) must be positive", entriesPerBox);
+
+        this.cacheDir = cacheDir;
+        this.entriesPerBox = entriesPerBox;
+    }
+
+    /**
+     * Returns the key of the baseline or absent if the box was not downloaded yet, so its version is unknown.
+     */
+    public static Optional<Key> createKey(String box, Path xStudioPath, Optional<Path> preInstallScriptPath, Map<String, String> env) throws IOException {
+        Optional<String> boxVersion = getInstalledBoxVersion(box, env);
+        if (!boxVersion.isPresent()) {
+            return Optional.absent();
+        }
+
+        String xStudioHash = hash(xStudioPath);
+        String preInstallScriptHash = preInstallScriptPath.isPresent() ? hash(preInstallScriptPath.get()) : "";
+        return Optional.of(new Key(box, boxVersion.get(), xStudioHash, preInstallScriptHash));
+    }
+
+    public Optional<Path> find(Key key) {
+        Path entryDir = getEntryDir(key);
+        Path baselineDir = Paths.get(entryDir.toString(), BASELINE_DIRECTORY);
+        if (Files.isDirectory(baselineDir)) {
+            markUsed(entryDir);
+            return Optional.of(baselineDir);
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Copies the baseline to the cache. The entry is prepared in a temporary directory and then renamed,
+     * so concurrent builds never see an incomplete baseline.
+     */
+    public void store(Key key, Path baselineDir) throws IOException {
+        checkArgument(Files.isDirectory(baselineDir), "baselineDir (%s) must be a directory", baselineDir);
+
+        Path entryDir = getEntryDir(key);
+        if (Files.exists(entryDir)) {
+            return;
+        }
+
+        Files.createDirectories(cacheDir);
+        Path tempDir = Files.createTempDirectory(cacheDir, key.getId() + "-");
+        try {
+            copyDirectory(baselineDir, Paths.get(tempDir.toString(), BASELINE_DIRECTORY));
+            Files.write(Paths.get(tempDir.toString(), KEY_FILE), Collections.singletonList(key.toString()), Charset.defaultCharset());
+            Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            FileUtils.quietDeleteDirectoryTreeIfExists(tempDir);
+            if (!Files.exists(entryDir)) {
+                throw ex;
+            }
+        }
+
+        evict(key.getBox());
+    }
+
+    /**
+     * Deletes all but the most recently used entries of the box. The last use is the modification time of the key file.
+     */
+    private void evict(String box) throws IOException {
+        synchronized (BaselineCache.class) {
+            File[] entryDirs = cacheDir.toFile().listFiles();
+            if (entryDirs == null) {
+                return;
+            }
+
+            List<File> keyFiles = new ArrayList<File>();
+            for (File entryDir : entryDirs) {
+                File keyFile = new File(entryDir, KEY_FILE);
+                if (ENTRY_ID_PATTERN.matcher(entryDir.getName()).matches() && keyFile.isFile() && box.equals(readBox(keyFile.toPath()))) {
+                    keyFiles.add(keyFile);
+                }
+            }
+
+            Collections.sort(keyFiles, new Comparator<File>() {
+                @Override
+                public int compare(File left, File right) {
+                    return Long.compare(right.lastModified(), left.lastModified());
+                }
+            });
+
+            for (int position = entriesPerBox; position < keyFiles.size(); ++position) {
+                FileUtils.quietDeleteDirectoryTree(keyFiles.get(position).getParentFile().toPath());
+            }
+        }
+    }
+
+    private Path getEntryDir(Key key) {
+        return Paths.get(cacheDir.toString(), key.getId());
+    }
+
+    private static void markUsed(Path entryDir) {
+        try {
+            Files.setLastModifiedTime(Paths.get(entryDir.toString(), KEY_FILE), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // no-op, the entry is only evicted earlier
+        }
+    }
+
+    private static String readBox(Path keyFile) throws IOException {
+        List<String> lines = Files.readAllLines(keyFile, Charset.defaultCharset());
+        if (lines.isEmpty()) {
+            return "";
+        }
+
+        String firstPart = lines.get(0).split(PART_SEPARATOR, 2)[0];
+        return firstPart.startsWith(BOX_PREFIX) ? firstPart.substring(BOX_PREFIX.length()) : "";
+    }
+
+    private static void copyDirectory(final Path source, final Path destination) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, destination.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String hash(Path path) throws IOException {
+        return com.google.common.io.Files.hash(path.toFile(), HASH_FUNCTION).toString();
+    }
+
+    /**
+     * Vagrant uses the latest installed version of a box unless the Vagrantfile requires a specific version.
+     */
+    private static Optional<String> getInstalledBoxVersion(String box, Map<String, String> env) {
+        String vagrantHome = env.get(VAGRANT_HOME_ENV);
+        if (Strings.isNullOrEmpty(vagrantHome)) {
+            vagrantHome = Paths.get(System.getProperty("user.home"), ".vagrant.d").toString();
+        }
+
+        File boxDir = Paths.get(vagrantHome, "boxes", box.replace("/", VAGRANT_SLASH)).toFile();
+        File[] versionDirs = boxDir.listFiles();
+        if (versionDirs == null) {
+            return Optional.absent();
+        }
+
+        Optional<Version> latestVersion = Optional.absent();
+        for (File versionDir : versionDirs) {
+            if (!versionDir.isDirectory()) {
+                continue;
+            }
+
+            Optional<Version> version = Version.tryParse(versionDir.getName());
+            if (version.isPresent() && (!latestVersion.isPresent() || version.get().compareTo(latestVersion.get()) > 0)) {
+                latestVersion = version;
+            }
+        }
+
+        if (latestVersion.isPresent()) {
+            return Optional.of(latestVersion.get().toString());
+        }
+        return Optional.absent();
+    }
+
+    public static final class Key {
+        private final String box;
+        private final String boxVersion;
+        private final String xStudioHash;
+        private final String preInstallScriptHash;
+
+        Key(String box, String boxVersion, String xStudioHash, String preInstallScriptHash) {
+            this.box = box;
+            this.boxVersion = boxVersion;
+            this.xStudioHash = xStudioHash;
+            this.preInstallScriptHash = preInstallScriptHash;
+        }
+
+        public String getBox() {
+            return box;
+        }
+
+        public String getBoxVersion() {
+            return boxVersion;
+        }
+
+        public String getId() {
+            return HASH_FUNCTION.hashString(toString(), Charsets.UTF_8).toString().substring(0, ENTRY_ID_LENGTH);
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<String>();
+            parts.add(BOX_PREFIX + box);
+            parts.add("boxVersion=" + boxVersion);
+            parts.add("xStudio=" + xStudioHash);
+            parts.add("preInstallScript=" + preInstallScriptHash);
+            return Joiner.on(PART_SEPARATOR).join(parts);
+        }
+    }
+}
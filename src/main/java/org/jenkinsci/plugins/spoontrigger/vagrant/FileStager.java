@@ -0,0 +1,224 @@
+package org.jenkinsci.plugins.spoontrigger.vagrant;
+
+import com.google.common.io.Closeables;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Stages files into the Vagrant working directory, which the guest machine mounts with write access. Files the guest
+ * only reads are hard linked if the source and the destination are on the same volume. All other files are copied
+ * in parallel, so nothing the guest writes can change the source files.
+ */
+public class FileStager {
+
+    private static final int DEFAULT_THREAD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final int threadCount;
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    public FileStager() {
+        this(DEFAULT_THREAD_COUNT);
+    }
+
+    public FileStager(int threadCount) {
+        checkArgument(threadCount > 0, "threadCount (%s) must be positive", threadCount);
+
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Adds a file which the guest machine never opens for writing, so it may be hard linked.
+     */
+    public FileStager addReadOnly(Path source, Path destination) {
+        entries.add(new Entry(source, destination, true));
+        return this;
+    }
+
+    /**
+     * Adds a file which is always copied, because the guest machine may modify it.
+     */
+    public FileStager addCopy(Path source, Path destination) {
+        entries.add(new Entry(source, destination, false));
+        return this;
+    }
+
+    public Stats stage() throws IOException, InterruptedException {
+        final long startTime = System.currentTimeMillis();
+        final AtomicLong linkedFiles = new AtomicLong();
+        final AtomicLong linkedBytes = new AtomicLong();
+        final AtomicLong copiedFiles = new AtomicLong();
+        final AtomicLong copiedBytes = new AtomicLong();
+
+        List<Entry> entriesToCopy = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            long size = Files.size(entry.source);
+            if (entry.linkAllowed && tryLink(entry.source, entry.destination)) {
+                linkedFiles.incrementAndGet();
+                linkedBytes.addAndGet(size);
+            } else {
+                entriesToCopy.add(entry);
+            }
+        }
+
+        if (!entriesToCopy.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, entriesToCopy.size()));
+            try {
+                List<Future<Long>> results = new ArrayList<Future<Long>>(entriesToCopy.size());
+                for (final Entry entry : entriesToCopy) {
+                    results.add(executor.submit(new Callable<Long>() {
+                        @Override
+                        public Long call() throws IOException {
+                            return copy(entry.source, entry.destination);
+                        }
+                    }));
+                }
+
+                for (Future<Long> result : results) {
+                    copiedBytes.addAndGet(getResult(result));
+                    copiedFiles.incrementAndGet();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        return new Stats(linkedFiles.get(), linkedBytes.get(), copiedFiles.get(), copiedBytes.get(), duration);
+    }
+
+    boolean tryLink(Path source, Path destination) {
+        try {
+            if (!isSameVolume(source, destination)) {
+                return false;
+            }
+
+            Files.deleteIfExists(destination);
+            Files.createLink(destination, source);
+            return true;
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        } catch (IOException ex) {
+            return false;
+        } catch (SecurityException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isSameVolume(Path source, Path destination) throws IOException {
+        Path destinationDir = destination.toAbsolutePath().getParent();
+        if (destinationDir == null) {
+            return false;
+        }
+
+        FileStore sourceStore = Files.getFileStore(source);
+        FileStore destinationStore = Files.getFileStore(destinationDir);
+        return sourceStore.equals(destinationStore);
+    }
+
+    private static long copy(Path source, Path destination) throws IOException {
+        FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            FileChannel destinationChannel = FileChannel.open(destination,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            try {
+                final long size = sourceChannel.size();
+                long position = 0;
+                while (position < size) {
+                    position += sourceChannel.transferTo(position, size - position, destinationChannel);
+                }
+                return size;
+            } finally {
+                final boolean swallowException = false;
+                Closeables.close(destinationChannel, swallowException);
+            }
+        } catch (IOException ex) {
+            String msg = String.format("Failed to copy %s to %s", source, destination);
+            throw new IOException(msg, ex);
+        } finally {
+            final boolean swallowException = true;
+            Closeables.close(sourceChannel, swallowException);
+        }
+    }
+
+    private static long getResult(Future<Long> result) throws IOException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Entry {
+        private final Path source;
+        private final Path destination;
+        private final boolean linkAllowed;
+
+        Entry(Path source, Path destination, boolean linkAllowed) {
+            this.source = source;
+            this.destination = destination;
+            this.linkAllowed = linkAllowed;
+        }
+    }
+
+    public static final class Stats implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Getter
+        private final long linkedFiles;
+        @Getter
+        private final long linkedBytes;
+        @Getter
+        private final long copiedFiles;
+        @Getter
+        private final long copiedBytes;
+        @Getter
+        private final long durationMillis;
+
+        Stats(long linkedFiles, long linkedBytes, long copiedFiles, long copiedBytes, long durationMillis) {
+            this.linkedFiles = linkedFiles;
+            this.linkedBytes = linkedBytes;
+            this.copiedFiles = copiedFiles;
+            this.copiedBytes = copiedBytes;
+            this.durationMillis = durationMillis;
+        }
+
+        public long getTotalBytes() {
+            return linkedBytes + copiedBytes;
+        }
+
+        @Override
+        public String toString() {
+            final double bytesInMB = 1024.0 * 1024.0;
+            return String.format(Locale.ROOT, "Staged %.2f MB in %.1f s (linked %d files, %.2f MB; copied %d files, %.2f MB)",
+                    getTotalBytes() / bytesInMB,
+                    durationMillis / 1000.0,
+                    linkedFiles,
+                    linkedBytes / bytesInMB,
+                    copiedFiles,
+                    copiedBytes / bytesInMB);
+        }
+    }
+}
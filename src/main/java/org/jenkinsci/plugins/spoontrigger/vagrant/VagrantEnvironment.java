@@ -4,11 +4,11 @@ import com.google.common.base.Optional;
 import lombok.Getter;
 import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
 
-import java.io.File;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -21,6 +21,7 @@ public class VagrantEnvironment implements Closeable {
     public static final String INSTALL_DIRECTORY = "install";
     public static final String OUTPUT_DIRECTORY = "output";
     public static final String RESOURCE_DIRECTORY = "resources";
+    public static final String BASELINE_DIRECTORY = "snapshot";
     public static final String PRE_INSTALL_SCRIPT_FILE = "pre_install.ps1";
     public static final String POST_SNAPSHOT_SCRIPT_FILE = "post_snapshot.ps1";
     public static final String XAPPL_FILE = "snapshot.xappl";
@@ -34,9 +35,12 @@ public class VagrantEnvironment implements Closeable {
 
     @Getter
     private final Path workingDir;
+    @Getter
+    private final FileStager.Stats stagingStats;
 
-    private VagrantEnvironment(Path workingDir) {
+    private VagrantEnvironment(Path workingDir, FileStager.Stats stagingStats) {
         this.workingDir = workingDir;
+        this.stagingStats = stagingStats;
     }
 
     public static EnvironmentBuilder builder(Path workingDir) {
@@ -51,6 +55,13 @@ public class VagrantEnvironment implements Closeable {
         return Paths.get(getOutputPath().toString(), "Files");
     }
 
+    /**
+     * Directory with the xStudio "before" snapshot of the guest machine.
+     */
+    public Path getBaselinePath() {
+        return Paths.get(getOutputPath().toString(), BASELINE_DIRECTORY);
+    }
+
     public Path getXapplPath() {
         return Paths.get(getOutputPath().toString(), XAPPL_FILE);
     }
@@ -74,6 +85,7 @@ public class VagrantEnvironment implements Closeable {
 
     public static class EnvironmentBuilder {
         private final Path workingDir;
+        private final FileStager fileStager = new FileStager();
 
         private Optional<String> xStudioPath = Optional.absent();
         private Optional<String> box = Optional.absent();
@@ -83,6 +95,7 @@ public class VagrantEnvironment implements Closeable {
         private Optional<String> postSnapshotScriptPath = Optional.absent();
         private Optional<String> preInstallScriptPath = Optional.absent();
         private Optional<String> resourceDirectoryPath = Optional.absent();
+        private Optional<Path> baselinePath = Optional.absent();
         private boolean ignoreExitCode = false;
 
         public EnvironmentBuilder(Path workingDir) {
@@ -125,6 +138,14 @@ public class VagrantEnvironment implements Closeable {
             return this;
         }
 
+        /**
+         * Uses a cached "before" snapshot instead of taking it in the guest machine.
+         */
+        public EnvironmentBuilder baselinePath(Path path) {
+            this.baselinePath = Optional.of(path);
+            return this;
+        }
+
         public EnvironmentBuilder box(String vagrantBox) {
             this.box = Optional.of(vagrantBox);
             return this;
@@ -146,8 +167,9 @@ public class VagrantEnvironment implements Closeable {
             VagrantFileTemplate.Config vagrantConfig = setupInstallDirectory();
             setupWorkingDirectory(vagrantConfig);
             setupOutputDirectory();
+            FileStager.Stats stagingStats = stageFiles();
 
-            return new VagrantEnvironment(workingDir);
+            return new VagrantEnvironment(workingDir, stagingStats);
         }
 
         private void setupToolsDirectory() {
@@ -156,7 +178,8 @@ public class VagrantEnvironment implements Closeable {
 
             Path xStudioSourcePath = Paths.get(xStudioPath.get());
             Path xStudioDestPath = Paths.get(toolsDir.toString(), XSTUDIO_EXE_FILE);
-            copyFile(xStudioSourcePath, xStudioDestPath);
+            // xStudio is only executed by the guest machine, so it is safe to link
+            fileStager.addReadOnly(xStudioSourcePath, xStudioDestPath);
         }
 
         private void setupResourceDirectory() {
@@ -164,13 +187,28 @@ public class VagrantEnvironment implements Closeable {
                 return;
             }
 
-            File resourceSourceDir = new File(resourceDirectoryPath.get());
-            File resourceDestDir = new File(workingDir.toFile(), RESOURCE_DIRECTORY);
+            final Path resourceSourceDir = Paths.get(resourceDirectoryPath.get());
+            final Path resourceDestDir = Paths.get(workingDir.toString(), RESOURCE_DIRECTORY);
             try {
-                org.apache.commons.io.FileUtils.copyDirectory(resourceSourceDir, resourceDestDir);
-            } catch (Throwable th) {
+                Files.walkFileTree(resourceSourceDir, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        Path destDir = resourceDestDir.resolve(resourceSourceDir.relativize(dir).toString());
+                        Files.createDirectories(destDir);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        Path destFile = resourceDestDir.resolve(resourceSourceDir.relativize(file).toString());
+                        // resources come from the workspace, which is cleared after the build, and the guest only reads them
+                        fileStager.addReadOnly(file, destFile);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ex) {
                 String msg = String.format("Failed to copy directory with content from %s to %s", resourceSourceDir, resourceDestDir);
-                throw new IllegalStateException(msg, th);
+                throw new IllegalStateException(msg, ex);
             }
         }
 
@@ -193,7 +231,7 @@ public class VagrantEnvironment implements Closeable {
                 String installScriptFileName = installScriptSourcePath.getFileName().toString();
                 Path installScriptDestPath = Paths.get(installDir.toString(), installScriptFileName);
                 copyFile(installScriptSourcePath, installScriptDestPath);
-                config = new VagrantFileTemplate.Config(preInstallScriptFileName, installScriptFileName, box.get());
+                config = new VagrantFileTemplate.Config(preInstallScriptFileName, installScriptFileName, box.get(), baselinePath.isPresent());
             }
 
             if (installerPaths.isPresent()) {
@@ -201,7 +239,8 @@ public class VagrantEnvironment implements Closeable {
                 for(Path installerSourcePath : installerPaths) {
                     String installerFileName = installerSourcePath.getFileName().toString();
                     Path installerDestPath = Paths.get(workingDir.toString(), INSTALL_DIRECTORY, installerFileName);
-                    copyFile(installerSourcePath, installerDestPath);
+                    // installers are only executed by the guest machine, so the large files are linked when possible
+                    fileStager.addReadOnly(installerSourcePath, installerDestPath);
                 }
 
                 if (installerArgs.isPresent()) {
@@ -219,7 +258,7 @@ public class VagrantEnvironment implements Closeable {
                     }
 
                     if (config == null) {
-                        config = new VagrantFileTemplate.Config(preInstallScriptFileName, INSTALL_SCRIPT_FILE, box.get());
+                        config = new VagrantFileTemplate.Config(preInstallScriptFileName, INSTALL_SCRIPT_FILE, box.get(), baselinePath.isPresent());
                     }
                 }
             }
@@ -241,6 +280,30 @@ public class VagrantEnvironment implements Closeable {
                 Path postSnapshotScriptDestPath = Paths.get(outputDir.toString(), POST_SNAPSHOT_SCRIPT_FILE);
                 copyFile(postSnapshotScriptSourcePath, postSnapshotScriptDestPath);
             }
+
+            if (baselinePath.isPresent()) {
+                final Path baselineSourceDir = baselinePath.get();
+                final Path baselineDestDir = Paths.get(outputDir.toString(), BASELINE_DIRECTORY);
+                try {
+                    Files.walkFileTree(baselineSourceDir, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                            Files.createDirectories(baselineDestDir.resolve(baselineSourceDir.relativize(dir).toString()));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                            // never link, the guest machine must not be able to modify the cached baseline
+                            fileStager.addCopy(file, baselineDestDir.resolve(baselineSourceDir.relativize(file).toString()));
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException ex) {
+                    String msg = String.format("Failed to copy baseline from %s to %s", baselineSourceDir, baselineDestDir);
+                    throw new IllegalStateException(msg, ex);
+                }
+            }
         }
 
         private ArrayList<String> generateScriptContent(Collection<Path> installerPaths) {
@@ -288,11 +351,17 @@ public class VagrantEnvironment implements Closeable {
         }
 
         private void copyFile(Path source, Path destination) {
+            fileStager.addCopy(source, destination);
+        }
+
+        private FileStager.Stats stageFiles() {
             try {
-                Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+                return fileStager.stage();
             } catch (IOException ex) {
-                String msg = String.format("Failed to copy %s to %s", source, destination);
-                throw new IllegalStateException(msg, ex);
+                throw new IllegalStateException(String.format("Failed to stage files in %s", workingDir), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(String.format("Staging files in %s was interrupted", workingDir), ex);
             }
         }
     }
@@ -32,11 +32,17 @@ public class VagrantFileTemplate {
         private final String preInstallScriptName;
         private final String installScriptName;
         private final String vagrantBox;
+        private final boolean baselineCached;
 
         public Config(@Nullable String preInstallScriptName, String installScriptName, String vagrantBox) {
+            this(preInstallScriptName, installScriptName, vagrantBox, false);
+        }
+
+        public Config(@Nullable String preInstallScriptName, String installScriptName, String vagrantBox, boolean baselineCached) {
             this.preInstallScriptName = preInstallScriptName;
             this.installScriptName = installScriptName;
             this.vagrantBox = vagrantBox;
+            this.baselineCached = baselineCached;
         }
     }
 
@@ -77,6 +83,10 @@ public class VagrantFileTemplate {
         return config.getPreInstallScriptName();
     }
 
+    public boolean isBeforeSnapshotRequired() {
+        return !config.isBaselineCached();
+    }
+
     public String getBeforeSnapshotCommand() {
         return new RubyArgumentListBuilder()
                 .addPath(XSTUDIO_PATH)
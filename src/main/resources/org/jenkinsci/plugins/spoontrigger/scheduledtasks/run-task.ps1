@@ -14,11 +14,11 @@ function Log-Status ($log) {
 }
 
 function Is-ScheduledTaskExist ($taskName) {
-    return Get-ScheduledTask | Where-Object {$_.TaskName -like $taskName}
+    return Get-ScheduledTask -TaskName $taskName -ErrorAction SilentlyContinue
 }
 
 function Is-ScheduledTaskRunning ($taskName) {
-	return Get-ScheduledTask | Where-Object {$_.TaskName -like $taskName -and $_.State -like "Running"}
+	return (Get-ScheduledTask -TaskName $taskName -ErrorAction SilentlyContinue | Select-Object -First 1 -ExpandProperty State) -eq "Running"
 }
 
 $exitCode = 0
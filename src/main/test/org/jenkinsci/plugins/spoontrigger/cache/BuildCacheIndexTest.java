@@ -0,0 +1,85 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuildCacheIndexTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private BuildCacheIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new BuildCacheIndex(new File(tempDir.getRoot(), "build-cache.xml"));
+    }
+
+    @Test
+    public void findsImageOfKey() throws Exception {
+        // given
+        index.put("key", "test/image:1.0");
+
+        // when
+        Optional<String> image = new BuildCacheIndex(new File(tempDir.getRoot(), "build-cache.xml")).find("key");
+
+        // then
+        assertEquals(Optional.of("test/image:1.0"), image);
+        assertFalse(index.find("other-key").isPresent());
+    }
+
+    @Test
+    public void replacesImageOfKey() throws Exception {
+        // given
+        index.put("key", "test/image:1.0");
+
+        // when
+        index.put("key", "test/image:1.1");
+
+        // then
+        assertEquals(Optional.of("test/image:1.1"), index.find("key"));
+    }
+
+    @Test
+    public void removesStaleEntry() throws Exception {
+        // given
+        index.put("key", "test/image:1.0");
+        index.put("other-key", "test/image:1.1");
+
+        // when
+        index.remove("key");
+        index.remove("missing-key");
+
+        // then
+        assertFalse(index.find("key").isPresent());
+        assertTrue(index.find("other-key").isPresent());
+    }
+
+    @Test
+    public void dropsOldestEntriesOverLimit() throws Exception {
+        // given
+        for (int position = 0; position < 100; ++position) {
+            index.put("key-" + position, "test/image:" + position);
+        }
+        // the entry is moved to the end when it is put again
+        index.put("key-0", "test/image:0");
+
+        // when
+        index.put("key-100", "test/image:100");
+
+        // then
+        assertTrue(index.find("key-0").isPresent());
+        assertFalse(index.find("key-1").isPresent());
+        assertTrue(index.find("key-2").isPresent());
+        assertTrue(index.find("key-100").isPresent());
+    }
+}
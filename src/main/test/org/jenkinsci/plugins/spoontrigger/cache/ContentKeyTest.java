@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import hudson.FilePath;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ContentKeyTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private File script;
+
+    @Before
+    public void setUp() throws Exception {
+        script = writeFile("turbo.me", "layer base\ncopy resources");
+        writeFile("resources/app.config", "<config/>");
+        writeFile("resources/bin/app.exe", "binary");
+        writeFile("install.ps1", "Write-Host install");
+    }
+
+    @Test
+    public void sameInputsGiveSameKey() throws Exception {
+        assertEquals(computeKey("image", "resources"), computeKey("image", "resources"));
+    }
+
+    @Test
+    public void keyChangesWithScriptAndProperties() throws Exception {
+        // given
+        String key = computeKey("image", "resources");
+
+        // when
+        String propertyKey = computeKey("other-image", "resources");
+        writeFile("turbo.me", "layer base\ncopy resources\nenv A=B");
+        String scriptKey = computeKey("image", "resources");
+
+        // then
+        assertFalse(key.equals(propertyKey));
+        assertFalse(key.equals(scriptKey));
+    }
+
+    @Test
+    public void keyChangesWithFilesInDirectory() throws Exception {
+        // given
+        String key = computeKey("image", "resources");
+
+        // when
+        writeFile("resources/bin/app.exe", "binary 2");
+        String changedKey = computeKey("image", "resources");
+        writeFile("resources/bin/app.exe", "binary");
+        writeFile("resources/bin/extra.dll", "");
+        String addedKey = computeKey("image", "resources");
+
+        // then
+        assertFalse(key.equals(changedKey));
+        assertFalse(key.equals(addedKey));
+    }
+
+    @Test
+    public void resolvesRelativePathsAgainstScriptDirectory() throws Exception {
+        // given
+        String absolutePath = new File(tempDir.getRoot(), "install.ps1").getAbsolutePath();
+
+        // when
+        String relativeKey = ContentKey.of(new FilePath(script)).file("install.ps1").compute();
+        String absoluteKey = ContentKey.of(new FilePath(script)).file(absolutePath).compute();
+
+        // then
+        assertEquals(relativeKey, absoluteKey);
+    }
+
+    @Test(expected = IOException.class)
+    public void failsIfFileIsMissing() throws Exception {
+        ContentKey.of(new FilePath(script)).file("missing.ps1").compute();
+    }
+
+    private String computeKey(String imageName, String resourceDirectory) throws Exception {
+        return ContentKey.of(new FilePath(script))
+                .property("imageName", imageName)
+                .directory(resourceDirectory)
+                .file("install.ps1")
+                .compute();
+    }
+
+    private File writeFile(String path, String content) throws Exception {
+        File file = new File(tempDir.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,100 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImageStoreTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void parsesImagesTable() {
+        // given
+        String output = "Using VM 11.8.1027 from local system\n" +
+                "\n" +
+                "ID            Name                      Created               Size      Startup File\n" +
+                "--            ----                      -------               ----      ------------\n" +
+                "5b1aa5e7c0d1  spoonbrew/git:2.6.4       1/22/2016 9:54:05 AM  43.8 MB   git.exe\n" +
+                "0c5cb9a2b4f7                            1/23/2016 1:10:00 PM  512 KB\n" +
+                "a7f3e2d1c0b9  test/product:1.0.0        1/24/2016 2:00:00 PM  1,5 GB\n";
+
+        // when
+        List<ImageStore.LocalImage> images = ImageStore.parseImages(output);
+
+        // then
+        assertEquals(Arrays.asList(
+                new ImageStore.LocalImage("spoonbrew/git:2.6.4", (long) (43.8 * MB)),
+                new ImageStore.LocalImage("0c5cb9a2b4f7", 512L * 1024L),
+                new ImageStore.LocalImage("test/product:1.0.0", 1536L * MB)), images);
+    }
+
+    @Test
+    public void returnsNoImagesWithoutHeader() {
+        assertTrue(ImageStore.parseImages("No images found").isEmpty());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedImagesOverBudget() {
+        // given
+        ImageStore.LocalImage oldest = new ImageStore.LocalImage("test/oldest:1", 40 * MB);
+        ImageStore.LocalImage older = new ImageStore.LocalImage("test/older:1", 30 * MB);
+        ImageStore.LocalImage recent = new ImageStore.LocalImage("test/recent:1", 20 * MB);
+        Map<String, Long> lastUse = new HashMap<String, Long>();
+        lastUse.put(oldest.getName(), 1000L);
+        lastUse.put(older.getName(), 2000L);
+        lastUse.put(recent.getName(), 3000L);
+
+        // when
+        List<ImageStore.LocalImage> imagesToEvict = ImageStore.selectImagesToEvict(
+                Arrays.asList(recent, oldest, older), lastUse, Collections.<ImageStore.LocalImage>emptyList(), 45 * MB);
+
+        // then
+        assertEquals(Arrays.asList(oldest, older), imagesToEvict);
+    }
+
+    @Test
+    public void tracksImagesInUseByRunningBuildsOfNode() {
+        // given
+        ImageStore.markInUse("windows-1", "test/base:1");
+        ImageStore.markInUse("windows-1", "Test/Base:1");
+        ImageStore.markInUse("windows-1", "test/app");
+        ImageStore.markInUse("windows-2", "test/other:1");
+
+        // when
+        ImageStore.unmarkInUse("windows-1", Arrays.asList("test/base:1", "test/app"));
+
+        // then
+        assertEquals(Collections.singleton("test/base:1"), ImageStore.getImagesInUse("windows-1"));
+        assertEquals(Collections.singleton("test/other:1"), ImageStore.getImagesInUse("windows-2"));
+
+        ImageStore.unmarkInUse("windows-1", Collections.singletonList("test/base:1"));
+        ImageStore.unmarkInUse("windows-2", Collections.singletonList("test/other:1"));
+        assertTrue(ImageStore.getImagesInUse("windows-1").isEmpty());
+        assertTrue(ImageStore.getImagesInUse("windows-2").isEmpty());
+    }
+
+    @Test
+    public void keepsImagesInUse() {
+        // given
+        ImageStore.LocalImage oldest = new ImageStore.LocalImage("test/oldest:1", 40 * MB);
+        ImageStore.LocalImage recent = new ImageStore.LocalImage("test/recent:1", 20 * MB);
+        Map<String, Long> lastUse = new HashMap<String, Long>();
+        lastUse.put(oldest.getName(), 1000L);
+        lastUse.put(recent.getName(), 3000L);
+
+        // when
+        List<ImageStore.LocalImage> imagesToEvict = ImageStore.selectImagesToEvict(
+                Arrays.asList(oldest, recent), lastUse, Collections.singletonList(oldest), 30 * MB);
+
+        // then
+        assertEquals(Collections.singletonList(recent), imagesToEvict);
+    }
+}
@@ -0,0 +1,92 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Charsets;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModelCacheTest {
+
+    private Path tempDir;
+    private ModelCache modelCache;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("model-cache-test-");
+        modelCache = new ModelCache(tempDir.resolve("cache"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(tempDir);
+    }
+
+    @Test
+    public void restoresModelOfSameImage() throws Exception {
+        // given
+        Path modelDir = createDirectory("model", "p.xs", "prefetch");
+        Path transcriptDir = createDirectory("transcripts", "0-session.xt", "transcript");
+        modelCache.store("aaaa", transcriptDir, modelDir);
+
+        // when
+        Path restoredModelDir = tempDir.resolve("restored-model");
+        Path restoredTranscriptDir = tempDir.resolve("restored-transcripts");
+        boolean isRestored = modelCache.restore("aaaa", restoredTranscriptDir, restoredModelDir);
+
+        // then
+        assertTrue(isRestored);
+        assertEquals(ModelCache.hashDirectory(modelDir), ModelCache.hashDirectory(restoredModelDir));
+        assertEquals(ModelCache.hashDirectory(transcriptDir), ModelCache.hashDirectory(restoredTranscriptDir));
+    }
+
+    @Test
+    public void keepsOnlyLastImage() throws Exception {
+        // given
+        Path modelDir = createDirectory("model", "p.xs", "prefetch");
+        Path transcriptDir = createDirectory("transcripts", "0-session.xt", "transcript");
+        modelCache.store("aaaa", transcriptDir, modelDir);
+
+        // when
+        modelCache.store("bbbb", transcriptDir, modelDir);
+
+        // then
+        assertFalse(modelCache.restore("aaaa", tempDir.resolve("restored-transcripts"), tempDir.resolve("restored-model")));
+    }
+
+    @Test
+    public void remembersLastPush() throws Exception {
+        // when
+        modelCache.markPushed("image=aaaa, model=cccc");
+
+        // then
+        assertTrue(modelCache.isPushed("image=aaaa, model=cccc"));
+        assertFalse(modelCache.isPushed("image=aaaa, model=dddd"));
+    }
+
+    @Test
+    public void hashOfDirectoryDependsOnContent() throws Exception {
+        // given
+        Path modelDir = createDirectory("model", "p.xs", "prefetch");
+        String hash = ModelCache.hashDirectory(modelDir);
+
+        // when
+        Files.write(modelDir.resolve("p.xs"), "changed".getBytes(Charsets.UTF_8));
+
+        // then
+        assertFalse(hash.equals(ModelCache.hashDirectory(modelDir)));
+    }
+
+    private Path createDirectory(String name, String fileName, String content) throws Exception {
+        Path directory = Files.createDirectories(tempDir.resolve(name));
+        Files.write(directory.resolve(fileName), content.getBytes(Charsets.UTF_8));
+        return directory;
+    }
+}
@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.spoontrigger.cache;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import hudson.model.TaskListener;
+import jenkins.util.BuildListenerAdapter;
+import org.jenkinsci.plugins.spoontrigger.hub.HubApi;
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteBuildCacheTest {
+
+    private static final String CONTENT_KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String CACHED_TAG = "0123456789abcdef0123456789abcdef";
+
+    private HttpServer stubHub;
+    private RemoteBuildCache remoteCache;
+
+    @Before
+    public void setUp() throws Exception {
+        stubHub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubHub.createContext("/io/_hub/repo/", new StubRepoHandler());
+        stubHub.start();
+
+        String hubUrl = "http://127.0.0.1:" + stubHub.getAddress().getPort();
+        HubApi hubApi = new HubApi(hubUrl, "secret", new BuildListenerAdapter(TaskListener.NULL));
+        remoteCache = new RemoteBuildCache(hubApi, "build-cache", "app");
+    }
+
+    @After
+    public void tearDown() {
+        stubHub.stop(0);
+    }
+
+    @Test
+    public void tagsImageWithContentKey() {
+        // when
+        Image image = remoteCache.getImage(CONTENT_KEY);
+
+        // then
+        assertEquals("build-cache/app:" + CACHED_TAG, image.printIdentifier());
+    }
+
+    @Test
+    public void findsImageBuiltFromSameInputs() throws Exception {
+        // when
+        boolean hit = remoteCache.contains(CONTENT_KEY);
+
+        // then
+        assertTrue(hit);
+    }
+
+    @Test
+    public void missesImageBuiltFromOtherInputs() throws Exception {
+        // given
+        String otherContentKey = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+        // when
+        boolean hit = remoteCache.contains(otherContentKey);
+
+        // then
+        assertFalse(hit);
+    }
+
+    @Test
+    public void missesImageInUnknownRepo() throws Exception {
+        // given
+        HubApi hubApi = new HubApi("http://127.0.0.1:" + stubHub.getAddress().getPort(), "secret", new BuildListenerAdapter(TaskListener.NULL));
+        RemoteBuildCache otherRepoCache = new RemoteBuildCache(hubApi, "build-cache", "other");
+
+        // when
+        boolean hit = otherRepoCache.contains(CONTENT_KEY);
+
+        // then
+        assertFalse(hit);
+    }
+
+    /**
+     * Serves the tags of build-cache/app, other repositories do not exist.
+     */
+    private static final class StubRepoHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"/io/_hub/repo/build-cache/app".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] body = ("{\"tags\": [\"1.0\", \"" + CACHED_TAG + "\"]}").getBytes(Charsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream responseBody = exchange.getResponseBody();
+            try {
+                responseBody.write(body);
+            } finally {
+                responseBody.close();
+            }
+        }
+    }
+}
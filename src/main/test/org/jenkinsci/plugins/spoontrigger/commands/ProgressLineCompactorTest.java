@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.spoontrigger.commands;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ProgressLineCompactorTest {
+
+    @Test
+    public void printsProgressInSteps() {
+        // given
+        ProgressLineCompactor compactor = new ProgressLineCompactor(10, 30000L);
+        List<String> printed = new ArrayList<String>();
+
+        // when
+        for (int percent = 0; percent <= 100; ++percent) {
+            printed.addAll(compactor.accept("Pushing image " + percent + "%", percent * 100L));
+        }
+        printed.addAll(compactor.flush().asSet());
+
+        // then
+        List<String> expected = new ArrayList<String>();
+        for (int percent = 0; percent <= 100; percent += 10) {
+            expected.add("Pushing image " + percent + "%");
+        }
+        assertEquals(expected, printed);
+    }
+
+    @Test
+    public void printsLastStateWhenProgressEnds() {
+        // given
+        ProgressLineCompactor compactor = new ProgressLineCompactor(10, 30000L);
+        List<String> printed = new ArrayList<String>();
+
+        // when
+        printed.addAll(compactor.accept("Pulling 1.0 MB / 10.0 MB", 0L));
+        printed.addAll(compactor.accept("Pulling 1.5 MB / 10.0 MB", 1000L));
+        printed.addAll(compactor.accept("Pulling 1.7 MB / 10.0 MB", 2000L));
+        printed.addAll(compactor.accept("Pull failed", 3000L));
+
+        // then
+        assertEquals(Arrays.asList("Pulling 1.0 MB / 10.0 MB", "Pulling 1.7 MB / 10.0 MB", "Pull failed"), printed);
+    }
+
+    @Test
+    public void printsProgressAfterInterval() {
+        // given
+        ProgressLineCompactor compactor = new ProgressLineCompactor(10, 30000L);
+        compactor.accept("Building image 1%", 0L);
+
+        // when
+        List<String> beforeInterval = compactor.accept("Building image 2%", 29999L);
+        List<String> afterInterval = compactor.accept("Building image 3%", 30000L);
+
+        // then
+        assertEquals(0, beforeInterval.size());
+        assertEquals(Arrays.asList("Building image 3%"), afterInterval);
+        assertFalse(compactor.flush().isPresent());
+    }
+
+    @Test
+    public void keepsOtherLines() {
+        // given
+        ProgressLineCompactor compactor = new ProgressLineCompactor(10, 30000L);
+
+        // when
+        List<String> printed = new ArrayList<String>();
+        printed.addAll(compactor.accept("Using VM 11.3.8", 0L));
+        printed.addAll(compactor.accept("Output image: test/image", 0L));
+
+        // then
+        assertEquals(Arrays.asList("Using VM 11.3.8", "Output image: test/image"), printed);
+    }
+}
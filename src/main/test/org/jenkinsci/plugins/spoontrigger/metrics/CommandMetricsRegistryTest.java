@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommandMetricsRegistryTest {
+
+    private CommandMetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new CommandMetricsRegistry();
+    }
+
+    @Test
+    public void computesPercentilesOfDuration() {
+        // given
+        for (long duration = 1; duration <= 100; ++duration) {
+            registry.record("turbo.BuildCommand", "windows-1", "https://turbo.net", duration * 1000, 0, 10);
+        }
+
+        // when
+        JSONObject command = registry.toJson().getJSONArray("commands").getJSONObject(0);
+
+        // then
+        assertEquals(100L, command.getLong("count"));
+        assertEquals(50000L, command.getLong("p50DurationMs"));
+        assertEquals(95000L, command.getLong("p95DurationMs"));
+        assertEquals(99000L, command.getLong("p99DurationMs"));
+        assertEquals(1000L, command.getLong("outputBytes"));
+    }
+
+    @Test
+    public void groupsCommandsByNodeAndHub() {
+        // given
+        registry.record("turbo.PushCommand", "windows-1", "https://turbo.net", 1000, 0, 0);
+        registry.record("turbo.PushCommand", "windows-2", "https://turbo.net", 1000, 0, 0);
+        registry.record("turbo.PushCommand", "windows-1", "https://turbo.net", 1000, 0, 0);
+
+        // when
+        int groupCount = registry.toJson().getJSONArray("commands").size();
+
+        // then
+        assertEquals(2, groupCount);
+    }
+
+    @Test
+    public void exportsCumulativeHistogramAndFailures() {
+        // given
+        registry.record("turbo.LoginCommand", "master", "default", 200, 0, 0);
+        registry.record("turbo.LoginCommand", "master", "default", 7000, 1, 0);
+        registry.record("turbo.LoginCommand", "master", "default", 20000, null, 0);
+
+        // when
+        String text = registry.toPrometheus();
+
+        // then
+        String labels = "command=\"turbo.LoginCommand\",node=\"master\",hub=\"default\"";
+        assertTrue(text.contains("turbo_command_duration_seconds_bucket{" + labels + ",le=\"0.5\"} 1\n"));
+        assertTrue(text.contains("turbo_command_duration_seconds_bucket{" + labels + ",le=\"10\"} 2\n"));
+        assertTrue(text.contains("turbo_command_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("turbo_command_duration_seconds_sum{" + labels + "} 27.2\n"));
+        assertTrue(text.contains("turbo_command_failures_total{" + labels + "} 2\n"));
+    }
+
+    @Test
+    public void recordsSamplesFromNodeWithHubOfBuild() {
+        // given
+        CommandSample pull = new CommandSample("turbo.PullCommand", "windows-1", 3000, 0, 100);
+        CommandSample snapshot = new CommandSample("xstudio.BuildCommand", "windows-1", 60000, 0, 0);
+
+        // when
+        registry.record(pull, "https://hub.example.com");
+        registry.record(snapshot, null);
+
+        // then
+        JSONArray commands = registry.toJson().getJSONArray("commands");
+        assertEquals("https://hub.example.com", commands.getJSONObject(0).getString("hub"));
+        assertEquals("windows-1", commands.getJSONObject(0).getString("node"));
+        assertEquals(100L, commands.getJSONObject(0).getLong("outputBytes"));
+        assertEquals("default", commands.getJSONObject(1).getString("hub"));
+    }
+}
@@ -0,0 +1,53 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import hudson.util.XStream2;
+import org.jenkinsci.plugins.spoontrigger.ModelMetricsAction;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModelMetricsTest {
+
+    @Test
+    public void stepsWhichDidNotRunHaveZeroDuration() {
+        // when
+        ModelMetrics metrics = new ModelMetrics();
+
+        // then
+        assertEquals(0L, metrics.getProfileDuration());
+        assertEquals(0L, metrics.getModelDuration());
+        assertEquals(0L, metrics.getPushDuration());
+        assertFalse(metrics.isCached());
+        assertFalse(metrics.isPushed());
+    }
+
+    @Test
+    public void metricsArePersistedWithBuild() {
+        // given
+        ModelMetrics metrics = new ModelMetrics();
+        metrics.setBufferSize(64L * 1024 * 1024);
+        metrics.setTranscriptCount(3);
+        metrics.setTranscriptSize(2048L);
+        metrics.setProfileDuration(120000L);
+        metrics.setModelDuration(30000L);
+        metrics.setCached(true);
+        metrics.setPushed(true);
+        XStream2 xStream = new XStream2();
+
+        // when
+        String xml = xStream.toXML(new ModelMetricsAction(metrics));
+        ModelMetrics loaded = ((ModelMetricsAction) xStream.fromXML(xml)).getMetrics();
+
+        // then
+        assertEquals(64L * 1024 * 1024, loaded.getBufferSize());
+        assertEquals(3, loaded.getTranscriptCount());
+        assertEquals(2048L, loaded.getTranscriptSize());
+        assertEquals(120000L, loaded.getProfileDuration());
+        assertEquals(30000L, loaded.getModelDuration());
+        assertEquals(0L, loaded.getPushDuration());
+        assertTrue(loaded.isCached());
+        assertTrue(loaded.isPushed());
+    }
+}
@@ -0,0 +1,77 @@
+package org.jenkinsci.plugins.spoontrigger.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PushProgressParserTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void computesThroughputFromProgressLines() {
+        // given
+        PushProgressParser parser = new PushProgressParser(0L);
+
+        // when
+        parser.parse("Pushing image 0 B / 20 MB", 1000L);
+        parser.parse("Pushing image 10 MB / 20 MB", 3000L);
+        parser.parse("Pushing image 20 MB / 20 MB", 5000L);
+        PushMetrics metrics = parser.finish("https://turbo.net", "test/image", true, 6000L);
+
+        // then
+        assertEquals(20 * MB, metrics.getTransferredBytes());
+        assertEquals(6000L, metrics.getDuration());
+        assertEquals(5000L, metrics.getTransferDuration());
+        assertEquals(4 * MB, metrics.getThroughput());
+        assertEquals(0, metrics.getStallCount());
+    }
+
+    @Test
+    public void addsBytesOfConsecutiveFiles() {
+        // given
+        PushProgressParser parser = new PushProgressParser(0L);
+
+        // when
+        parser.parse("Uploading 1.5 MB of 1.5 MB", 1000L);
+        parser.parse("Uploading 512 KB of 2 MB", 2000L);
+        parser.parse("Uploading 2 MB of 2 MB", 3000L);
+        PushMetrics metrics = parser.finish("https://turbo.net", "test/image", true, 3000L);
+
+        // then
+        assertEquals(3 * MB + MB / 2, metrics.getTransferredBytes());
+    }
+
+    @Test
+    public void countsPeriodsWithoutProgressAsStalls() {
+        // given
+        PushProgressParser parser = new PushProgressParser(0L);
+
+        // when
+        parser.parse("Pushing image 1 MB / 4 MB", 20000L);
+        parser.parse("Pushing image 1 MB / 4 MB", 25000L);
+        parser.parse("Pushing image 2 MB / 4 MB", 40000L);
+        parser.parse("Pushing image 4 MB / 4 MB", 41000L);
+        PushMetrics metrics = parser.finish("https://turbo.net", "test/image", true, 41000L);
+
+        // then
+        assertEquals(1, metrics.getStallCount());
+        assertEquals(20000L, metrics.getStallDuration());
+    }
+
+    @Test
+    public void ignoresLinesWithoutProgress() {
+        // given
+        PushProgressParser parser = new PushProgressParser(0L);
+
+        // when
+        parser.parse("Using hub https://turbo.net", 1000L);
+        parser.parse("Push complete", 2000L);
+        PushMetrics metrics = parser.finish("https://turbo.net", "test/image", false, 2000L);
+
+        // then
+        assertEquals(0L, metrics.getTransferredBytes());
+        assertEquals(0L, metrics.getTransferDuration());
+        assertEquals(0L, metrics.getThroughput());
+    }
+}
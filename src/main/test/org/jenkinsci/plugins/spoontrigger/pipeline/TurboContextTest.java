@@ -0,0 +1,46 @@
+package org.jenkinsci.plugins.spoontrigger.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TurboContextTest {
+
+    private static final String DEFAULT_HUB = "https://turbo.net";
+    private static final String CUSTOM_HUB = "https://hub.example.com";
+
+    @Test
+    public void hubIsConfiguredOnlyOnNodeWhereItWasSet() {
+        // given
+        TurboContext context = new TurboContext();
+
+        // when
+        context.setConfiguredHub("windows-1", CUSTOM_HUB, CUSTOM_HUB);
+
+        // then
+        assertTrue(context.isHubConfigured("windows-1", CUSTOM_HUB));
+        assertFalse(context.isHubConfigured("windows-2", CUSTOM_HUB));
+        assertFalse(context.isHubConfigured("windows-1", DEFAULT_HUB));
+        assertFalse(context.isHubConfigured("windows-1", null));
+    }
+
+    @Test
+    public void resetHubMatchesReportedHub() {
+        // given
+        TurboContext context = new TurboContext();
+
+        // when
+        context.setConfiguredHub("windows-1", null, DEFAULT_HUB);
+
+        // then
+        assertTrue(context.isHubConfigured("windows-1", null));
+        assertTrue(context.isHubConfigured("windows-1", DEFAULT_HUB));
+        assertFalse(context.isHubConfigured("windows-1", CUSTOM_HUB));
+    }
+
+    @Test
+    public void newContextHasNoConfiguredHub() {
+        assertFalse(new TurboContext().isHubConfigured("windows-1", null));
+    }
+}
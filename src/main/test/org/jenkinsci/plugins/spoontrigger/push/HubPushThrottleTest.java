@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.spoontrigger.push;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HubPushThrottleTest {
+
+    private static final String HUB = "https://turbo.net";
+
+    @Test
+    public void parsesSettings() {
+        // given
+        String settings = "https://turbo.net 2\n\n  https://hub.example.com/\t1  \nfolder/My Project 5";
+
+        // when
+        Map<String, Integer> values = HubPushThrottle.parseSettings(settings);
+
+        // then
+        assertEquals(Integer.valueOf(2), values.get("https://turbo.net"));
+        assertEquals(Integer.valueOf(1), values.get("https://hub.example.com/"));
+        assertEquals(Integer.valueOf(5), values.get("folder/My Project"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLineWithoutNumber() {
+        HubPushThrottle.parseSettings("https://turbo.net");
+    }
+
+    @Test
+    public void normalizesHubUrl() {
+        assertEquals(HUB, HubPushThrottle.normalizeHubUrl("HTTPS://Turbo.net/"));
+        assertEquals(HUB, HubPushThrottle.normalizeHubUrl(null));
+    }
+
+    @Test
+    public void releasesSlotsToWaitersByPriority() throws Exception {
+        // given
+        final HubPushThrottle throttle = new HubPushThrottle();
+        HubPushThrottle.Permit runningPermit = throttle.acquire(HUB, 1, 0);
+
+        final List<String> acquired = Collections.synchronizedList(new ArrayList<String>());
+        Thread lowPriority = startWaiter(throttle, "low", 0, acquired);
+        waitForWaiters(throttle, 1);
+        Thread highPriority = startWaiter(throttle, "high", 10, acquired);
+        waitForWaiters(throttle, 2);
+
+        // when
+        runningPermit.release();
+        lowPriority.join(TimeUnit.SECONDS.toMillis(10));
+        highPriority.join(TimeUnit.SECONDS.toMillis(10));
+
+        // then
+        assertEquals(Arrays.asList("high", "low"), acquired);
+        assertEquals(0, throttle.getRunning(HUB));
+    }
+
+    @Test
+    public void removesInterruptedWaiter() throws Exception {
+        // given
+        final HubPushThrottle throttle = new HubPushThrottle();
+        HubPushThrottle.Permit runningPermit = throttle.acquire(HUB, 1, 0);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    throttle.acquire(HUB, 1, 0).release();
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        waiter.start();
+        waitForWaiters(throttle, 1);
+
+        // when
+        waiter.interrupt();
+
+        // then
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, throttle.getWaiting(HUB));
+        runningPermit.release();
+    }
+
+    private static Thread startWaiter(final HubPushThrottle throttle, final String name, final int priority, final List<String> acquired) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    HubPushThrottle.Permit permit = throttle.acquire(HUB, 1, priority);
+                    acquired.add(name);
+                    permit.release();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitForWaiters(HubPushThrottle throttle, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (throttle.getWaiting(HUB) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionMarkerTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void writesMarkerUnderTemporaryNameFirst() throws Exception {
+        // given
+        Path markerPath = tempDir.getRoot().toPath().resolve("profile.done");
+        CompletionMarker marker = CompletionMarker.create(markerPath);
+
+        // when
+        String command = marker.appendTo("& xstudio.exe");
+
+        // then
+        String tempPath = markerPath.toAbsolutePath() + ".tmp";
+        assertTrue(command.contains(String.format("Set-Content -Path '%s' -Value $spoonExitCode", tempPath)));
+        assertTrue(command.endsWith(String.format("Move-Item -Force -Path '%s' -Destination '%s'", tempPath, markerPath.toAbsolutePath())));
+        marker.close();
+    }
+
+    @Test
+    public void ignoresMarkerWithoutFinalName() throws Exception {
+        // given
+        Path markerPath = tempDir.getRoot().toPath().resolve("profile.done");
+        CompletionMarker marker = CompletionMarker.create(markerPath);
+
+        // when
+        Files.write(tempDir.getRoot().toPath().resolve("profile.done.tmp"), "0".getBytes(Charsets.UTF_8));
+
+        // then
+        assertFalse(marker.await(100, TimeUnit.MILLISECONDS));
+        marker.close();
+    }
+
+    @Test
+    public void retriesReadingEmptyMarker() throws Exception {
+        // given
+        final Path markerPath = tempDir.getRoot().toPath().resolve("profile.done");
+        CompletionMarker marker = CompletionMarker.create(markerPath);
+        Files.write(markerPath, new byte[0]);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300L);
+                    Files.write(markerPath, "\uFEFF3\r\n".getBytes(Charsets.UTF_8));
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        writer.start();
+
+        // when
+        Optional<Integer> exitCode = marker.getExitCode();
+
+        // then
+        writer.join();
+        assertEquals(Optional.of(3), exitCode);
+        marker.close();
+    }
+}
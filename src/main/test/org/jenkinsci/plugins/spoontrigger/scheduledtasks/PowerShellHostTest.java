@@ -0,0 +1,221 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.io.BaseEncoding;
+import hudson.util.StreamTaskListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PowerShellHostTest {
+
+    private StubHost stubHost;
+    private PowerShellHost host;
+
+    @Before
+    public void setUp() throws Exception {
+        stubHost = new StubHost();
+        host = stubHost.connect();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        host.close();
+        stubHost.join();
+    }
+
+    @Test
+    public void returnsOutputAndStatusOfScript() throws Exception {
+        // given
+        stubHost.respond("Write-Output 'first'; Write-Output 'second'", 0, "first", "second");
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = host.execute("Write-Output 'first'; Write-Output 'second'", out);
+
+        // then
+        assertEquals(0, status);
+        assertEquals("first\nsecond\n", new String(out.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void runsConsecutiveScriptsInOneSession() throws Exception {
+        // given
+        stubHost.respond("Start-ScheduledTask -TaskName \"profile\"", 0);
+        stubHost.respond("Unregister-ScheduledTask -TaskName \"profile\" -Confirm:$False", 1, "Task not found");
+
+        // when
+        int firstStatus = host.execute("Start-ScheduledTask -TaskName \"profile\"", new ByteArrayOutputStream());
+        int secondStatus = host.execute("Unregister-ScheduledTask -TaskName \"profile\" -Confirm:$False", new ByteArrayOutputStream());
+
+        // then
+        assertEquals(0, firstStatus);
+        assertEquals(1, secondStatus);
+        assertEquals(2, stubHost.getRequestCount());
+    }
+
+    @Test
+    public void parsesTaskStateReturnedBySession() throws Exception {
+        // given
+        stubHost.respond("Get-ScheduledTask -TaskName \"profile\" -ErrorAction SilentlyContinue | Select-Object -First 1 -ExpandProperty State", 0,
+                "Running");
+        ScheduledTasksApi tasksApi = new ScheduledTasksApi(host, Charsets.UTF_8, StreamTaskListener.fromStdout());
+
+        // when
+        Optional<TaskState> state = tasksApi.getState("profile");
+
+        // then
+        assertTrue(state.isPresent());
+        assertEquals(TaskState.Running, state.get());
+    }
+
+    @Test
+    public void returnsAbsentStateOfUndefinedTask() throws Exception {
+        // given
+        stubHost.respond("Get-ScheduledTask -TaskName \"profile\" -ErrorAction SilentlyContinue | Select-Object -First 1 -ExpandProperty State", 0);
+        ScheduledTasksApi tasksApi = new ScheduledTasksApi(host, Charsets.UTF_8, StreamTaskListener.fromStdout());
+
+        // when
+        boolean isDefined = tasksApi.isDefined("profile");
+
+        // then
+        assertFalse(isDefined);
+    }
+
+    @Test
+    public void terminatesSessionWhichDoesNotRespond() throws Exception {
+        // given
+        StubHost hangingStubHost = new StubHost();
+        PowerShellHost hangingHost = hangingStubHost.connect(100L);
+        hangingStubHost.hang("Start-ScheduledTask -TaskName \"profile\"");
+
+        // when
+        try {
+            hangingHost.execute("Start-ScheduledTask -TaskName \"profile\"", new ByteArrayOutputStream());
+            fail("PowerShell host did not time out");
+        } catch (IOException ex) {
+            // then
+            assertTrue(ex.getMessage().contains("did not respond"));
+        }
+
+        // the session is terminated, so the stub host reads the end of its input
+        hangingStubHost.join();
+    }
+
+    /**
+     * Plays the role of the PowerShell process: decodes requests and replies with the prepared responses.
+     */
+    private static final class StubHost extends Thread {
+        private static final int NO_RESPONSE = -1;
+        private static final Pattern REQUEST_PATTERN =
+                Pattern.compile("FromBase64String\\('(?<script>[^']*)'\\).*'(?<marker>#END-[^ ']+) ' \\+ \\$spoonStatus$");
+
+        private final List<Response> responses = Collections.synchronizedList(new ArrayList<Response>());
+        private final PipedOutputStream stdin = new PipedOutputStream();
+        private final PipedInputStream stdout = new PipedInputStream();
+        private final BufferedReader requestReader;
+        private final Writer responseWriter;
+        private volatile int requestCount = 0;
+
+        StubHost() throws IOException {
+            this.requestReader = new BufferedReader(new InputStreamReader(new PipedInputStream(stdin), Charsets.US_ASCII));
+            this.responseWriter = new OutputStreamWriter(new PipedOutputStream(stdout), Charsets.UTF_8);
+            setDaemon(true);
+        }
+
+        PowerShellHost connect() {
+            return connect(PowerShellHost.DEFAULT_RESPONSE_TIMEOUT_MS);
+        }
+
+        PowerShellHost connect(long responseTimeoutMs) {
+            start();
+            Closeable process = new Closeable() {
+                @Override
+                public void close() throws IOException {
+                    stdin.close();
+                }
+            };
+            return new PowerShellHost(stdin, stdout, Charsets.UTF_8, process, responseTimeoutMs);
+        }
+
+        void respond(String script, int status, String... lines) {
+            responses.add(new Response(script, status, lines));
+        }
+
+        void hang(String script) {
+            responses.add(new Response(script, NO_RESPONSE, new String[0]));
+        }
+
+        int getRequestCount() {
+            return requestCount;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String line;
+                while ((line = requestReader.readLine()) != null) {
+                    if ("exit".equals(line)) {
+                        break;
+                    }
+
+                    Matcher matcher = REQUEST_PATTERN.matcher(line);
+                    if (!matcher.find()) {
+                        continue;
+                    }
+
+                    ++requestCount;
+                    String script = new String(BaseEncoding.base64().decode(matcher.group("script")), Charsets.UTF_16LE);
+                    Response response = responses.remove(0);
+                    assertEquals(response.script, script);
+                    if (response.status == NO_RESPONSE) {
+                        continue;
+                    }
+
+                    responseWriter.write("PS noise which is not part of the response\r\n");
+                    for (String output : response.lines) {
+                        responseWriter.write(PowerShellHost.OUTPUT_PREFIX + output + "\r\n");
+                    }
+                    responseWriter.write(matcher.group("marker") + " " + response.status + "\r\n");
+                    responseWriter.flush();
+                }
+                responseWriter.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    private static final class Response {
+        private final String script;
+        private final int status;
+        private final String[] lines;
+
+        Response(String script, int status, String[] lines) {
+            this.script = script;
+            this.status = status;
+            this.lines = lines;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.spoontrigger.scheduledtasks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import org.jenkinsci.plugins.spoontrigger.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ScriptCacheTest {
+
+    private static final String SCRIPT_RESOURCE_ID = "run-task.ps1";
+
+    private Path cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = Files.createTempDirectory("script-cache-test-");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(cacheDir);
+    }
+
+    @Test
+    public void extractsScriptOnce() throws Exception {
+        // given
+        ScriptCache scriptCache = new ScriptCache(cacheDir);
+
+        // when
+        Path firstPath = scriptCache.getScript(SCRIPT_RESOURCE_ID);
+        long lastModified = Files.getLastModifiedTime(firstPath).toMillis();
+        Path secondPath = scriptCache.getScript(SCRIPT_RESOURCE_ID);
+
+        // then
+        assertEquals(firstPath, secondPath);
+        assertEquals(lastModified, Files.getLastModifiedTime(secondPath).toMillis());
+        assertArrayEquals(getResource(), Files.readAllBytes(secondPath));
+    }
+
+    @Test
+    public void restoresModifiedScript() throws Exception {
+        // given
+        ScriptCache scriptCache = new ScriptCache(cacheDir);
+        Path scriptPath = scriptCache.getScript(SCRIPT_RESOURCE_ID);
+        Files.write(scriptPath, "exit 1".getBytes(Charsets.UTF_8));
+
+        // when
+        Path restoredPath = scriptCache.getScript(SCRIPT_RESOURCE_ID);
+
+        // then
+        assertArrayEquals(getResource(), Files.readAllBytes(restoredPath));
+    }
+
+    @Test
+    public void deletesStaleVersions() throws Exception {
+        // given
+        Path staleVersionDir = Files.createDirectories(cacheDir.resolve("0000000000000000"));
+        Files.write(staleVersionDir.resolve(SCRIPT_RESOURCE_ID), "exit 1".getBytes(Charsets.UTF_8));
+
+        // when
+        ScriptCache scriptCache = new ScriptCache(cacheDir);
+
+        // then
+        assertFalse(Files.exists(staleVersionDir));
+        assertEquals(Arrays.asList(scriptCache.getVersionDir().toFile()), Arrays.asList(cacheDir.toFile().listFiles()));
+    }
+
+    private static byte[] getResource() throws Exception {
+        return Resources.toByteArray(Resources.getResource(ScriptCache.class, SCRIPT_RESOURCE_ID));
+    }
+}
@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphTest {
+
+    @Test
+    public void ordersNodesAfterTheirDependencies() {
+        // given
+        DependencyGraph<String> graph = createGraph();
+
+        // when
+        List<String> order = graph.topologicalOrder();
+
+        // then
+        assertEquals(Arrays.asList("base", "runtime", "tools", "app"), order);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsCycles() {
+        // given
+        DependencyGraph<String> graph = createGraph();
+        graph.addDependency("base", "app");
+
+        // when
+        graph.topologicalOrder();
+    }
+
+    @Test
+    public void findsNodesWithoutDependents() {
+        // given
+        DependencyGraph<String> graph = createGraph();
+        graph.addNode("docs");
+        graph.addDependency("docs", "base");
+
+        // when
+        Set<String> leaves = graph.getLeaves();
+
+        // then
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("app", "docs")), leaves);
+    }
+
+    @Test
+    public void runsIndependentNodesInParallel() throws Exception {
+        // given
+        DependencyGraph<String> graph = createGraph();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        Map<String, DependencyGraph.Status> statuses;
+        try {
+            statuses = graph.execute(executor, new DependencyGraph.Step<String>() {
+                @Override
+                public boolean run(String node) throws Exception {
+                    int current = running.incrementAndGet();
+                    int max = maxRunning.get();
+                    while (current > max && !maxRunning.compareAndSet(max, current)) {
+                        max = maxRunning.get();
+                    }
+                    Thread.sleep(100);
+                    running.decrementAndGet();
+                    return true;
+                }
+
+                @Override
+                public void onError(String node, Exception ex) {
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertEquals(Collections.nCopies(4, DependencyGraph.Status.SUCCESS), Arrays.asList(statuses.values().toArray()));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void skipsDependentsOfFailedNode() throws Exception {
+        // given
+        DependencyGraph<String> graph = createGraph();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        Map<String, DependencyGraph.Status> statuses;
+        try {
+            statuses = graph.execute(executor, new DependencyGraph.Step<String>() {
+                @Override
+                public boolean run(String node) throws Exception {
+                    if ("tools".equals(node)) {
+                        throw new IllegalStateException("build failed");
+                    }
+                    return true;
+                }
+
+                @Override
+                public void onError(String node, Exception ex) {
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertEquals(DependencyGraph.Status.SUCCESS, statuses.get("base"));
+        assertEquals(DependencyGraph.Status.SUCCESS, statuses.get("runtime"));
+        assertEquals(DependencyGraph.Status.FAILURE, statuses.get("tools"));
+        assertEquals(DependencyGraph.Status.SKIPPED, statuses.get("app"));
+        assertTrue(statuses.keySet().containsAll(graph.getNodes()));
+    }
+
+    /**
+     * app depends on runtime and tools, which both depend on base.
+     */
+    private static DependencyGraph<String> createGraph() {
+        DependencyGraph<String> graph = new DependencyGraph<String>();
+        graph.addNode("app");
+        graph.addNode("tools");
+        graph.addNode("runtime");
+        graph.addNode("base");
+        graph.addDependency("app", "runtime");
+        graph.addDependency("app", "tools");
+        graph.addDependency("runtime", "base");
+        graph.addDependency("tools", "base");
+        return graph;
+    }
+}
@@ -0,0 +1,37 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import org.jenkinsci.plugins.spoontrigger.hub.Image;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScriptEntryTest {
+
+    private static final String SCRIPT = "# base images\n" +
+            "from spoonbrew/clean:1.0 \r\n" +
+            "layer Test/Runtime, test/tools:2.1\n" +
+            "using microsoft/vcredist\n" +
+            "cmd echo from the script\n";
+
+    @Test
+    public void findsReferencedImagesWithTags() {
+        // when
+        List<Image> images = ScriptEntry.findReferencedImageNames(SCRIPT);
+
+        // then
+        assertEquals(Arrays.asList(
+                new Image("spoonbrew", "clean", "1.0"),
+                new Image("Test", "Runtime", null),
+                new Image("test", "tools", "2.1"),
+                new Image("microsoft", "vcredist", null)), images);
+    }
+
+    @Test
+    public void findsRepositoriesOfReferencedImages() {
+        assertEquals(Arrays.asList("spoonbrew/clean", "test/runtime", "test/tools", "microsoft/vcredist"),
+                ScriptEntry.findReferencedImages(SCRIPT));
+    }
+}
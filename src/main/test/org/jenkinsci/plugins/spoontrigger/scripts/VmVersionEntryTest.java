@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.spoontrigger.scripts;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VmVersionEntryTest {
+
+    @Test
+    public void parsesVersionsAndSuffixes() {
+        // when
+        List<VmVersionEntry> entries = VmVersionEntry.parseAll("11.8.1024.0 -vm11\r\n\n  12.0.0.1  \n");
+
+        // then
+        assertEquals(Arrays.asList(new VmVersionEntry("11.8.1024.0", "-vm11"), new VmVersionEntry("12.0.0.1", null)), entries);
+    }
+
+    @Test
+    public void parsesEmptyEntries() {
+        assertTrue(VmVersionEntry.parseAll(null).isEmpty());
+        assertTrue(VmVersionEntry.parseAll(" \n ").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidVersion() {
+        VmVersionEntry.parseAll("11.8.1024.0\n11.8 -vm11");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsExtraWords() {
+        VmVersionEntry.parse("11.8.1024.0 -vm11 -x86");
+    }
+
+    @Test
+    public void appendsSuffixToRepository() {
+        // given
+        VmVersionEntry entry = VmVersionEntry.parse("11.8.1024.0 -vm11");
+
+        // then
+        assertEquals("test/app-vm11:1.0", entry.getImageName("test/app:1.0"));
+        assertEquals("app-vm11", entry.getImageName("app"));
+        assertNull(entry.getImageName(null));
+    }
+
+    @Test
+    public void keepsImageNameWithoutSuffix() {
+        assertEquals("test/app:1.0", VmVersionEntry.parse("11.8.1024.0").getImageName("test/app:1.0"));
+    }
+}
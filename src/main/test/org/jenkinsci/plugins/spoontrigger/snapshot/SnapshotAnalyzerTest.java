@@ -0,0 +1,130 @@
+package org.jenkinsci.plugins.spoontrigger.snapshot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder outputDir = new TemporaryFolder();
+
+    @Test
+    public void accountsFileSizesInDirectoryTree() throws Exception {
+        // given
+        writeFile(100, "Files", "@SYSDRIVE@", "tmp", "vagrant-shell.ps1");
+        writeFile(300, "Files", "@SYSDRIVE@", "tmp", "nested", "installer.msi");
+        writeFile(50, "Files", "@PROGRAMFILES@", "readme.txt");
+
+        SnapshotAnalyzer analyzer = new SnapshotAnalyzer(2, 2);
+
+        // when
+        SnapshotReport report = analyzer.analyze(
+                new ByteArrayInputStream(TEST_DOCUMENT.getBytes(StandardCharsets.UTF_8)),
+                outputDir.getRoot().toPath());
+
+        // then
+        assertEquals(450L, report.getTotalSize());
+        assertEquals(4, report.getTotalFileCount());
+        assertEquals(1, report.getMissingFileCount());
+
+        SnapshotReport.DirectoryEntry largestDirectory = report.getRoot().getChildren().get(0);
+        assertEquals("@SYSDRIVE@", largestDirectory.getPath());
+        assertEquals(400L, largestDirectory.getSize());
+
+        // nested directory is deeper than the report, its content is accounted in the parent
+        SnapshotReport.DirectoryEntry tmpDirectory = largestDirectory.getChildren().get(0);
+        assertEquals("@SYSDRIVE@\\tmp", tmpDirectory.getPath());
+        assertEquals(400L, tmpDirectory.getSize());
+        assertEquals(0, tmpDirectory.getChildren().size());
+
+        assertEquals(2, report.getLargestFiles().size());
+        assertEquals("@SYSDRIVE@\\tmp\\nested\\installer.msi", report.getLargestFiles().get(0).getPath());
+        assertEquals("@SYSDRIVE@\\tmp\\vagrant-shell.ps1", report.getLargestFiles().get(1).getPath());
+    }
+
+    @Test
+    public void mergesDirectoriesOfSeveralLayers() throws Exception {
+        // given
+        writeFile(100, "Default", "readme.txt");
+        writeFile(200, "Patch", "update.dll");
+
+        SnapshotAnalyzer analyzer = new SnapshotAnalyzer(2, 2);
+
+        // when
+        SnapshotReport report = analyzer.analyze(
+                new ByteArrayInputStream(LAYERED_DOCUMENT.getBytes(StandardCharsets.UTF_8)),
+                outputDir.getRoot().toPath());
+
+        // then
+        assertEquals(300L, report.getTotalSize());
+        assertEquals(1, report.getRoot().getChildren().size());
+
+        SnapshotReport.DirectoryEntry programFiles = report.getRoot().getChildren().get(0);
+        assertEquals("@PROGRAMFILES@", programFiles.getPath());
+        assertEquals(300L, programFiles.getSize());
+        assertEquals(2, programFiles.getFileCount());
+        assertEquals(1, programFiles.getChildren().size());
+        assertEquals(300L, programFiles.getChildren().get(0).getSize());
+    }
+
+    private void writeFile(int size, String... segments) throws Exception {
+        Path path = Paths.get(outputDir.getRoot().getPath(), segments);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[size]);
+    }
+
+    private static final String TEST_DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<Configuration appVersion=\"16.0.482\" publisher=\"Turbo.net\" version=\"10.6\">\n" +
+            "  <Layers>\n" +
+            "    <Layer name=\"Default\">\n" +
+            "      <Filesystem>\n" +
+            "        <Directory name=\"@PROGRAMFILES@\">\n" +
+            "          <File name=\"readme.txt\" source=\".\\Files\\@PROGRAMFILES@\\readme.txt\"/>\n" +
+            "        </Directory>\n" +
+            "        <Directory name=\"@SYSDRIVE@\">\n" +
+            "          <Directory name=\"tmp\">\n" +
+            "            <File name=\"vagrant-shell.ps1\" source=\".\\Files\\@SYSDRIVE@\\tmp\\vagrant-shell.ps1\"/>\n" +
+            "            <Directory name=\"nested\">\n" +
+            "              <File name=\"installer.msi\" source=\".\\Files\\@SYSDRIVE@\\tmp\\nested\\installer.msi\"/>\n" +
+            "              <File name=\"missing.dll\" source=\".\\Files\\@SYSDRIVE@\\tmp\\nested\\missing.dll\"/>\n" +
+            "            </Directory>\n" +
+            "          </Directory>\n" +
+            "        </Directory>\n" +
+            "      </Filesystem>\n" +
+            "    </Layer>\n" +
+            "  </Layers>\n" +
+            "</Configuration>\n";
+
+    private static final String LAYERED_DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<Configuration appVersion=\"16.0.482\" publisher=\"Turbo.net\" version=\"10.6\">\n" +
+            "  <Layers>\n" +
+            "    <Layer name=\"Default\">\n" +
+            "      <Filesystem>\n" +
+            "        <Directory name=\"@PROGRAMFILES@\">\n" +
+            "          <Directory name=\"App\">\n" +
+            "            <File name=\"readme.txt\" source=\".\\Default\\readme.txt\"/>\n" +
+            "          </Directory>\n" +
+            "        </Directory>\n" +
+            "      </Filesystem>\n" +
+            "    </Layer>\n" +
+            "    <Layer name=\"Patch\">\n" +
+            "      <Filesystem>\n" +
+            "        <Directory name=\"@PROGRAMFILES@\">\n" +
+            "          <Directory name=\"app\">\n" +
+            "            <File name=\"update.dll\" source=\".\\Patch\\update.dll\"/>\n" +
+            "          </Directory>\n" +
+            "        </Directory>\n" +
+            "      </Filesystem>\n" +
+            "    </Layer>\n" +
+            "  </Layers>\n" +
+            "</Configuration>\n";
+}
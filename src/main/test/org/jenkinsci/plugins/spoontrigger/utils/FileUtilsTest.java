@@ -0,0 +1,114 @@
+package org.jenkinsci.plugins.spoontrigger.utils;
+
+import hudson.util.StreamTaskListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileUtilsTest {
+
+    private static final long BACKGROUND_TIMEOUT_MS = 10000L;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void deletesNestedTree() throws Exception {
+        // given
+        Path root = tempDir.newFolder("nested").toPath();
+        for (int child = 0; child < 4; ++child) {
+            Path childDir = Files.createDirectories(root.resolve("child-" + child).resolve("grandchild"));
+            Files.write(childDir.resolve("file.txt"), new byte[10]);
+            Files.write(childDir.getParent().resolve("file.txt"), new byte[10]);
+        }
+
+        // when
+        FileUtils.parallelDeleteDirectoryTree(root);
+
+        // then
+        assertFalse(Files.exists(root));
+    }
+
+    @Test
+    public void deletesReadOnlyFiles() throws Exception {
+        // given
+        Path root = tempDir.newFolder("read-only").toPath();
+        Path subDir = Files.createDirectories(root.resolve("sub"));
+        Path file = Files.write(subDir.resolve("readonly.dll"), new byte[10]);
+        assertTrue(file.toFile().setWritable(false));
+
+        // when
+        FileUtils.parallelDeleteDirectoryTree(root);
+
+        // then
+        assertFalse(Files.exists(root));
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void failsIfRootIsMissing() throws Exception {
+        FileUtils.parallelDeleteDirectoryTree(tempDir.getRoot().toPath().resolve("missing"));
+    }
+
+    @Test
+    public void ignoresMissingRootInBackground() throws Exception {
+        // given
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        // when
+        FileUtils.deleteDirectoryTreeInBackground(tempDir.getRoot().toPath().resolve("missing"), new StreamTaskListener(log));
+
+        // then
+        assertEquals(0, log.size());
+    }
+
+    @Test
+    public void sweepsLeftoverTrashInBackground() throws Exception {
+        // given
+        Path leftover = tempDir.newFolder("spoon-trash-workdir-1").toPath();
+        Files.write(leftover.resolve("file.txt"), new byte[10]);
+        Path directory = tempDir.newFolder("workdir").toPath();
+        Files.write(directory.resolve("file.txt"), new byte[10]);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        // when
+        FileUtils.deleteDirectoryTreeInBackground(directory, new StreamTaskListener(log));
+
+        // then
+        assertFalse(Files.exists(directory));
+        long deadline = System.currentTimeMillis() + BACKGROUND_TIMEOUT_MS;
+        while (tempDir.getRoot().list().length > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        assertEquals(0, tempDir.getRoot().list().length);
+        assertEquals(0, log.size());
+    }
+
+    @Test
+    public void keepsTrashOfOtherTools() throws Exception {
+        // given
+        Path foreign = tempDir.newFolder("workdir.trash-1").toPath();
+        Path unnamed = tempDir.newFolder("spoon-trash-workdir").toPath();
+        Path directory = tempDir.newFolder("workdir").toPath();
+
+        // when
+        FileUtils.deleteDirectoryTreeInBackground(directory, new StreamTaskListener(new ByteArrayOutputStream()));
+
+        // then
+        long deadline = System.currentTimeMillis() + BACKGROUND_TIMEOUT_MS;
+        while (tempDir.getRoot().list().length > 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        assertTrue(Files.isDirectory(foreign));
+        assertTrue(Files.isDirectory(unnamed));
+        assertEquals(2, tempDir.getRoot().list().length);
+    }
+}
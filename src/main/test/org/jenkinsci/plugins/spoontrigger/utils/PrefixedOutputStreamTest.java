@@ -0,0 +1,28 @@
+package org.jenkinsci.plugins.spoontrigger.utils;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefixedOutputStreamTest {
+
+    @Test
+    public void prefixesEveryLine() throws Exception {
+        // given
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(new PrefixedOutputStream(log, "[app.me] ", Charsets.UTF_8), true, "UTF-8");
+
+        // when
+        out.println("Building image");
+        out.print("Step 1\nStep 2\nOutput image: test/app");
+
+        // then
+        assertEquals("[app.me] Building image\n[app.me] Step 1\n[app.me] Step 2\n", log.toString("UTF-8"));
+        out.close();
+        assertEquals("[app.me] Building image\n[app.me] Step 1\n[app.me] Step 2\n[app.me] Output image: test/app", log.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,27 @@
+package org.jenkinsci.plugins.spoontrigger.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SizesTest {
+
+    @Test
+    public void parsesSizesPrintedByTurbo() {
+        assertEquals(512L, Sizes.parseSize("512", "B"));
+        assertEquals(1536L, Sizes.parseSize("1.5", "kb"));
+        assertEquals(1536L * 1024L * 1024L, Sizes.parseSize("1,5", "GB"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownUnit() {
+        Sizes.parseSize("1", "PB");
+    }
+
+    @Test
+    public void formatsSizeInLargestUnit() {
+        assertEquals("1023 B", Sizes.formatSize(1023L));
+        assertEquals("1.50 KB", Sizes.formatSize(1536L));
+        assertEquals("2.00 GB", Sizes.formatSize(2L * 1024L * 1024L * 1024L));
+    }
+}
@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.spoontrigger.vagrant;
+
+import com.google.common.base.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BaselineCacheTest {
+
+    private static final String BOX = "turbo/windows-10";
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void keyUsesLatestInstalledBoxVersion() throws Exception {
+        // given
+        installBox(BOX, "1.2.0", "1.10.0", "1.9.3");
+        Path xStudio = writeFile("xstudio.exe", "xstudio");
+
+        // when
+        Optional<BaselineCache.Key> key = BaselineCache.createKey(BOX, xStudio, Optional.<Path>absent(), getEnv());
+
+        // then
+        assertTrue(key.isPresent());
+        assertEquals("1.10.0", key.get().getBoxVersion());
+        assertTrue(key.get().toString().startsWith("box=" + BOX + ", boxVersion=1.10.0, xStudio="));
+    }
+
+    @Test
+    public void keyChangesWithXStudioAndPreInstallScript() throws Exception {
+        // given
+        installBox(BOX, "1.0.0");
+        Path xStudio = writeFile("xstudio.exe", "xstudio");
+        Path preInstallScript = writeFile("pre_install.ps1", "Set-ExecutionPolicy Bypass");
+
+        // when
+        String id = BaselineCache.createKey(BOX, xStudio, Optional.<Path>absent(), getEnv()).get().getId();
+        String sameId = BaselineCache.createKey(BOX, xStudio, Optional.<Path>absent(), getEnv()).get().getId();
+        String scriptId = BaselineCache.createKey(BOX, xStudio, Optional.of(preInstallScript), getEnv()).get().getId();
+        writeFile("xstudio.exe", "xstudio 2");
+        String updatedId = BaselineCache.createKey(BOX, xStudio, Optional.<Path>absent(), getEnv()).get().getId();
+
+        // then
+        assertEquals(id, sameId);
+        assertFalse(id.equals(scriptId));
+        assertFalse(id.equals(updatedId));
+    }
+
+    @Test
+    public void keyIsAbsentIfBoxIsNotInstalled() throws Exception {
+        // given
+        Path xStudio = writeFile("xstudio.exe", "xstudio");
+
+        // when
+        Optional<BaselineCache.Key> key = BaselineCache.createKey(BOX, xStudio, Optional.<Path>absent(), getEnv());
+
+        // then
+        assertFalse(key.isPresent());
+    }
+
+    @Test
+    public void keepsLatestEntriesOfEachBox() throws Exception {
+        // given
+        Path baseline = tempDir.newFolder("baseline").toPath();
+        Files.write(baseline.resolve("snapshot.xappl"), new byte[10]);
+        BaselineCache cache = new BaselineCache(tempDir.getRoot().toPath().resolve("cache"), 2);
+
+        BaselineCache.Key oldest = new BaselineCache.Key(BOX, "1.0.0", "x", "");
+        BaselineCache.Key older = new BaselineCache.Key(BOX, "1.1.0", "x", "");
+        BaselineCache.Key otherBox = new BaselineCache.Key("turbo/windows-7", "1.0.0", "x", "");
+        BaselineCache.Key latest = new BaselineCache.Key(BOX, "1.2.0", "x", "");
+
+        // when
+        cache.store(oldest, baseline);
+        cache.store(otherBox, baseline);
+        cache.store(older, baseline);
+        Thread.sleep(1100L); // file times may have a resolution of one second
+        assertTrue(cache.find(oldest).isPresent());
+        Thread.sleep(1100L);
+        cache.store(latest, baseline);
+
+        // then
+        assertTrue(cache.find(latest).isPresent());
+        assertTrue(cache.find(oldest).isPresent());
+        assertFalse(cache.find(older).isPresent());
+        assertTrue(cache.find(otherBox).isPresent());
+    }
+
+    private void installBox(String box, String... versions) throws Exception {
+        for (String version : versions) {
+            Files.createDirectories(Paths.get(tempDir.getRoot().getPath(), "vagrant", "boxes", box.replace("/", "-VAGRANTSLASH-"), version));
+        }
+    }
+
+    private Map<String, String> getEnv() {
+        return Collections.singletonMap("VAGRANT_HOME", Paths.get(tempDir.getRoot().getPath(), "vagrant").toString());
+    }
+
+    private Path writeFile(String name, String content) throws Exception {
+        Path path = tempDir.getRoot().toPath().resolve(name);
+        Files.write(path, content.getBytes("UTF-8"));
+        return path;
+    }
+}
@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.spoontrigger.vagrant;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileStagerTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void linksReadOnlyFilesOnSameVolume() throws Exception {
+        // given
+        Path source = writeFile("xstudio.exe", 100);
+        Path destination = tempDir.getRoot().toPath().resolve("tools-xstudio.exe");
+
+        // when
+        FileStager.Stats stats = new FileStager(2).addReadOnly(source, destination).stage();
+
+        // then
+        assertTrue(Files.isSameFile(source, destination));
+        assertEquals(1L, stats.getLinkedFiles());
+        assertEquals(100L, stats.getLinkedBytes());
+        assertEquals(0L, stats.getCopiedFiles());
+    }
+
+    @Test
+    public void copiesFilesTheGuestMayModify() throws Exception {
+        // given
+        Path source = writeFile("install.ps1", 40);
+        Path destination = tempDir.getRoot().toPath().resolve("install-copy.ps1");
+
+        // when
+        FileStager.Stats stats = new FileStager(2).addCopy(source, destination).stage();
+        Files.write(destination, "modified by guest".getBytes(StandardCharsets.UTF_8));
+
+        // then
+        assertFalse(Files.isSameFile(source, destination));
+        assertArrayEquals(new byte[40], Files.readAllBytes(source));
+        assertEquals(0L, stats.getLinkedFiles());
+        assertEquals(1L, stats.getCopiedFiles());
+        assertEquals(40L, stats.getCopiedBytes());
+    }
+
+    @Test
+    public void copiesReadOnlyFilesIfLinkFails() throws Exception {
+        // given
+        Path first = writeFile("first.exe", 10);
+        Path second = writeFile("second.dll", 30);
+        Path destinationDir = tempDir.newFolder("staged").toPath();
+        FileStager stager = new FileStager(2) {
+            @Override
+            boolean tryLink(Path source, Path destination) {
+                return false;
+            }
+        };
+
+        // when
+        FileStager.Stats stats = stager
+                .addReadOnly(first, destinationDir.resolve("first.exe"))
+                .addReadOnly(second, destinationDir.resolve("second.dll"))
+                .stage();
+
+        // then
+        assertFalse(Files.isSameFile(first, destinationDir.resolve("first.exe")));
+        assertArrayEquals(new byte[30], Files.readAllBytes(destinationDir.resolve("second.dll")));
+        assertEquals(0L, stats.getLinkedFiles());
+        assertEquals(2L, stats.getCopiedFiles());
+        assertEquals(40L, stats.getCopiedBytes());
+        assertEquals(40L, stats.getTotalBytes());
+    }
+
+    private Path writeFile(String name, int size) throws Exception {
+        Path path = tempDir.getRoot().toPath().resolve(name);
+        Files.write(path, new byte[size]);
+        return path;
+    }
+}